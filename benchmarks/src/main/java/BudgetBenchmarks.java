@@ -0,0 +1,424 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+
+
+// Benchmarks for the auth, ingestion and reporting hot paths, run against generated
+// fixture files at each requested data size. Works like JMH's average-time mode
+// (warmup iterations, then timed iterations, each running the operation until the
+// iteration time is used up) and writes its results in JMH's JSON layout so runs can be
+// compared with the usual JMH tooling. JMH itself refuses benchmarks in the unnamed
+// package, and the application's classes can only be reached from there.
+//
+// Build and run from the repository root:
+//   ./gradlew :benchmarks:run --args="--sizes=1000,100000 --filter=report --out=bench-results.json"
+//
+// Options:
+//   --sizes=1000,...      data sizes in rows (default 1000,10000,100000,1000000,10000000)
+//   --filter=regex        only run benchmarks whose name matches
+//   --warmup=N            warmup iterations (default 3)
+//   --iterations=N        measured iterations (default 5)
+//   --time=ms             time per iteration (default 1000)
+//   --dir=path            where fixtures are generated and cached (default bench-data)
+//   --out=file            JSON results file (default bench-results.json)
+//
+// The login benchmarks time the user lookup, not PBKDF2: fixture passwords are stored
+// hashed at -Dauth.pbkdf2.iterations, which defaults to 1000 here rather than the app's
+// 310000. Pass it explicitly to include the full hashing cost.
+public class BudgetBenchmarks {
+    interface Operation {
+        void run() throws Exception;
+    }
+
+    interface Setup {
+        Operation prepare(Path dir, int size) throws Exception;
+    }
+
+    private static final Map<String, Setup> BENCHMARKS = new LinkedHashMap<>();
+    private static final List<String> SIZELESS = new ArrayList<>();
+    private static final String[] CATEGORIES = {
+            "groceries", "rent", "utilities", "transport", "dining", "health", "insurance", "education",
+            "clothing", "travel", "gifts", "fitness", "subscriptions", "pets", "childcare", "charity",
+            "electronics", "furniture", "hobbies", "misc"
+    };
+    private static final String[] METHODS = {"cash", "card", "transfer", "wallet"};
+    private static final PrintStream CONSOLE = System.out;
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    static {
+        // Before PasswordHasher is loaded, which reads it once.
+        if (System.getProperty("auth.pbkdf2.iterations") == null) {
+            System.setProperty("auth.pbkdf2.iterations", "1000");
+        }
+
+        // Each benchmark gets its own copy of users.txt, so one that writes to it (a login
+        // upgrading a stored hash) can't change what the others measure.
+        register("auth.FileUserStorage.login", (dir, size) -> {
+            FileUserStorage storage = new FileUserStorage(Fixtures.users(dir, size, "file-login").toString());
+            String email = Fixtures.email(size - 1);
+            return () -> storage.login(email, Fixtures.password(size - 1));
+        });
+        register("auth.FileUserStorage.isEmailExists", (dir, size) -> {
+            FileUserStorage storage = new FileUserStorage(Fixtures.users(dir, size, "file-exists").toString());
+            return () -> storage.isEmailExists("missing@bench.example");
+        });
+        register("auth.IndexedUserStorage.login", (dir, size) -> {
+            IndexedUserStorage storage = Fixtures.indexedUsers(dir, size, "indexed-login");
+            String email = Fixtures.email(size - 1);
+            return () -> storage.login(email, Fixtures.password(size - 1));
+        });
+        register("auth.IndexedUserStorage.isEmailExists", (dir, size) -> {
+            IndexedUserStorage storage = Fixtures.indexedUsers(dir, size, "indexed-exists");
+            return () -> storage.isEmailExists("missing@bench.example");
+        });
+
+        UserValidator validator = new UserValidator();
+        registerSizeless("validator.isValidEmail", () -> validator.isValidEmail("john.doe+budget@example.co.uk"));
+        registerSizeless("validator.isValidPassword", () -> validator.isValidPassword("Budget2024pass"));
+        registerSizeless("validator.isValidPhone", () -> validator.isValidPhone("+201234567890"));
+
+        register("ingest.appendExpense.text", (dir, size) -> {
+            String ledger = Fixtures.copyLedger(dir, size, "append").toString();
+            Expense expense = new Expense(42.5, "groceries", "card", "2024-05-17");
+            return () -> {
+                BufferedWriter writer = new BufferedWriter(new FileWriter(ledger + "_expenses.txt", true));
+                writer.write(expense.toFileString());
+                writer.newLine();
+                writer.close();
+            };
+        });
+        register("ingest.appendExpense.appender", (dir, size) -> {
+            // The previous size's appender still holds the file the copy is about to replace.
+            LedgerAppender.close(dir.resolve("appender") + "_expenses.txt");
+            String ledger = Fixtures.copyLedger(dir, size, "appender").toString();
+            Expense expense = new Expense(42.5, "groceries", "card", "2024-05-17");
+            return () -> LedgerAppender.appendLine(ledger + "_expenses.txt", expense.toFileString());
+        });
+        register("ingest.appendExpense.binary", (dir, size) -> {
+            String ledger = Fixtures.binaryLedger(dir, size).toString();
+            Expense expense = new Expense(42.5, "groceries", "card", "2024-05-17");
+            return () -> BinaryLedger.append(ledger, expense);
+        });
+
+        register("report.SummaryReport.generate", reportOf(new SummaryReport()));
+        register("report.DetailedReport.generate", reportOf(new DetailedReport()));
+        register("report.ParallelSummaryReport.generate",
+                reportOf(new ParallelSummaryReport(0, ForkJoinPool.commonPool())));
+        register("report.ParallelDetailedReport.generate",
+                reportOf(new ParallelDetailedReport(0, ForkJoinPool.commonPool())));
+        register("report.TrendsReport.generate", reportOf(new TrendsReport()));
+
+        register("kernels.sum", (dir, size) -> {
+            LedgerColumns columns = LedgerColumns.of(Fixtures.ledger(dir, size).toString());
+            long[] result = new long[1];
+            return () -> result[0] = LedgerKernels.shared().sum(columns.cents(), columns.size());
+        });
+        register("kernels.sumBetween", (dir, size) -> {
+            LedgerColumns columns = LedgerColumns.of(Fixtures.ledger(dir, size).toString());
+            int from = (int) LocalDate.of(2024, 3, 1).toEpochDay();
+            int to = (int) LocalDate.of(2024, 8, 31).toEpochDay();
+            long[] result = new long[2];
+            return () -> LedgerKernels.shared().sumBetween(columns.cents(), columns.days(), columns.size(),
+                    from, to, result);
+        });
+        register("kernels.sumByCategory", (dir, size) -> {
+            LedgerColumns columns = LedgerColumns.of(Fixtures.ledger(dir, size).toString());
+            int categories = columns.names().size();
+            return () -> LedgerKernels.shared().sumByCategory(columns.cents(), columns.categories(), columns.days(),
+                    columns.size(), Integer.MIN_VALUE + 1, Integer.MAX_VALUE, new long[categories], new int[categories]);
+        });
+
+        register("analysis.SpendingAggregates.rebuild", (dir, size) -> {
+            String ledger = Fixtures.ledger(dir, size).toString();
+            SpendingAggregates aggregates = SpendingAggregates.load(ledger);
+            return aggregates::verify;
+        });
+        register("analysis.SpendingAggregates.load", (dir, size) -> {
+            String ledger = Fixtures.ledger(dir, size).toString();
+            SpendingAggregates.load(ledger);
+            return () -> SpendingAggregates.load(ledger);
+        });
+    }
+
+    private static void register(String name, Setup setup) {
+        BENCHMARKS.put(name, setup);
+    }
+
+    private static void registerSizeless(String name, Operation operation) {
+        BENCHMARKS.put(name, (dir, size) -> operation);
+        SIZELESS.add(name);
+    }
+
+    private static Setup reportOf(ReportStrategy strategy) {
+        return (dir, size) -> {
+            String ledger = Fixtures.ledger(dir, size).toString();
+            Report report = new Report(strategy);
+            return () -> report.generateReport(ledger);
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {1000, 10000, 100000, 1000000, 10000000};
+        Pattern filter = Pattern.compile("");
+        int warmup = 3;
+        int iterations = 5;
+        long iterationMillis = 1000;
+        Path dir = Paths.get("bench-data");
+        Path out = Paths.get("bench-results.json");
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--sizes=")) {
+                String[] parts = value.split(",");
+                sizes = new int[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    sizes[i] = Integer.parseInt(parts[i].trim());
+                }
+            } else if (arg.startsWith("--filter=")) {
+                filter = Pattern.compile(value);
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Integer.parseInt(value);
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(value);
+            } else if (arg.startsWith("--time=")) {
+                iterationMillis = Long.parseLong(value);
+            } else if (arg.startsWith("--dir=")) {
+                dir = Paths.get(value);
+            } else if (arg.startsWith("--out=")) {
+                out = Paths.get(value);
+            } else {
+                System.out.println("Unknown option: " + arg);
+                return;
+            }
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (Map.Entry<String, Setup> benchmark : BENCHMARKS.entrySet()) {
+            String name = benchmark.getKey();
+            if (!filter.matcher(name).find()) {
+                continue;
+            }
+            boolean sizeless = SIZELESS.contains(name);
+            for (int size : sizeless ? new int[]{0} : sizes) {
+                Path sizeDir = dir.resolve(String.valueOf(size));
+                Files.createDirectories(sizeDir);
+                System.out.printf("# %s%s%n", name, sizeless ? "" : " (rows=" + size + ")");
+                Operation operation = benchmark.getValue().prepare(sizeDir, size);
+                Result result = measure(name, sizeless ? -1 : size, operation, warmup, iterations,
+                        iterationMillis * 1_000_000L);
+                System.out.printf("  %.3f +- %.3f us/op, %.0f B/op%n", result.score(), result.error(), result.bytesPerOp);
+                results.add(result);
+            }
+        }
+        writeJson(out, results, warmup, iterations, iterationMillis);
+        System.out.println("Results written to " + out);
+    }
+
+    private static Result measure(String name, int size, Operation operation, int warmup, int iterations,
+                                  long iterationNanos) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        Result result = new Result(name, size, iterations);
+        System.setOut(DISCARD);
+        try {
+            for (int i = -warmup; i < iterations; i++) {
+                long ops = 0;
+                long allocated = threads.getThreadAllocatedBytes(thread);
+                long start = System.nanoTime();
+                long elapsed;
+                do {
+                    operation.run();
+                    ops++;
+                    elapsed = System.nanoTime() - start;
+                } while (elapsed < iterationNanos);
+                allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+                if (i >= 0) {
+                    result.microsPerOp[i] = elapsed / 1000.0 / ops;
+                    result.bytesPerOp += (double) allocated / ops / iterations;
+                }
+            }
+        } finally {
+            System.setOut(CONSOLE);
+        }
+        return result;
+    }
+
+    private static void writeJson(Path out, List<Result> results, int warmup, int iterations,
+                                  long iterationMillis) throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int r = 0; r < results.size(); r++) {
+            Result result = results.get(r);
+            json.append("  {\n");
+            json.append("    \"benchmark\" : \"").append(result.name).append("\",\n");
+            json.append("    \"mode\" : \"avgt\",\n");
+            json.append("    \"threads\" : 1,\n");
+            json.append("    \"warmupIterations\" : ").append(warmup).append(",\n");
+            json.append("    \"measurementIterations\" : ").append(iterations).append(",\n");
+            json.append("    \"measurementTime\" : \"").append(iterationMillis).append(" ms\",\n");
+            if (result.size >= 0) {
+                json.append("    \"params\" : {\n      \"rows\" : \"").append(result.size).append("\"\n    },\n");
+            }
+            json.append("    \"primaryMetric\" : {\n");
+            json.append("      \"score\" : ").append(format(result.score())).append(",\n");
+            json.append("      \"scoreError\" : ").append(format(result.error())).append(",\n");
+            json.append("      \"scoreUnit\" : \"us/op\",\n");
+            json.append("      \"rawData\" : [[");
+            for (int i = 0; i < result.microsPerOp.length; i++) {
+                json.append(i == 0 ? "" : ", ").append(format(result.microsPerOp[i]));
+            }
+            json.append("]]\n    },\n");
+            json.append("    \"secondaryMetrics\" : {\n");
+            json.append("      \"gc.alloc.rate.norm\" : {\n");
+            json.append("        \"score\" : ").append(format(result.bytesPerOp)).append(",\n");
+            json.append("        \"scoreUnit\" : \"B/op\"\n      }\n    }\n");
+            json.append(r == results.size() - 1 ? "  }\n" : "  },\n");
+        }
+        json.append("]\n");
+        Files.write(out, json.toString().getBytes());
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static class Result {
+        final String name;
+        final int size;
+        final double[] microsPerOp;
+        double bytesPerOp;
+
+        Result(String name, int size, int iterations) {
+            this.name = name;
+            this.size = size;
+            this.microsPerOp = new double[iterations];
+        }
+
+        double score() {
+            double sum = 0;
+            for (double value : microsPerOp) {
+                sum += value;
+            }
+            return sum / microsPerOp.length;
+        }
+
+        // Half-width of a 99.9% confidence interval (normal approximation).
+        double error() {
+            if (microsPerOp.length < 2) {
+                return Double.NaN;
+            }
+            double mean = score();
+            double squares = 0;
+            for (double value : microsPerOp) {
+                squares += (value - mean) * (value - mean);
+            }
+            return 3.291 * Math.sqrt(squares / (microsPerOp.length - 1)) / Math.sqrt(microsPerOp.length);
+        }
+    }
+
+    // Deterministic fixture files, generated once per size and reused across runs.
+    static class Fixtures {
+        static String email(int i) {
+            return "user" + i + "@bench.example";
+        }
+
+        static String password(int i) {
+            return "Budget" + (i % 1000) + "pass";
+        }
+
+        // Passwords are stored hashed at the current iteration count, so logins don't
+        // rewrite the file to upgrade them. There are only 1000 distinct passwords; each is
+        // hashed once and its hash shared by every user with it.
+        static Path users(Path dir, int size) throws IOException {
+            Path users = dir.resolve("users-" + PasswordHasher.ITERATIONS + ".txt");
+            if (!Files.exists(users)) {
+                Map<String, String> hashes = new HashMap<>();
+                Path tmp = dir.resolve(users.getFileName() + ".tmp");
+                try (BufferedWriter writer = Files.newBufferedWriter(tmp)) {
+                    for (int i = 0; i < size; i++) {
+                        String hash = hashes.computeIfAbsent(password(i), PasswordHasher::hash);
+                        writer.write(new User("user" + i, email(i), hash,
+                                String.format("+20%010d", i)).toFileString());
+                        writer.newLine();
+                    }
+                }
+                Files.move(tmp, users);
+            }
+            return users;
+        }
+
+        // A fresh copy of the users fixture for one benchmark.
+        static Path users(Path dir, int size, String name) throws IOException {
+            Path copy = dir.resolve(name + "-users.txt");
+            Files.copy(users(dir, size), copy, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            return copy;
+        }
+
+        static IndexedUserStorage indexedUsers(Path dir, int size, String name) throws IOException {
+            Path index = dir.resolve(name + "-users.idx");
+            Files.deleteIfExists(index);
+            return new IndexedUserStorage(users(dir, size, name).toString(), index.toString());
+        }
+
+        // Returns the ledger prefix ("<dir>/bench") for <dir>/bench_expenses.txt and _budgets.txt.
+        static Path ledger(Path dir, int size) throws IOException {
+            Path prefix = dir.resolve("bench");
+            Path expenses = Paths.get(prefix + "_expenses.txt");
+            if (!Files.exists(expenses)) {
+                Random random = new Random(size);
+                Path tmp = Paths.get(prefix + "_expenses.txt.tmp");
+                try (BufferedWriter writer = Files.newBufferedWriter(tmp)) {
+                    for (int i = 0; i < size; i++) {
+                        double amount = (1 + random.nextInt(250_000)) / 100.0;
+                        String date = String.format("%d-%02d-%02d", 2020 + random.nextInt(6),
+                                1 + random.nextInt(12), 1 + random.nextInt(28));
+                        writer.write(new Expense(amount, CATEGORIES[random.nextInt(CATEGORIES.length)],
+                                METHODS[random.nextInt(METHODS.length)], date).toFileString());
+                        writer.newLine();
+                    }
+                }
+                Files.move(tmp, expenses);
+                try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(prefix + "_budgets.txt"))) {
+                    for (String category : CATEGORIES) {
+                        writer.write(new Budget(category, 500.0).toFileString());
+                        writer.newLine();
+                    }
+                }
+            }
+            return prefix;
+        }
+
+        static Path copyLedger(Path dir, int size, String name) throws IOException {
+            Path source = ledger(dir, size);
+            Path prefix = dir.resolve(name);
+            Files.copy(Paths.get(source + "_expenses.txt"), Paths.get(prefix + "_expenses.txt"),
+                    java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            return prefix;
+        }
+
+        static Path binaryLedger(Path dir, int size) throws IOException {
+            Path prefix = copyLedger(dir, size, "binary");
+            for (File stale : new File[]{new File(prefix + "_expenses.txt.bak"), new File(prefix + "_settings.txt")}) {
+                stale.delete();
+            }
+            BinaryLedger.convertToBinary(prefix.toString());
+            return prefix;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// LedgerKernels on the JDK's incubating Vector API: sums, range filters and deltas run a
+// full vector of rows at a time, with the scalar loop finishing the tail. Days are read
+// through an int species with as many lanes as the long species and widened to longs, so a
+// day comparison masks the matching amounts directly. Grouping by category is a scatter,
+// which stays scalar.
+// Compiled and run only with --add-modules jdk.incubator.vector; see LedgerKernels.shared().
+class VectorLedgerKernels extends ScalarLedgerKernels {
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.vectorBitSize() / 2));
+
+    public long sum(long[] cents, int size) {
+        LongVector sum = LongVector.zero(LONGS);
+        int bound = LONGS.loopBound(size);
+        int i = 0;
+        for (; i < bound; i += LONGS.length()) {
+            sum = sum.add(LongVector.fromArray(LONGS, cents, i));
+        }
+        long total = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < size; i++) {
+            total += cents[i];
+        }
+        return total;
+    }
+
+    public void sumBetween(long[] cents, int[] days, int size, int fromDay, int toDay, long[] result) {
+        LongVector sum = LongVector.zero(LONGS);
+        LongVector count = LongVector.zero(LONGS);
+        LongVector one = LongVector.broadcast(LONGS, 1);
+        int bound = LONGS.loopBound(size);
+        int i = 0;
+        for (; i < bound; i += LONGS.length()) {
+            LongVector day = (LongVector) IntVector.fromArray(INTS, days, i).convertShape(VectorOperators.I2L, LONGS, 0);
+            VectorMask<Long> in = day.compare(VectorOperators.GE, fromDay).and(day.compare(VectorOperators.LE, toDay));
+            sum = sum.add(LongVector.fromArray(LONGS, cents, i), in);
+            count = count.add(one, in);
+        }
+        long total = sum.reduceLanes(VectorOperators.ADD);
+        long rows = count.reduceLanes(VectorOperators.ADD);
+        for (; i < size; i++) {
+            if (days[i] >= fromDay && days[i] <= toDay) {
+                total += cents[i];
+                rows++;
+            }
+        }
+        result[0] = total;
+        result[1] = rows;
+    }
+
+    public void deltas(long[] series, long[] deltas) {
+        int size = series.length - 1;
+        int bound = LONGS.loopBound(Math.max(size, 0));
+        int i = 0;
+        for (; i < bound; i += LONGS.length()) {
+            LongVector.fromArray(LONGS, series, i + 1)
+                    .sub(LongVector.fromArray(LONGS, series, i))
+                    .intoArray(deltas, i);
+        }
+        for (; i < size; i++) {
+            deltas[i] = series[i + 1] - series[i];
+        }
+    }
+}
@@ -0,0 +1,7 @@
+import java.io.IOException;
+
+// Where budget alerts go. In server mode console output reaches the session that added
+// the expense.
+interface AlertSink {
+    void alert(String filename, BudgetAlerts.Alert alert) throws IOException;
+}
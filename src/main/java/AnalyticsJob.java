@@ -0,0 +1,371 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// Platform-wide numbers for operators, run as `java PersonalBudget --analytics [report]`:
+// spending per category across all users, how often budgets are overrun, and how many
+// users were active (an expense dated within the last -Danalytics.active.days days,
+// default 30). Users are read one line at a time from users.txt and handed to
+// -Danalytics.workers threads (default: CPU count). At most two users per worker are in
+// flight, so open files and memory stay bounded however many users there are. Each user's
+// numbers come from their SpendingAggregates, taken under the user lock like a login, so
+// text, binary and LSM ledgers are all handled.
+//
+// Each finished user is appended to analytics.checkpoint as one block:
+//   S,user,category,cents            spending per category
+//   U,user,line,active,budgets,overruns   (or E,user,line,message if the user failed)
+//   W,line                          every users.txt line before this one is done
+// A block counts only once its U or E line is there. An interrupted run resumes from the
+// last watermark, skipping the users after it that already finished. The checkpoint is
+// deleted once the report has been written.
+class AnalyticsJob {
+    private static final int ACTIVE_DAYS = Integer.getInteger("analytics.active.days", 30);
+    private static final int WORKERS = Integer.getInteger("analytics.workers",
+            Runtime.getRuntime().availableProcessors());
+
+    private final File users;
+    private final File checkpoint;
+    private final File report;
+    private LocalDate asOf = LocalDate.now();
+
+    // Merged over every finished user; guarded by this.
+    private final CategoryDictionary categories = new CategoryDictionary();
+    private long[] spent = new long[16];
+    private long[] spenders = new long[16];
+    private long userCount;
+    private long activeUsers;
+    private long budgetedUsers;
+    private long overBudgetUsers;
+    private long budgetCount;
+    private long overrunCount;
+    private long failedUsers;
+    private final SpendingSketches sketches = new SpendingSketches();
+
+    // users.txt lines in flight, and finished lines past the watermark from an earlier run.
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private final Set<Long> finished = new HashSet<>();
+    private long watermark;
+    private long nextLine;
+    private Writer log;
+
+    public AnalyticsJob(File users, File checkpoint, File report) {
+        this.users = users;
+        this.checkpoint = checkpoint;
+        this.report = report;
+    }
+
+    public void run() throws IOException, InterruptedException {
+        boolean resumed = checkpoint.exists();
+        if (resumed) {
+            resume();
+        }
+        log = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(checkpoint, true), Charset.defaultCharset()));
+        try {
+            if (!resumed) {
+                log.write("#," + asOf + System.lineSeparator());
+                log.flush();
+            }
+            process();
+        } finally {
+            log.close();
+        }
+        writeReport();
+        Files.deleteIfExists(checkpoint.toPath());
+        System.out.println("Analytics for " + userCount + " users written to " + report
+                + (resumed ? " (resumed from checkpoint)." : "."));
+    }
+
+    private void process() throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(WORKERS, task -> {
+            Thread thread = new Thread(task, "analytics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore slots = new Semaphore(WORKERS * 2);
+        long[] line = {0};
+        try {
+            if (users.exists()) {
+                LedgerReader.read(users, row -> {
+                    long number = line[0]++;
+                    if (number < watermark || finished.contains(number) || row.fieldCount() < 2) {
+                        return;
+                    }
+                    String filename = row.text(1).replaceAll("[^a-zA-Z0-9]", "_");
+                    try {
+                        slots.acquire();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException("Analytics interrupted.");
+                    }
+                    synchronized (this) {
+                        inFlight.add(number);
+                    }
+                    pool.execute(() -> {
+                        try {
+                            finish(number, block(filename, number));
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                });
+            }
+            synchronized (this) {
+                nextLine = line[0];
+            }
+            slots.acquire(WORKERS * 2);
+        } finally {
+            pool.shutdownNow();
+        }
+        synchronized (this) {
+            writeLog("W," + nextLine + System.lineSeparator());
+        }
+    }
+
+    // One user's checkpoint block. Reads the ledgers under the user lock; nothing shared
+    // is touched here.
+    private String block(String filename, long number) {
+        StringBuilder out = new StringBuilder();
+        String newline = System.lineSeparator();
+        try {
+            if (!hasLedgers(filename)) {
+                return "U," + filename + "," + number + ",0,0,0" + newline;
+            }
+            UserLocks.run(filename, () -> {
+                try {
+                    CategoryTotals totals = SpendingAggregates.load(filename).getTotals();
+                    CategoryDictionary names = totals.categories();
+                    int budgets = 0;
+                    int overruns = 0;
+                    for (int id = 0; id < names.size(); id++) {
+                        if (totals.hasSpending(id)) {
+                            out.append("S,").append(filename).append(',').append(names.name(id))
+                                    .append(',').append(totals.spentCents(id)).append(newline);
+                        }
+                        if (totals.hasBudget(id)) {
+                            budgets++;
+                            if (totals.spentCents(id) > totals.budgetCents(id)) {
+                                overruns++;
+                            }
+                        }
+                    }
+                    // The user's statistics over all months, merged into the platform's in apply().
+                    StringBuilder merged = new StringBuilder();
+                    SpendingSketchStore.load(filename).merged(null, null).write(merged);
+                    for (String line : merged.toString().split("\\R")) {
+                        out.append("K,").append(line).append(newline);
+                    }
+                    out.append("U,").append(filename).append(',').append(number).append(',')
+                            .append(isActive(filename) ? 1 : 0).append(',').append(budgets)
+                            .append(',').append(overruns).append(newline);
+                } finally {
+                    if (LedgerStorage.isLsm(filename) && !Dashboard.isLoggedIn(filename)) {
+                        LsmStore.close(LsmLedgerStorage.directory(filename));
+                    }
+                }
+            });
+            return out.toString();
+        } catch (IOException | RuntimeException e) {
+            return "E," + filename + "," + number + "," + String.valueOf(e.getMessage()).replace('\n', ' ') + newline;
+        }
+    }
+
+    private synchronized void finish(long number, String block) {
+        inFlight.remove(number);
+        apply(block.split("\\R"));
+        long done = inFlight.isEmpty() ? number + 1 : inFlight.first();
+        if (done > watermark) {
+            watermark = done;
+        }
+        writeLog(block + "W," + watermark + System.lineSeparator());
+    }
+
+    private void writeLog(String text) {
+        try {
+            log.write(text);
+            log.flush();
+        } catch (IOException e) {
+            // The report is still produced; only resuming from this point is lost.
+            System.err.println("Error writing analytics checkpoint: " + e.getMessage());
+        }
+    }
+
+    private static boolean hasLedgers(String filename) {
+        return new File(filename + "_expenses.txt").exists() || new File(filename + "_budgets.txt").exists()
+                || BinaryLedger.exists(filename) || LsmLedgerStorage.directory(filename).toFile().exists();
+    }
+
+    // Whether any expense is dated within the activity window; stops at the first one.
+    private boolean isActive(String filename) throws IOException {
+        try {
+            DetailedReport.rowsBetween(filename, asOf.minusDays(ACTIVE_DAYS - 1), asOf, new PageSink(null, 0, 0));
+            return false;
+        } catch (PageSink.Full found) {
+            return true;
+        }
+    }
+
+    // Folds one finished user's block into the platform totals.
+    private void apply(String[] block) {
+        SpendingSketches user = new SpendingSketches();
+        for (String line : block) {
+            String[] parts = line.split(",", -1);
+            if (parts[0].equals("K")) {
+                user.read(line.substring(2));
+            } else if (parts[0].equals("S") && parts.length == 4) {
+                int id = categories.id(parts[2]);
+                if (id >= spent.length) {
+                    spent = Arrays.copyOf(spent, Math.max(id + 1, spent.length * 2));
+                    spenders = Arrays.copyOf(spenders, spent.length);
+                }
+                spent[id] += Long.parseLong(parts[3]);
+                spenders[id]++;
+            } else if (parts[0].equals("U") && parts.length == 6) {
+                int budgets = Integer.parseInt(parts[4]);
+                int overruns = Integer.parseInt(parts[5]);
+                userCount++;
+                activeUsers += Integer.parseInt(parts[3]);
+                budgetCount += budgets;
+                overrunCount += overruns;
+                budgetedUsers += budgets > 0 ? 1 : 0;
+                overBudgetUsers += overruns > 0 ? 1 : 0;
+            } else if (parts[0].equals("E")) {
+                userCount++;
+                failedUsers++;
+            }
+        }
+        sketches.merge(user);
+    }
+
+    // Replays the finished blocks of an interrupted run. A torn last block has no U or E
+    // line and is dropped; its user runs again.
+    private void resume() throws IOException {
+        List<String> block = new ArrayList<>();
+        List<Long> done = new ArrayList<>();
+        long[] blockStart = {0};
+        long complete = completeLength(checkpoint);
+        LedgerReader.read(checkpoint, row -> {
+            String line = row.text();
+            if (row.offset() >= complete) {
+                // Unterminated last line, cut off mid-write.
+                if (block.isEmpty()) {
+                    blockStart[0] = row.offset();
+                }
+                block.add(line);
+                return;
+            }
+            if (line.isEmpty()) {
+                return;
+            }
+            String type = row.text(0);
+            if (type.equals("#")) {
+                asOf = LocalDate.parse(row.text(1));
+            } else if (type.equals("W")) {
+                watermark = Math.max(watermark, Long.parseLong(row.text(1)));
+            } else {
+                if (block.isEmpty()) {
+                    blockStart[0] = row.offset();
+                }
+                block.add(line);
+                if (type.equals("U") || type.equals("E")) {
+                    apply(block.toArray(new String[0]));
+                    block.clear();
+                    done.add(Long.parseLong(row.text(2)));
+                }
+            }
+        });
+        for (long line : done) {
+            if (line >= watermark) {
+                finished.add(line);
+            }
+        }
+        if (!block.isEmpty()) {
+            // Cut the torn block off so its lines don't end up inside the next block.
+            try (FileChannel channel = FileChannel.open(checkpoint.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(blockStart[0]);
+            }
+        }
+    }
+
+    // Length up to and including the last line break.
+    private static long completeLength(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            for (long at = channel.size() - 1; at >= 0; at--) {
+                last.clear();
+                channel.read(last, at);
+                byte b = last.get(0);
+                if (b == '\n' || b == '\r') {
+                    return at + 1;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private synchronized void writeReport() throws IOException {
+        Integer[] order = new Integer[categories.size()];
+        for (int id = 0; id < order.length; id++) {
+            order[id] = id;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(spent[b], spent[a]));
+
+        File tmp = new File(report.getPath() + ".tmp");
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(tmp))) {
+            out.write("Platform Analytics (as of " + asOf + ")");
+            out.newLine();
+            out.write("- Users: " + userCount + (failedUsers > 0 ? " (" + failedUsers + " could not be read)" : ""));
+            out.newLine();
+            out.write("- Active in the last " + ACTIVE_DAYS + " days: " + activeUsers + " (" + percent(activeUsers, userCount) + ")");
+            out.newLine();
+            out.write("- Users over budget: " + overBudgetUsers + " of " + budgetedUsers + " with budgets ("
+                    + percent(overBudgetUsers, budgetedUsers) + ")");
+            out.newLine();
+            out.write("- Budgets overrun: " + overrunCount + " of " + budgetCount + " (" + percent(overrunCount, budgetCount) + ")");
+            out.newLine();
+            if (sketches.count() > 0) {
+                out.write("- Transaction size: " + StatisticsReport.percentiles(sketches.amounts()));
+                out.newLine();
+                StringBuilder top = new StringBuilder("- Top payment methods:");
+                HeavyHitters methods = sketches.methods();
+                for (int slot : methods.top(StatisticsReport.TOP)) {
+                    top.append(top.charAt(top.length() - 1) == ':' ? " " : ", ")
+                            .append(methods.name(slot)).append(" $").append(CategoryTotals.format(methods.weight(slot)));
+                }
+                out.write(top.toString());
+                out.newLine();
+            }
+            out.newLine();
+            out.write(String.format("%-20s\t%14s\t%s", "Category", "Spent", "Users"));
+            out.newLine();
+            for (int id : order) {
+                out.write(String.format("%-20s\t%14s\t%d", categories.name(id), "$" + CategoryTotals.format(spent[id]), spenders[id]));
+                out.newLine();
+            }
+        }
+        Files.move(tmp.toPath(), report.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String percent(long part, long whole) {
+        return whole == 0 ? "n/a" : String.format("%.1f%%", 100.0 * part / whole);
+    }
+}
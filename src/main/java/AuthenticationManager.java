@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+class AuthenticationManager {
+    private static final Metrics.Timer SIGNUP = Metrics.timer("auth.signup");
+    private static final Metrics.Timer LOGIN = Metrics.timer("auth.login");
+    private static final Metrics.Counter LOGIN_FAILED = Metrics.counter("auth.login.failed");
+    private static final Metrics.Counter REJECTED = Metrics.counter("auth.rejected");
+
+    private final UserStorage storage;
+    private final UserValidator validator;
+    private final CredentialVerifier verifier;
+    private final OTPService otps;
+    private final LoginRateLimiter limiter;
+
+    public AuthenticationManager(UserStorage storage, UserValidator validator) {
+        this(storage, validator, new CredentialVerifier());
+    }
+
+    public AuthenticationManager(UserStorage storage, UserValidator validator, CredentialVerifier verifier) {
+        this(storage, validator, verifier, OTPService.shared(), new LoginRateLimiter());
+    }
+
+    public AuthenticationManager(UserStorage storage, UserValidator validator, CredentialVerifier verifier,
+                                 OTPService otps, LoginRateLimiter limiter) {
+        this.storage = storage;
+        this.validator = validator;
+        this.verifier = verifier;
+        this.otps = otps;
+        this.limiter = limiter;
+    }
+
+    public CredentialVerifier getVerifier() {
+        return verifier;
+    }
+
+    public LoginRateLimiter getLimiter() {
+        return limiter;
+    }
+
+    // The OTP is read through the given prompt, so server sessions can ask their own client.
+    // A wrong code may be retried until the service locks it; "resend" asks for a new one.
+    public void signUp(String username, String email, String password, String phone,
+                       Prompt prompt) throws IOException {
+        if (!canRegister(email, password, phone) || !sendCode(email)) {
+            return;
+        }
+        while (true) {
+            String enteredOtp = prompt.ask("Enter the OTP sent to your email (or \"resend\"): ");
+            if (enteredOtp.trim().equalsIgnoreCase("resend")) {
+                sendCode(email);
+                continue;
+            }
+            OTPService.Result result = otps.verify(email, enteredOtp);
+            if (result == OTPService.Result.VERIFIED) {
+                break;
+            }
+            if (result != OTPService.Result.WRONG) {
+                System.out.println(otpFailure(result));
+                return;
+            }
+            System.out.println("Invalid OTP. Please try again.");
+        }
+        register(username, email, password, phone);
+    }
+
+    // Out-of-band verification: the code was sent earlier by requestOTP, so nothing blocks
+    // waiting for the user to read it.
+    public void signUp(String username, String email, String password, String phone,
+                       String otp) throws IOException {
+        if (!canRegister(email, password, phone)) {
+            return;
+        }
+        OTPService.Result result = otps.verify(email, otp);
+        if (result != OTPService.Result.VERIFIED) {
+            System.out.println(otpFailure(result));
+            return;
+        }
+        register(username, email, password, phone);
+    }
+
+    public void requestOTP(String email) throws IOException {
+        if (!validator.isValidEmail(email)) {
+            System.out.println("Invalid email format.");
+            return;
+        }
+        if (storage.isEmailExists(email)) {
+            System.out.println("Email already exists. Please log in.");
+            return;
+        }
+        sendCode(email);
+    }
+
+    private boolean canRegister(String email, String password, String phone) throws IOException {
+        if (!validator.isValidEmail(email)) {
+            System.out.println("Invalid email format.");
+            return false;
+        }
+        if (!validator.isValidPassword(password)) {
+            System.out.println("Password must be 8-16 characters, include uppercase, lowercase, and number.");
+            return false;
+        }
+        if (!validator.isValidPhone(phone)) {
+            System.out.println("Invalid phone number format.");
+            return false;
+        }
+        if (storage.isEmailExists(email)) {
+            System.out.println("Email already exists. Please log in.");
+            return false;
+        }
+        return true;
+    }
+
+    // Issues a code and waits for it to be handed to the channel; false if none was sent.
+    private boolean sendCode(String email) throws IOException {
+        CompletableFuture<Void> delivery;
+        try {
+            delivery = otps.issue(email);
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+            return false;
+        }
+        try {
+            delivery.join();
+            return true;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                System.out.println("Too many sign-ups in progress. Please try again shortly.");
+                return false;
+            }
+            System.out.println("Could not send the OTP. Please try again.");
+            return false;
+        }
+    }
+
+    private static String otpFailure(OTPService.Result result) {
+        switch (result) {
+            case WRONG:
+                return "Invalid OTP. Check the code and try again.";
+            case LOCKED:
+                return "Too many invalid OTP attempts. Registration canceled.";
+            default:
+                return "OTP expired or not requested. Registration canceled.";
+        }
+    }
+
+    private void register(String username, String email, String password, String phone) throws IOException {
+        // Timed from here: what comes before waits on the user typing the OTP.
+        long start = Metrics.start();
+        String hashed = await(verifier.submit(() -> PasswordHasher.hash(password)).exceptionally(e -> {
+            rejected(e);
+            return null;
+        }));
+        if (hashed == null) {
+            return;
+        }
+        User user = new User(username, email, hashed, phone);
+        storage.saveUser(user);
+        SIGNUP.stop(start);
+        System.out.println("User registered successfully! You are now logged in.");
+        redirectToDashboard();
+    }
+
+    public boolean login(String email, String password) throws IOException {
+        return login(email, password, "local");
+    }
+
+    // The source is where the attempt came from (the client address in server mode); it
+    // is rate-limited alongside the email.
+    public boolean login(String email, String password, String source) throws IOException {
+        return await(loginAsync(email, password, source));
+    }
+
+    public CompletableFuture<Boolean> loginAsync(String email, String password) {
+        return loginAsync(email, password, "local");
+    }
+
+    // Verifies on the credential pool; completes with false when the pool is saturated or
+    // the limiter turns the attempt away, which it does before touching the pool.
+    public CompletableFuture<Boolean> loginAsync(String email, String password, String source) {
+        String refused = limiter.admit(email, source);
+        if (refused != null) {
+            LOGIN_FAILED.increment();
+            System.out.println(refused);
+            return CompletableFuture.completedFuture(false);
+        }
+        long start = Metrics.start();
+        return verifier.submit(() -> {
+            if (storage.login(email, password)) {
+                limiter.succeeded(email);
+                System.out.println("Login successful!");
+                redirectToDashboard();
+                return true;
+            } else {
+                limiter.failed(email);
+                LOGIN_FAILED.increment();
+                System.out.println("Login failed. Check your credentials.");
+                return false;
+            }
+        }).exceptionally(e -> {
+            rejected(e);
+            return false;
+        }).whenComplete((result, e) -> LOGIN.stop(start));
+    }
+
+    // Reports a saturated pool to the user; any other failure is rethrown.
+    private static void rejected(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RejectedExecutionException) {
+            REJECTED.increment();
+            System.out.println("Too many logins in progress. Please try again shortly.");
+            return;
+        }
+        throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private void redirectToDashboard() {
+        System.out.println("Redirecting to dashboard...");
+    }
+}
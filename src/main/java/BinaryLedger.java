@@ -0,0 +1,293 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+// Fixed-width columnar alternative to <user>_expenses.txt. Each column lives in its own
+// file so readers can map it and scan contiguous primitives:
+//   .amount   double per row
+//   .category int dictionary id per row
+//   .method   int dictionary id per row
+//   .day      int epoch-day per row (or NON_DATE + dictionary id when the date isn't YYYY-MM-DD)
+// Category, payment-method and odd date strings share the .dict file, one name per line.
+class BinaryLedger {
+    public static final String FORMAT_KEY = "ledger.format";
+    private static final int NON_DATE = Integer.MIN_VALUE;
+    private static final String[] COLUMNS = {"amount", "category", "method", "day"};
+    private static final int[] WIDTHS = {8, 4, 4, 4};
+
+    private final List<String> names;
+    private final DoubleBuffer amounts;
+    private final IntBuffer categories;
+    private final IntBuffer methods;
+    private final IntBuffer days;
+    private final int rows;
+
+    private BinaryLedger(List<String> names, ByteBuffer[] columns, int rows) {
+        this.names = names;
+        this.amounts = columns[0].asDoubleBuffer();
+        this.categories = columns[1].asIntBuffer();
+        this.methods = columns[2].asIntBuffer();
+        this.days = columns[3].asIntBuffer();
+        this.rows = rows;
+    }
+
+    public static boolean isEnabled(String filename) throws IOException {
+        return UserSettings.get(filename, FORMAT_KEY, "text").equals("binary");
+    }
+
+    public static boolean exists(String filename) {
+        return new File(filename + "_expenses.amount").exists();
+    }
+
+    public static BinaryLedger open(String filename) throws IOException {
+        List<String> names = readNames(filename);
+        int rows = committedRows(filename);
+        ByteBuffer[] columns = new ByteBuffer[COLUMNS.length];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            File file = column(filename, c);
+            if (!file.exists()) {
+                columns[c] = ByteBuffer.allocate(0);
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                columns[c] = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) rows * WIDTHS[c]);
+            }
+        }
+        return new BinaryLedger(names, columns, rows);
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public DoubleBuffer amounts() {
+        return amounts.duplicate();
+    }
+
+    public double amount(int row) {
+        return amounts.get(row);
+    }
+
+    public int category(int row) {
+        return categories.get(row);
+    }
+
+    public int method(int row) {
+        return methods.get(row);
+    }
+
+    public String name(int id) {
+        return names.get(id);
+    }
+
+    public String date(int row) {
+        int day = days.get(row);
+        if (day < 0 && day - NON_DATE < names.size()) {
+            return names.get(day - NON_DATE);
+        }
+        return LocalDate.ofEpochDay(day).toString();
+    }
+
+    // The row's epoch day, or LedgerLine.NOT_A_DATE when its date isn't YYYY-MM-DD.
+    public int day(int row) {
+        int day = days.get(row);
+        return day < 0 && day - NON_DATE < names.size() ? LedgerLine.NOT_A_DATE : day;
+    }
+
+    public Expense expense(int row) {
+        return new Expense(amount(row), name(category(row)), name(method(row)), date(row));
+    }
+
+    // Rows dated within [from, to], in row order.
+    public int[] rowsBetween(LocalDate from, LocalDate to) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        int[] matches = new int[16];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            int day = days.get(row);
+            if (day < 0 && day - NON_DATE < names.size()) {
+                continue;
+            }
+            if (day >= fromDay && day <= toDay) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, count * 2);
+                }
+                matches[count++] = row;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    public static void append(String filename, Expense expense) throws IOException {
+        List<Expense> batch = new ArrayList<>();
+        batch.add(expense);
+        append(filename, batch);
+    }
+
+    public static void append(String filename, List<Expense> expenses) throws IOException {
+        List<String> names = readNames(filename);
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            ids.putIfAbsent(names.get(i), i);
+        }
+
+        ByteBuffer[] columns = new ByteBuffer[COLUMNS.length];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            columns[c] = ByteBuffer.allocate(expenses.size() * WIDTHS[c]);
+        }
+        BufferedWriter dict = new BufferedWriter(new FileWriter(filename + "_expenses.dict", true));
+        for (Expense e : expenses) {
+            columns[0].putDouble(e.getAmount());
+            columns[1].putInt(intern(e.getCategory(), names, ids, dict));
+            columns[2].putInt(intern(e.getPaymentMethod(), names, ids, dict));
+            columns[3].putInt(encodeDate(e.getDate(), names, ids, dict));
+        }
+        dict.close();
+
+        // Columns are written amount-last, so a torn append is simply not counted as a row;
+        // trim every column back to the committed row count before adding to it.
+        int rows = committedRows(filename);
+        for (int c = COLUMNS.length - 1; c >= 0; c--) {
+            try (FileChannel channel = FileChannel.open(column(filename, c).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                long offset = (long) rows * WIDTHS[c];
+                channel.truncate(offset);
+                columns[c].flip();
+                while (columns[c].hasRemaining()) {
+                    offset += channel.write(columns[c], offset);
+                }
+            }
+        }
+    }
+
+    // Rewrites <user>_expenses.txt as a binary ledger and switches the user to it. Lines
+    // that every reader already skips (not four fields, or an unreadable amount) are not
+    // carried over; the text file is kept as <user>_expenses.txt.bak.
+    public static int convertToBinary(String filename) throws IOException {
+        File text = new File(filename + "_expenses.txt");
+        LedgerAppender.close(text.getPath());
+        deleteColumns(filename);
+        List<Expense> batch = new ArrayList<>();
+        int[] converted = {0};
+        if (text.exists()) {
+            LedgerReader.read(text, line -> {
+                if (line.fieldCount() != 4) {
+                    return;
+                }
+                try {
+                    batch.add(new Expense(line.parseDouble(0), line.text(1), line.text(2), line.text(3)));
+                } catch (NumberFormatException e) {
+                    return;
+                }
+                if (batch.size() == 4096) {
+                    append(filename, batch);
+                    converted[0] += batch.size();
+                    batch.clear();
+                }
+            });
+        }
+        append(filename, batch);
+        converted[0] += batch.size();
+        UserSettings.set(filename, FORMAT_KEY, "binary");
+        if (text.exists()) {
+            Files.move(text.toPath(), Paths.get(filename + "_expenses.txt.bak"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        DateIndex.invalidate(text);
+        return converted[0];
+    }
+
+    // Writes the binary ledger back out as <user>_expenses.txt and switches the user to it.
+    public static int convertToText(String filename) throws IOException {
+        BinaryLedger ledger = open(filename);
+        LedgerAppender.close(filename + "_expenses.txt");
+        File tmp = new File(filename + "_expenses.txt.tmp");
+        BufferedWriter writer = new BufferedWriter(new FileWriter(tmp));
+        for (int row = 0; row < ledger.size(); row++) {
+            writer.write(ledger.expense(row).toFileString());
+            writer.newLine();
+        }
+        writer.close();
+        Files.move(tmp.toPath(), Paths.get(filename + "_expenses.txt"),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        DateIndex.invalidate(new File(filename + "_expenses.txt"));
+        UserSettings.set(filename, FORMAT_KEY, "text");
+        deleteColumns(filename);
+        return ledger.size();
+    }
+
+    private static int intern(String name, List<String> names, Map<String, Integer> ids,
+                              BufferedWriter dict) throws IOException {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+            dict.write(name);
+            dict.newLine();
+        }
+        return id;
+    }
+
+    private static int encodeDate(String date, List<String> names, Map<String, Integer> ids,
+                                  BufferedWriter dict) throws IOException {
+        try {
+            LocalDate parsed = LocalDate.parse(date);
+            if (parsed.toString().equals(date)) {
+                return (int) parsed.toEpochDay();
+            }
+        } catch (DateTimeParseException e) {
+            // Not a plain YYYY-MM-DD date; stored verbatim through the dictionary.
+        }
+        return NON_DATE + intern(date, names, ids, dict);
+    }
+
+    private static List<String> readNames(String filename) throws IOException {
+        List<String> names = new ArrayList<>();
+        File dict = new File(filename + "_expenses.dict");
+        if (dict.exists()) {
+            try (Scanner scan = new Scanner(dict)) {
+                while (scan.hasNextLine()) {
+                    names.add(scan.nextLine());
+                }
+            }
+        }
+        return names;
+    }
+
+    private static int committedRows(String filename) {
+        long rows = Long.MAX_VALUE;
+        for (int c = 0; c < COLUMNS.length; c++) {
+            rows = Math.min(rows, column(filename, c).length() / WIDTHS[c]);
+        }
+        return (int) rows;
+    }
+
+    private static void deleteColumns(String filename) throws IOException {
+        for (int c = 0; c < COLUMNS.length; c++) {
+            Files.deleteIfExists(column(filename, c).toPath());
+        }
+        Files.deleteIfExists(Paths.get(filename + "_expenses.dict"));
+    }
+
+    private static File column(String filename, int c) {
+        return new File(filename + "_expenses." + COLUMNS[c]);
+    }
+}
@@ -0,0 +1,25 @@
+class Budget {
+    private String category;
+    private double amount;
+
+    public Budget(String category, double amount) {
+        this.category = category;
+        this.amount = amount;
+    }
+
+    public String toFileString() {
+        return category + "," + amount;
+    }
+
+    public void displayBudget() {
+        System.out.println("Category: " + category + ", Budget: $" + amount);
+    }
+
+    public static boolean isValidCategory(String category) {
+        return category != null && category.length() >= 3 && category.length() <= 50;
+    }
+
+    public static boolean isValidAmount(double amount) {
+        return amount > 0;
+    }
+}
@@ -0,0 +1,352 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+// Budget alerts raised as expenses are written. Per category, the spending of the last
+// RING days is kept in a ring of daily cents, with running sums for the 7 and 30 days
+// ending at the category's latest expense date. A budget is taken as the category's limit
+// for 30 days and prorated to 7 days and to one day; when an expense takes one of those
+// windows from within its limit to over it, an Alert goes to the sink (-Dalerts.sink:
+// console, the default, or outbox). Each expense costs a dictionary lookup and a few array
+// updates; expenses dated before the 30-day window are outside every window and ignored.
+// Like SpendingAggregates, the state is stored in <user>_alertwindows.txt with how far
+// the expense ledger has been read, so a restart only folds in what was appended since.
+// Because of that the snapshot may lag: it is rewritten at most every
+// -Dalerts.checkpoint.interval ms (default 1000) and on logout, and whatever it misses is
+// replayed on load.
+// Expenses that arrive any other way than through addExpense (imports, conversions, a
+// rebuilt ledger) are folded in silently.
+class BudgetAlerts {
+    private static final int RING = 32;
+    private static final int NO_DAY = Integer.MIN_VALUE;
+    private static final long CHECKPOINT_INTERVAL = Long.getLong("alerts.checkpoint.interval", 1000);
+    private static AlertSink sink = System.getProperty("alerts.sink", "console").equals("outbox")
+            ? new OutboxAlertSink() : new ConsoleAlertSink();
+
+    enum Window {
+        DAY(1, "daily"), WEEK(7, "weekly"), MONTH(30, "monthly");
+
+        final int days;
+        final String label;
+
+        Window(int days, String label) {
+            this.days = days;
+            this.label = label;
+        }
+
+        // The budget's share for this window, rounded to the cent.
+        long limit(long budgetCents) {
+            return (budgetCents * days + MONTH.days / 2) / MONTH.days;
+        }
+    }
+
+    static final class Alert {
+        final String category;
+        final Window window;
+        final long spentCents;
+        final long limitCents;
+        final int day;
+
+        Alert(String category, Window window, long spentCents, long limitCents, int day) {
+            this.category = category;
+            this.window = window;
+            this.spentCents = spentCents;
+            this.limitCents = limitCents;
+            this.day = day;
+        }
+
+        String message() {
+            String period = window == Window.DAY ? "on " + LocalDate.ofEpochDay(day)
+                    : "in the " + window.days + " days to " + LocalDate.ofEpochDay(day);
+            return category + ": $" + CategoryTotals.format(spentCents) + " spent " + period
+                    + ", over the " + window.label + " limit of $" + CategoryTotals.format(limitCents) + ".";
+        }
+
+        String toFileString() {
+            return LocalDate.ofEpochDay(day) + "," + category + "," + window.label + ","
+                    + CategoryTotals.format(spentCents) + "," + CategoryTotals.format(limitCents);
+        }
+    }
+
+    private final String filename;
+    private CategoryDictionary categories;
+    private long[][] rings;
+    private int[] heads;
+    private long[] weeks;
+    private long[] months;
+    private String format;
+    private long expensesLength;
+    private long savedLength;
+    private long savedAt;
+    // Set while folding in a single addExpense; null while catching up silently.
+    private CategoryTotals budgets;
+    private final List<Alert> raised = new ArrayList<>();
+
+    private BudgetAlerts(String filename) {
+        this.filename = filename;
+        clear();
+    }
+
+    public static BudgetAlerts load(String filename) throws IOException {
+        BudgetAlerts alerts = new BudgetAlerts(filename);
+        alerts.readSnapshot();
+        alerts.catchUp();
+        return alerts;
+    }
+
+    public static synchronized void setSink(AlertSink alertSink) {
+        sink = alertSink;
+    }
+
+    private static synchronized AlertSink sink() {
+        return sink;
+    }
+
+    // Folds in the expenses appended since the last update, checking each against the
+    // budgets in `totals`, and sends any alerts raised. Called under the user lock right
+    // after an expense was written.
+    public void update(CategoryTotals totals) throws IOException {
+        budgets = totals;
+        try {
+            fold(true);
+        } finally {
+            budgets = null;
+        }
+        AlertSink target = sink();
+        for (Alert alert : raised) {
+            target.alert(filename, alert);
+        }
+        raised.clear();
+    }
+
+    // Folds in appended expenses without raising alerts.
+    public void catchUp() throws IOException {
+        fold(true);
+        raised.clear();
+    }
+
+    private void fold(boolean reload) throws IOException {
+        LedgerStorage storage = LedgerStorage.forUser(filename);
+        String current = BinaryLedger.isEnabled(filename) ? "binary"
+                : storage instanceof LsmLedgerStorage ? "lsm" : "text";
+        if (!current.equals(format)) {
+            // Converted since the last read; positions mean something else now.
+            budgets = null;
+            clear();
+            format = current;
+        }
+        long end = format.equals("binary")
+                ? readBinary(expensesLength)
+                : storage.read(LedgerStorage.Ledger.EXPENSES, expensesLength, this::applyExpense);
+        if (end < 0) {
+            budgets = null;
+            if (reload) {
+                readSnapshot();
+            } else {
+                clear();
+                format = current;
+            }
+            fold(false);
+            return;
+        }
+        expensesLength = end;
+        if (expensesLength != savedLength && System.currentTimeMillis() - savedAt >= CHECKPOINT_INTERVAL) {
+            save();
+        }
+    }
+
+    // Writes the snapshot if it is behind. Called under the user lock.
+    public void checkpoint() throws IOException {
+        if (expensesLength != savedLength) {
+            save();
+        }
+    }
+
+    private void applyExpense(LedgerLine line) {
+        if (line.fieldCount() != 4) {
+            return;
+        }
+        int day = line.epochDay(3);
+        if (day == LedgerLine.NOT_A_DATE) {
+            return;
+        }
+        long cents;
+        try {
+            cents = CategoryTotals.toCents(line.parseDouble(0));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        add(categories.id(line, 1), day, cents);
+    }
+
+    // Binary ledgers are tracked by the byte length of their amount column.
+    private long readBinary(long from) throws IOException {
+        BinaryLedger ledger = BinaryLedger.open(filename);
+        long end = (long) ledger.size() * Double.BYTES;
+        if (end < from) {
+            return -1;
+        }
+        for (int row = (int) (from / Double.BYTES); row < ledger.size(); row++) {
+            int day = ledger.day(row);
+            if (day != LedgerLine.NOT_A_DATE) {
+                add(categories.id(ledger.name(ledger.category(row))), day, CategoryTotals.toCents(ledger.amount(row)));
+            }
+        }
+        return end;
+    }
+
+    private void add(int id, int day, long cents) {
+        ensure(id);
+        long[] ring = rings[id];
+        if (heads[id] == NO_DAY || day - heads[id] >= Window.MONTH.days) {
+            Arrays.fill(ring, 0);
+            weeks[id] = 0;
+            months[id] = 0;
+            heads[id] = day;
+        }
+        while (heads[id] < day) {
+            // Slide one day: the oldest day of each window drops out, the new day starts at 0.
+            int head = heads[id];
+            weeks[id] -= ring[slot(head - Window.WEEK.days + 1)];
+            months[id] -= ring[slot(head - Window.MONTH.days + 1)];
+            ring[slot(head + 1)] = 0;
+            heads[id] = head + 1;
+        }
+        int head = heads[id];
+        if (day <= head - Window.MONTH.days) {
+            return;
+        }
+        ring[slot(day)] += cents;
+        months[id] += cents;
+        if (day > head - Window.WEEK.days) {
+            weeks[id] += cents;
+        }
+        if (budgets != null) {
+            check(id, day, cents);
+        }
+    }
+
+    private void check(int id, int day, long cents) {
+        String category = categories.name(id);
+        int budgetId = budgets.categories().find(category);
+        if (budgetId < 0 || !budgets.hasBudget(budgetId)) {
+            return;
+        }
+        long budget = budgets.budgetCents(budgetId);
+        int head = heads[id];
+        raise(category, Window.DAY, rings[id][slot(day)], cents, budget, day);
+        if (day > head - Window.WEEK.days) {
+            raise(category, Window.WEEK, weeks[id], cents, budget, head);
+        }
+        raise(category, Window.MONTH, months[id], cents, budget, head);
+    }
+
+    private void raise(String category, Window window, long spent, long cents, long budget, int day) {
+        long limit = window.limit(budget);
+        if (spent > limit && spent - cents <= limit) {
+            raised.add(new Alert(category, window, spent, limit, day));
+        }
+    }
+
+    private static int slot(int day) {
+        return Math.floorMod(day, RING);
+    }
+
+    private void ensure(int id) {
+        if (id < heads.length) {
+            return;
+        }
+        int size = Math.max(id + 1, heads.length * 2);
+        int old = heads.length;
+        rings = Arrays.copyOf(rings, size);
+        heads = Arrays.copyOf(heads, size);
+        weeks = Arrays.copyOf(weeks, size);
+        months = Arrays.copyOf(months, size);
+        for (int i = old; i < size; i++) {
+            rings[i] = new long[RING];
+            heads[i] = NO_DAY;
+        }
+    }
+
+    private void clear() {
+        categories = new CategoryDictionary();
+        rings = new long[0][];
+        heads = new int[0];
+        weeks = new long[0];
+        months = new long[0];
+        format = "";
+        expensesLength = 0;
+        savedLength = -1;
+        ensure(15);
+    }
+
+    // Replaces the in-memory state with <user>_alertwindows.txt, or clears it when that
+    // file is missing or unreadable. Lines are "#,format,length" and, per category,
+    // "W,category,head,cents" with the cents of the 30 days ending at head, newest first.
+    private void readSnapshot() throws IOException {
+        clear();
+        File file = new File(filename + "_alertwindows.txt");
+        if (!file.exists()) {
+            return;
+        }
+        try (Scanner scan = new Scanner(file)) {
+            while (scan.hasNextLine()) {
+                String[] parts = scan.nextLine().split(",");
+                if (parts[0].equals("#") && parts.length == 3) {
+                    format = parts[1];
+                    expensesLength = Long.parseLong(parts[2]);
+                    savedLength = expensesLength;
+                } else if (parts[0].equals("W") && parts.length == 3 + Window.MONTH.days) {
+                    int id = categories.id(parts[1]);
+                    int head = Integer.parseInt(parts[2]);
+                    ensure(id);
+                    heads[id] = head;
+                    for (int back = 0; back < Window.MONTH.days; back++) {
+                        long cents = Long.parseLong(parts[3 + back]);
+                        rings[id][slot(head - back)] = cents;
+                        months[id] += cents;
+                        if (back < Window.WEEK.days) {
+                            weeks[id] += cents;
+                        }
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            clear();
+        }
+    }
+
+    private void save() throws IOException {
+        File tmp = new File(filename + "_alertwindows.txt.tmp");
+        BufferedWriter writer = new BufferedWriter(new FileWriter(tmp));
+        writer.write("#," + format + "," + expensesLength);
+        writer.newLine();
+        StringBuilder line = new StringBuilder();
+        for (int id = 0; id < categories.size(); id++) {
+            if (heads[id] == NO_DAY) {
+                continue;
+            }
+            line.setLength(0);
+            line.append("W,").append(categories.name(id)).append(',').append(heads[id]);
+            for (int back = 0; back < Window.MONTH.days; back++) {
+                line.append(',').append(rings[id][slot(heads[id] - back)]);
+            }
+            writer.write(line.toString());
+            writer.newLine();
+        }
+        writer.close();
+        Files.move(tmp.toPath(), Paths.get(filename + "_alertwindows.txt"),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        savedLength = expensesLength;
+        savedAt = System.currentTimeMillis();
+    }
+}
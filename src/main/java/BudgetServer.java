@@ -0,0 +1,51 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Server mode: hosts dashboard sessions for many clients on a loopback socket. Each
+// connection runs on its own virtual thread where the runtime has them (Java 21+), and on
+// a platform thread otherwise. All sessions share one user store and AuthenticationManager.
+class BudgetServer {
+    public static final int DEFAULT_PORT = 7070;
+
+    private final int port;
+    private final AuthenticationManager auth;
+    private final UserValidator validator;
+
+    public BudgetServer(int port, UserStorage storage, UserValidator validator) {
+        this.port = port;
+        this.validator = validator;
+        this.auth = new AuthenticationManager(storage, validator);
+    }
+
+    public void serve() throws IOException {
+        SessionConsole.install();
+        ReminderScheduler.start(new OutboxNotifier());
+        Compactor.start(true);
+        ExecutorService sessions = sessionExecutor();
+        try (ServerSocket server = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress())) {
+            System.out.println("Budget server listening on " + server.getLocalSocketAddress());
+            while (true) {
+                Socket socket = server.accept();
+                sessions.execute(new BudgetSession(socket, auth, validator));
+            }
+        } finally {
+            sessions.shutdown();
+        }
+    }
+
+    static ExecutorService sessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "budget-session");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
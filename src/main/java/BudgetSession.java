@@ -0,0 +1,354 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Map;
+
+// One client connection in server mode. Requests are single lines of tab-separated
+// fields; the response is the action's console output, each line prefixed with "> ",
+// followed by "OK" or "ERR <message>". A "? <question>" line asks the client for one line
+// of input (the OTP during SIGNUP, unless it was requested with SIGNUP_CODE and passed along).
+//   SIGNUP_CODE email (send a sign-up OTP)  SIGNUP username email password phone [otp]
+//   LOGIN email password    LOGOUT    QUIT
+//   AUTH_STATS (credential pool queueing and login limiter metrics)    LOCKOUTS (locked accounts)
+//   METRICS (latency and throughput per operation)
+//   ADD_EXPENSE amount category method date EXPENSES [page size] (pages numbered from 1)
+//   EXPORT name [from to] (expenses to a new .csv or .json file in <user>_exports)
+//   ADD_REMINDER title date time            ADD_GOAL title target current deadline
+//   NOTIFICATIONS (reminders that have fired)
+//   GOAL_RULE title percent|fixed value [source] (share of future incomes put toward a goal)
+//   COMPACT (drop superseded budget, goal and reminder lines now)
+//   GOALS                                   REPORT summary|detailed|parallel-summary|parallel-detailed|statistics|trends
+//   REPORT summary|detailed|statistics from to (YYYY-MM-DD, inclusive; whole months for statistics)
+//   ADD_INCOME source amount date           SET_BUDGET category amount
+//   BUDGETS    ANALYSIS    VERIFY           FORMAT text|binary|lsm
+//   IMPORT name (bank statement CSV placed in <user>_uploads)
+class BudgetSession implements Runnable {
+    private final Socket socket;
+    private final AuthenticationManager auth;
+    private final UserValidator validator;
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private BufferedReader in;
+    private BufferedWriter out;
+    private Dashboard dashboard;
+
+    BudgetSession(Socket socket, AuthenticationManager auth, UserValidator validator) {
+        this.socket = socket;
+        this.auth = auth;
+        this.validator = validator;
+    }
+
+    public void run() {
+        try (Socket client = socket) {
+            in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+            out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8));
+            String request;
+            while ((request = in.readLine()) != null) {
+                String[] fields = request.split("\t", -1);
+                String command = fields[0].trim().toUpperCase(Locale.ROOT);
+                if (command.isEmpty()) {
+                    continue;
+                }
+                String error = null;
+                long start = Metrics.start();
+                SessionConsole.capture(output);
+                try {
+                    handle(command, fields);
+                } catch (IllegalArgumentException | IllegalStateException | IOException e) {
+                    error = e.getMessage();
+                } finally {
+                    SessionConsole.release();
+                }
+                if (error == null) {
+                    // Only successful requests, so unknown commands don't each get a timer.
+                    Metrics.stop("server.", command, start);
+                }
+                sendOutput();
+                out.write(error == null ? "OK" : "ERR " + error);
+                out.newLine();
+                out.flush();
+                if (command.equals("QUIT")) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // Client went away; its session ends here.
+        } finally {
+            endDashboard();
+        }
+    }
+
+    private void handle(String command, String[] fields) throws IOException {
+        switch (command) {
+            case "SIGNUP_CODE":
+                require(fields, 1, "SIGNUP_CODE email");
+                auth.requestOTP(fields[1].trim());
+                return;
+            case "SIGNUP":
+                if (fields.length == 6) {
+                    auth.signUp(fields[1].trim(), fields[2].trim(), fields[3].trim(), fields[4].trim(),
+                            fields[5].trim());
+                    return;
+                }
+                require(fields, 4, "SIGNUP username email password phone [otp]");
+                auth.signUp(fields[1].trim(), fields[2].trim(), fields[3].trim(), fields[4].trim(), this::ask);
+                return;
+            case "LOGIN":
+                require(fields, 2, "LOGIN email password");
+                if (!validator.isValidEmail(fields[1].trim())) {
+                    throw new IllegalArgumentException("Invalid email format.");
+                }
+                if (auth.login(fields[1].trim(), fields[2].trim(), socket.getInetAddress().getHostAddress())) {
+                    endDashboard();
+                    dashboard = new Dashboard(fields[1].trim());
+                }
+                return;
+            case "AUTH_STATS":
+                System.out.println(auth.getVerifier().stats());
+                System.out.println(auth.getLimiter().stats());
+                return;
+            case "LOCKOUTS":
+                Map<String, Long> locked = auth.getLimiter().lockedAccounts();
+                if (locked.isEmpty()) {
+                    System.out.println("No accounts are locked.");
+                }
+                locked.forEach((email, seconds) -> System.out.println(email + "\t" + seconds + "s"));
+                return;
+            case "METRICS":
+                System.out.print(Metrics.ENABLED ? Metrics.text() : "Metrics are off; start with -Dmetrics.enabled=true.\n");
+                return;
+            case "QUIT":
+                return;
+            default:
+                break;
+        }
+
+        if (dashboard == null) {
+            throw new IllegalStateException("Not logged in.");
+        }
+        switch (command) {
+            case "ADD_EXPENSE":
+                require(fields, 4, "ADD_EXPENSE amount category method date");
+                dashboard.addExpense(new Expense(number(fields[1]), fields[2], fields[3], fields[4]));
+                break;
+            case "EXPENSES":
+                if (fields.length == 1) {
+                    dashboard.displayExpenses();
+                    break;
+                }
+                require(fields, 2, "EXPENSES [page size]");
+                dashboard.displayExpenses(count(fields[1]), count(fields[2]));
+                break;
+            case "EXPORT":
+                if (fields.length == 4) {
+                    dashboard.exportExpenses(dashboard.exportFile(fields[1]), date(fields[2]), date(fields[3]));
+                    break;
+                }
+                require(fields, 1, "EXPORT name [from to]");
+                dashboard.exportExpenses(dashboard.exportFile(fields[1]), null, null);
+                break;
+            case "ADD_REMINDER":
+                require(fields, 3, "ADD_REMINDER title date time");
+                dashboard.addReminder(new Reminder(fields[1], fields[2], fields[3]));
+                break;
+            case "NOTIFICATIONS":
+                dashboard.displayNotifications();
+                break;
+            case "ADD_GOAL":
+                require(fields, 4, "ADD_GOAL title target current deadline");
+                dashboard.addGoal(new Goal(fields[1], number(fields[2]), number(fields[3]), fields[4]));
+                break;
+            case "GOAL_RULE":
+                if (fields.length != 5) {
+                    require(fields, 3, "GOAL_RULE title percent|fixed value [source]");
+                }
+                String kind = fields[2].trim();
+                if (!kind.equals("percent") && !kind.equals("fixed")) {
+                    throw new IllegalArgumentException("Rule kind must be percent or fixed.");
+                }
+                dashboard.setGoalRule(fields[1], kind.equals("fixed"), number(fields[3]),
+                        fields.length > 4 ? fields[4].trim() : "*");
+                break;
+            case "COMPACT":
+                dashboard.compact();
+                System.out.println(Compactor.shared().stats());
+                break;
+            case "GOALS":
+                dashboard.displayGoals();
+                break;
+            case "REPORT":
+                if (fields.length == 4) {
+                    dashboard.generateReport(report(fields[1].trim(), date(fields[2]), date(fields[3])));
+                    break;
+                }
+                require(fields, 1, "REPORT summary|detailed|parallel-summary|parallel-detailed|statistics|trends [from to]");
+                dashboard.generateReport(report(fields[1].trim()));
+                break;
+            case "ADD_INCOME":
+                require(fields, 3, "ADD_INCOME source amount date");
+                double income = number(fields[2]);
+                if (!Income.isValidSource(fields[1])) {
+                    throw new IllegalArgumentException("Invalid source (3-50 chars).");
+                }
+                if (!Income.isValidAmount(income)) {
+                    throw new IllegalArgumentException("Amount must be positive.");
+                }
+                if (!Income.isValidDate(fields[3])) {
+                    throw new IllegalArgumentException("Invalid date format (YYYY-MM-DD).");
+                }
+                dashboard.addIncome(new Income(fields[1], income, fields[3]));
+                break;
+            case "SET_BUDGET":
+                require(fields, 2, "SET_BUDGET category amount");
+                double budget = number(fields[2]);
+                if (!Budget.isValidCategory(fields[1])) {
+                    throw new IllegalArgumentException("Invalid category (3-50 chars).");
+                }
+                if (!Budget.isValidAmount(budget)) {
+                    throw new IllegalArgumentException("Amount must be positive.");
+                }
+                dashboard.setBudget(new Budget(fields[1], budget));
+                break;
+            case "BUDGETS":
+                dashboard.displayBudgets();
+                break;
+            case "ANALYSIS":
+                dashboard.displaySpendingAnalysis();
+                break;
+            case "VERIFY":
+                dashboard.verifyAnalysis();
+                break;
+            case "IMPORT":
+                require(fields, 1, "IMPORT name");
+                dashboard.importStatement(dashboard.uploadFile(fields[1]));
+                break;
+            case "FORMAT":
+                require(fields, 1, "FORMAT text|binary|lsm");
+                String format = fields[1].trim().toLowerCase(Locale.ROOT);
+                if (format.equals("lsm")) {
+                    dashboard.setLedgerStorage(true);
+                } else if (!format.equals("text") && !format.equals("binary")) {
+                    throw new IllegalArgumentException("Usage: FORMAT text|binary|lsm");
+                } else if (dashboard.isLsmStorage()) {
+                    dashboard.setLedgerStorage(false);
+                    if (format.equals("binary")) {
+                        dashboard.setLedgerFormat(true);
+                    }
+                } else {
+                    dashboard.setLedgerFormat(format.equals("binary"));
+                }
+                break;
+            case "LOGOUT":
+                endDashboard();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + command);
+        }
+    }
+
+    private String ask(String question) throws IOException {
+        sendOutput();
+        out.write("? " + question);
+        out.newLine();
+        out.flush();
+        String answer = in.readLine();
+        if (answer == null) {
+            throw new IOException("Client disconnected.");
+        }
+        return answer;
+    }
+
+    private void sendOutput() throws IOException {
+        if (output.size() == 0) {
+            return;
+        }
+        String text = new String(output.toByteArray(), Charset.defaultCharset());
+        output.reset();
+        for (String line : text.split("\\R")) {
+            out.write("> " + line);
+            out.newLine();
+        }
+    }
+
+    private void endDashboard() {
+        if (dashboard == null) {
+            return;
+        }
+        try {
+            dashboard.logout();
+        } catch (IOException e) {
+            // Appenders are flushed again on exit.
+        }
+        dashboard = null;
+    }
+
+    private static ReportStrategy report(String type) {
+        switch (type.toLowerCase(Locale.ROOT)) {
+            case "summary":
+                return new SummaryReport();
+            case "detailed":
+                return new DetailedReport();
+            case "parallel-summary":
+                return new ParallelSummaryReport();
+            case "parallel-detailed":
+                return new ParallelDetailedReport();
+            case "statistics":
+                return new StatisticsReport();
+            case "trends":
+                return new TrendsReport();
+            default:
+                throw new IllegalArgumentException("Unknown report type: " + type);
+        }
+    }
+
+    private static ReportStrategy report(String type, LocalDate from, LocalDate to) {
+        switch (type.toLowerCase(Locale.ROOT)) {
+            case "summary":
+                return new SummaryReport(from, to);
+            case "detailed":
+                return new DetailedReport(from, to);
+            case "statistics":
+                return new StatisticsReport(from, to);
+            default:
+                throw new IllegalArgumentException("Date ranges work with summary, detailed and statistics reports.");
+        }
+    }
+
+    private static LocalDate date(String field) {
+        try {
+            return LocalDate.parse(field.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + field);
+        }
+    }
+
+    private static void require(String[] fields, int arguments, String usage) {
+        if (fields.length != arguments + 1) {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+    }
+
+    private static int count(String field) {
+        try {
+            return Integer.parseInt(field.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + field);
+        }
+    }
+
+    private static double number(String field) {
+        try {
+            return Double.parseDouble(field.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + field);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.Arrays;
+
+// Interns names such as categories and payment methods to dense int ids (0, 1, 2, ... in
+// first-seen order), so aggregations can keep their numbers in primitive arrays indexed by
+// id. A LedgerLine field is hashed and compared in place, so looking up a name seen before
+// allocates nothing. Open addressing over an int table; no per-entry objects.
+class CategoryDictionary {
+    private String[] names = new String[16];
+    private int[] hashes = new int[16];
+    // id + 1 per slot, 0 for an empty slot. Kept at most half full.
+    private int[] slots = new int[32];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int id(String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return add(name, hash, slot);
+            }
+            if (hashes[id] == hash && names[id].equals(name)) {
+                return id;
+            }
+        }
+    }
+
+    public int id(LedgerLine line, int field) {
+        int hash = line.textHash(field);
+        int mask = slots.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return add(line.text(field), hash, slot);
+            }
+            if (hashes[id] == hash && line.textEquals(field, names[id])) {
+                return id;
+            }
+        }
+    }
+
+    // The id of a name already interned, or -1.
+    public int find(String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return -1;
+            }
+            if (hashes[id] == hash && names[id].equals(name)) {
+                return id;
+            }
+        }
+    }
+
+    private int add(String name, int hash, int slot) {
+        int id = size++;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        names[id] = name;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(hashes[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.Arrays;
+
+// Spending and the latest budget per category, in fixed-point cents, held in primitive
+// arrays indexed by CategoryDictionary id. Adding an expense is a dictionary lookup and
+// an array update: nothing is boxed and nothing is allocated once the category is known.
+// Amounts are rounded to the cent as they are added, so totals are exact sums of cents.
+class CategoryTotals {
+    private static final long NO_BUDGET = Long.MIN_VALUE;
+
+    private final CategoryDictionary categories = new CategoryDictionary();
+    private long[] spent = new long[16];
+    private boolean[] spending = new boolean[16];
+    private long[] budgets = newBudgets(16);
+    // Categories in the order their budget was first set, as Display Budgets lists them.
+    private int[] budgetOrder = new int[16];
+    private int budgetCount;
+
+    public CategoryDictionary categories() {
+        return categories;
+    }
+
+    public void addSpending(int category, long cents) {
+        ensure(category);
+        spent[category] += cents;
+        spending[category] = true;
+    }
+
+    public void setBudget(int category, long cents) {
+        ensure(category);
+        if (budgets[category] == NO_BUDGET) {
+            if (budgetCount == budgetOrder.length) {
+                budgetOrder = Arrays.copyOf(budgetOrder, budgetCount * 2);
+            }
+            budgetOrder[budgetCount++] = category;
+        }
+        budgets[category] = cents;
+    }
+
+    public boolean hasSpending(int category) {
+        return category < spending.length && spending[category];
+    }
+
+    public long spentCents(int category) {
+        return category < spent.length ? spent[category] : 0;
+    }
+
+    public boolean hasBudget(int category) {
+        return category < budgets.length && budgets[category] != NO_BUDGET;
+    }
+
+    public long budgetCents(int category) {
+        return budgets[category];
+    }
+
+    public int budgetCount() {
+        return budgetCount;
+    }
+
+    // The i-th category to get a budget.
+    public int budgetCategory(int i) {
+        return budgetOrder[i];
+    }
+
+    public boolean isEmpty() {
+        for (int id = 0; id < categories.size(); id++) {
+            if (hasSpending(id)) {
+                return false;
+            }
+        }
+        return budgetCount == 0;
+    }
+
+    // Same spending and budgets per category name; ids may differ.
+    public boolean sameAs(CategoryTotals other) {
+        if (budgetCount != other.budgetCount) {
+            return false;
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            CategoryTotals a = pass == 0 ? this : other;
+            CategoryTotals b = pass == 0 ? other : this;
+            for (int id = 0; id < a.categories.size(); id++) {
+                if (!a.hasSpending(id) && !a.hasBudget(id)) {
+                    continue;
+                }
+                int match = b.categories.find(a.categories.name(id));
+                if (match < 0 || a.hasSpending(id) != b.hasSpending(match)
+                        || a.spentCents(id) != b.spentCents(match)
+                        || a.hasBudget(id) != b.hasBudget(match)
+                        || (a.hasBudget(id) && a.budgetCents(id) != b.budgetCents(match))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    // Plain decimal with two places, e.g. -0.05 or 1250.00.
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        long fraction = abs % 100;
+        return (cents < 0 ? "-" : "") + abs / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    private void ensure(int category) {
+        if (category < spent.length) {
+            return;
+        }
+        int length = Math.max(category + 1, spent.length * 2);
+        spent = Arrays.copyOf(spent, length);
+        spending = Arrays.copyOf(spending, length);
+        int old = budgets.length;
+        budgets = Arrays.copyOf(budgets, length);
+        Arrays.fill(budgets, old, length, NO_BUDGET);
+    }
+
+    private static long[] newBudgets(int length) {
+        long[] budgets = new long[length];
+        Arrays.fill(budgets, NO_BUDGET);
+        return budgets;
+    }
+}
@@ -0,0 +1,298 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Background compaction of the files where later lines supersede earlier ones:
+//   <user>_budgets.txt    the last amount per category
+//   <user>_goals.txt      the last definition per goal title
+//   <user>_reminders.txt  reminders that have not fired yet, without duplicates
+// and of reminder-schedule buckets for hours that have fully fired. A file is read and
+// compacted without holding the user's lock; the lock is only taken to check that nothing
+// was appended meanwhile, swap in the rewritten file atomically and move the projection
+// that tracks it (SpendingAggregates, GoalProgress) onto the new length. Background reads
+// are paced to -Dcompaction.iobudget bytes per second (default 1 MB) a chunk at a time, and
+// a pass runs every -Dcompaction.interval seconds (default 600). Rewritten files are synced
+// before they replace the original, in the default charset the ledgers are written in.
+class Compactor {
+    private static final long IO_BUDGET = Long.getLong("compaction.iobudget", 1 << 20);
+    private static final long INTERVAL = Long.getLong("compaction.interval", 600);
+    private static final long PACE_CHUNK = 64 * 1024;
+    private static Compactor shared;
+
+    private final boolean log;
+    private final Map<String, Long> compactedLengths = new HashMap<>();
+    private final AtomicLong passes = new AtomicLong();
+    private final AtomicLong filesCompacted = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    private ScheduledExecutorService timer;
+
+    // Outcome of compacting one or more files.
+    static final class Result {
+        int files;
+        long bytesBefore;
+        long bytesAfter;
+
+        long reclaimed() {
+            return bytesBefore - bytesAfter;
+        }
+
+        void add(Result other) {
+            files += other.files;
+            bytesBefore += other.bytesBefore;
+            bytesAfter += other.bytesAfter;
+        }
+    }
+
+    private Compactor(boolean log) {
+        this.log = log;
+    }
+
+    // Starts the process-wide compactor. With log set, every pass that reclaims space
+    // prints a line (server mode); the console stays quiet.
+    public static synchronized Compactor start(boolean log) {
+        if (shared == null) {
+            shared = new Compactor(log);
+            shared.timer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "compactor");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+            shared.timer.scheduleWithFixedDelay(shared::runPass, INTERVAL, INTERVAL, TimeUnit.SECONDS);
+        }
+        return shared;
+    }
+
+    public static synchronized Compactor shared() {
+        return start(false);
+    }
+
+    public String stats() {
+        return String.format("Compaction: %d passes, %d files rewritten, %d bytes reclaimed",
+                passes.get(), filesCompacted.get(), bytesReclaimed.get());
+    }
+
+    // One background pass over every user's files in the working directory.
+    public void runPass() {
+        Result total = new Result();
+        try {
+            File[] files = new File(".").listFiles((parent, name) -> name.endsWith("_budgets.txt")
+                    || name.endsWith("_goals.txt") || name.endsWith("_reminders.txt"));
+            if (files != null) {
+                for (File file : files) {
+                    total.add(compact(file, true));
+                }
+            }
+            total.add(dropFiredBuckets());
+        } catch (InterruptedIOException e) {
+            return;
+        } catch (IOException e) {
+            System.err.println("Compaction pass failed: " + e.getMessage());
+        }
+        passes.incrementAndGet();
+        if (log && total.reclaimed() > 0) {
+            System.out.println("Compaction reclaimed " + total.reclaimed() + " bytes in " + total.files + " files.");
+        }
+    }
+
+    // Compacts one user's files right away, without the I/O budget.
+    public Result compactUser(String filename) throws IOException {
+        Result total = new Result();
+        for (String suffix : new String[]{"_budgets.txt", "_goals.txt", "_reminders.txt"}) {
+            File file = new File(filename + suffix);
+            if (file.exists()) {
+                total.add(compact(file, false));
+            }
+        }
+        return total;
+    }
+
+    private Result compact(File file, boolean throttle) throws IOException {
+        Result result = new Result();
+        String name = file.getName();
+        String path = file.getPath();
+        long length = file.length();
+        synchronized (compactedLengths) {
+            Long compacted = compactedLengths.get(path);
+            if (compacted != null && compacted == length) {
+                return result;
+            }
+        }
+
+        Map<String, String> live = new LinkedHashMap<>();
+        long now = System.currentTimeMillis() / 1000;
+        LedgerVisitor fold;
+        String suffix;
+        if (name.endsWith("_budgets.txt")) {
+            suffix = "_budgets.txt";
+            fold = line -> {
+                if (line.fieldCount() == 2 && parses(line, 1)) {
+                    live.put(line.text(0), line.text());
+                }
+            };
+        } else if (name.endsWith("_goals.txt")) {
+            suffix = "_goals.txt";
+            fold = line -> {
+                if (line.fieldCount() == 4 && parses(line, 1) && parses(line, 2)) {
+                    live.put(line.text(0), line.text());
+                }
+            };
+        } else {
+            suffix = "_reminders.txt";
+            fold = line -> {
+                if (line.fieldCount() == 3) {
+                    Reminder reminder = new Reminder(line.text(0), line.text(1), line.text(2));
+                    if (reminder.isValid() && ReminderScheduler.epochSecond(reminder) > now) {
+                        String text = line.text();
+                        live.put(text, text);
+                    }
+                }
+            };
+        }
+        long read;
+        if (throttle) {
+            Pacer pacer = new Pacer();
+            read = LedgerReader.read(file, 0, line -> {
+                pacer.pace(line.offset(), false);
+                fold.visit(line);
+            });
+            pacer.pace(read, true);
+        } else {
+            read = LedgerReader.read(file, 0, fold);
+        }
+
+        StringBuilder content = new StringBuilder();
+        for (String line : live.values()) {
+            content.append(line).append(System.lineSeparator());
+        }
+        byte[] bytes = content.toString().getBytes(Charset.defaultCharset());
+        if (bytes.length >= read) {
+            remember(path, read);
+            return result;
+        }
+
+        String filename = name.substring(0, name.length() - suffix.length());
+        boolean swapped = UserLocks.call(filename, () -> {
+            if (file.length() != read) {
+                // Appended to since we read it; the next pass picks it up.
+                return false;
+            }
+            SpendingAggregates aggregates = suffix.equals("_budgets.txt") ? SpendingAggregates.load(filename) : null;
+            GoalProgress goals = suffix.equals("_goals.txt") ? GoalProgress.load(filename) : null;
+            LedgerAppender.close(path);
+            Path tmp = Paths.get(path + ".compact");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                // On disk before the rename, so a crash can't leave an empty or partial file
+                // in place of the original.
+                channel.force(true);
+            }
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (aggregates != null) {
+                aggregates.budgetsCompacted(bytes.length);
+            }
+            if (goals != null) {
+                goals.goalsCompacted(bytes.length);
+            }
+            // A cached model's projections still hold offsets into the old file; its next
+            // use reloads them from the snapshots written above.
+            UserSessions.shared().evict(filename);
+            return true;
+        });
+        if (swapped) {
+            remember(path, bytes.length);
+            result.files = 1;
+            result.bytesBefore = read;
+            result.bytesAfter = bytes.length;
+            filesCompacted.incrementAndGet();
+            bytesReclaimed.addAndGet(result.reclaimed());
+        }
+        return result;
+    }
+
+    // Every reminder in an hour bucket before the scheduler's current hour has fired.
+    private Result dropFiredBuckets() throws IOException {
+        Result result = new Result();
+        ReminderScheduler scheduler = ReminderScheduler.running();
+        if (scheduler == null) {
+            return result;
+        }
+        long current = scheduler.currentHour();
+        File[] buckets = scheduler.directory().toFile().listFiles((parent, name) -> name.matches("\\d+\\.txt"));
+        if (buckets == null) {
+            return result;
+        }
+        for (File bucket : buckets) {
+            long hour = Long.parseLong(bucket.getName().substring(0, bucket.getName().length() - 4));
+            if (hour < current) {
+                long size = bucket.length();
+                LedgerAppender.close(bucket.getPath());
+                if (bucket.delete()) {
+                    result.files++;
+                    result.bytesBefore += size;
+                    filesCompacted.incrementAndGet();
+                    bytesReclaimed.addAndGet(size);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Keeps a background read within IO_BUDGET: after every PACE_CHUNK bytes (and at the
+    // end), sleeps until the time that many bytes are due at the budgeted rate.
+    private static final class Pacer {
+        private final long started = System.nanoTime();
+        private long next = PACE_CHUNK;
+
+        void pace(long bytes, boolean last) throws InterruptedIOException {
+            if (!last && bytes < next) {
+                return;
+            }
+            next = bytes + PACE_CHUNK;
+            long due = started + (long) (bytes * 1e9 / Math.max(1, IO_BUDGET));
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Compaction interrupted");
+                }
+            }
+        }
+    }
+
+    private void remember(String path, long length) {
+        synchronized (compactedLengths) {
+            compactedLengths.put(path, length);
+        }
+    }
+
+    private static boolean parses(LedgerLine line, int field) {
+        try {
+            line.parseDouble(field);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+class ConsoleAlertSink implements AlertSink {
+    public void alert(String filename, BudgetAlerts.Alert alert) {
+        System.out.println("[Budget alert] " + alert.message());
+    }
+}
@@ -0,0 +1,5 @@
+class ConsoleNotifier implements ReminderNotifier {
+    public void notify(String filename, Reminder reminder) {
+        System.out.println("\n[Reminder] " + reminder.getTitle() + " (" + reminder.getDate() + " " + reminder.getTime() + ")");
+    }
+}
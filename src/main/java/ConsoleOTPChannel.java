@@ -0,0 +1,7 @@
+// Local stand-in: prints the code, to the console or, in server mode, to the session that
+// asked for it.
+class ConsoleOTPChannel implements OTPChannel {
+    public void deliver(String address, String code) {
+        System.out.println("OTP sent to " + address + ": " + code);
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded worker pool for password hashing and verification. PBKDF2 is slow on purpose,
+// so it runs here rather than on console or session threads: at most -Dauth.workers tasks
+// run at once (default: one per CPU) and at most -Dauth.queue wait (default 256). Anything
+// beyond that is rejected straight away, so a login storm can't starve other work.
+class CredentialVerifier {
+    public static final int DEFAULT_WORKERS =
+            Integer.getInteger("auth.workers", Runtime.getRuntime().availableProcessors());
+    public static final int DEFAULT_QUEUE = Integer.getInteger("auth.queue", 256);
+
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong queueNanos = new AtomicLong();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+    private final AtomicLong workNanos = new AtomicLong();
+
+    public CredentialVerifier() {
+        this(DEFAULT_WORKERS, DEFAULT_QUEUE);
+    }
+
+    public CredentialVerifier(int workers, int queueCapacity) {
+        this.pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "auth-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    // Runs the task on the pool. Its output goes wherever the caller's output goes (see
+    // SessionConsole). When the pool is saturated the future fails with
+    // RejectedExecutionException before this returns.
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        OutputStream console = SessionConsole.current();
+        long queuedAt = System.nanoTime();
+        try {
+            pool.execute(() -> {
+                long startedAt = System.nanoTime();
+                long waited = startedAt - queuedAt;
+                started.incrementAndGet();
+                queueNanos.addAndGet(waited);
+                maxQueueNanos.accumulateAndGet(waited, Math::max);
+                SessionConsole.capture(console);
+                try {
+                    result.complete(task.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    SessionConsole.release();
+                    workNanos.addAndGet(System.nanoTime() - startedAt);
+                    completed.incrementAndGet();
+                }
+            });
+            submitted.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public String stats() {
+        long began = started.get();
+        long done = completed.get();
+        return String.format(Locale.ROOT,
+                "workers=%d active=%d queued=%d submitted=%d completed=%d rejected=%d"
+                        + " avgQueueMs=%.2f maxQueueMs=%.2f avgWorkMs=%.2f",
+                pool.getCorePoolSize(), pool.getActiveCount(), pool.getQueue().size(),
+                submitted.get(), done, rejected.get(),
+                began == 0 ? 0.0 : queueNanos.get() / 1e6 / began, maxQueueNanos.get() / 1e6,
+                done == 0 ? 0.0 : workNanos.get() / 1e6 / done);
+    }
+}
@@ -0,0 +1,44 @@
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+
+// category,amount,method,date under a header row. Fields holding a comma, quote or line
+// break are quoted, with quotes doubled.
+class CsvReportSink extends ExportSink {
+    public CsvReportSink(File file) throws IOException {
+        super(file);
+    }
+
+    protected void header(LocalDate from, LocalDate to) throws IOException {
+        line.append("category,amount,method,date");
+        writeLine();
+    }
+
+    protected void write(ExpenseRow row, long index) throws IOException {
+        field(row.category).append(',');
+        field(row.amount).append(',');
+        field(row.method).append(',');
+        field(row.date);
+        writeLine();
+    }
+
+    private StringBuilder field(CharSequence value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+}
@@ -0,0 +1,443 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The dashboard actions for one logged-in user, shared by the console loop and server
+// sessions. Inputs are validated by the caller; every action runs under the user's lock.
+class Dashboard {
+    private static final Metrics.Timer APPEND_EXPENSE = Metrics.timer("append.expense");
+    private static final Metrics.Timer APPEND_INCOME = Metrics.timer("append.income");
+    private static final Metrics.Timer APPEND_BUDGET = Metrics.timer("append.budget");
+    private static final Metrics.Timer APPEND_GOAL = Metrics.timer("append.goal");
+    private static final Metrics.Timer APPEND_REMINDER = Metrics.timer("append.reminder");
+    private static final Metrics.Timer IMPORT = Metrics.timer("import.statement");
+    private static final Metrics.Timer ANALYSIS = Metrics.timer("analysis.spending");
+    public static final int PAGE_SIZE = Integer.getInteger("report.page.size", 20);
+    // Open dashboards per user; the last to log out closes the user's files. Changed under
+    // the user lock so a close never races a login of the same user.
+    private static final Map<String, Integer> LIVE = new HashMap<>();
+    // Files the user's actions append to besides the ledgers. <user>_notifications.txt is
+    // left open: the reminder scheduler appends to it whether or not the user is logged in.
+    private static final String[] APPENDED = {"_goalrules.txt", "_alerts.txt"};
+
+    private final String email;
+    private final String filename;
+    private boolean loggedOut;
+
+    // Loads the user's model (see UserSessions) unless it is still cached.
+    public Dashboard(String email) throws IOException {
+        this.email = email;
+        this.filename = email.replaceAll("[^a-zA-Z0-9]", "_");
+        UserLocks.run(filename, () -> {
+            session();
+            synchronized (LIVE) {
+                LIVE.merge(filename, 1, Integer::sum);
+            }
+        });
+    }
+
+    // Whether any dashboard of the user is open, so batch jobs leave its files alone.
+    static boolean isLoggedIn(String filename) {
+        synchronized (LIVE) {
+            return LIVE.containsKey(filename);
+        }
+    }
+
+    // The user's in-memory model, current with the ledgers. Called under the user lock.
+    private User session() throws IOException {
+        return UserSessions.shared().get(filename, email);
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void addExpense(Expense e) throws IOException {
+        long start = Metrics.start();
+        UserLocks.run(filename, () -> {
+            if (BinaryLedger.isEnabled(filename)) {
+                BinaryLedger.append(filename, e);
+            } else {
+                LedgerStorage.forUser(filename).append(LedgerStorage.Ledger.EXPENSES, e.toFileString());
+            }
+            session().getSpending().update();
+            session().getAlerts().update(session().getSpending().getTotals());
+        });
+        APPEND_EXPENSE.stop(start);
+        System.out.println("  Expense added successfully!");
+    }
+
+    public void displayExpenses() throws IOException {
+        UserLocks.run(filename, () -> {
+            User user = session();
+            try (ReportSink sink = ReportSink.console()) {
+                if (user.isInMemory() ? user.getExpenses().isEmpty() : !DetailedReport.hasExpenses(filename)) {
+                    sink.message("No expenses found.");
+                    return;
+                }
+                sink.message("----- Your Expenses -----");
+                if (user.isInMemory()) {
+                    DetailedReport.rows(user.getExpenses(), 0, sink);
+                } else {
+                    DetailedReport.rows(filename, 0, sink);
+                }
+            }
+        });
+    }
+
+    // Shows the expenses PAGE_SIZE rows at a time. After each page the prompt is asked
+    // whether to go on; the user lock is not held while it waits.
+    public void displayExpenses(Prompt prompt) throws IOException {
+        ExpensePager pager = new ExpensePager(filename, PAGE_SIZE, UserLocks.call(filename, this::session));
+        boolean first = true;
+        int page = 1;
+        while (true) {
+            boolean header = first;
+            boolean more = UserLocks.call(filename, () -> {
+                try (ReportSink sink = ReportSink.console()) {
+                    if (header && !hasExpenses()) {
+                        sink.message("No expenses found.");
+                        return false;
+                    }
+                    if (header) {
+                        sink.message("----- Your Expenses -----");
+                    }
+                    pager.next(sink);
+                    return pager.hasMore();
+                }
+            });
+            first = false;
+            if (!more || prompt.ask("-- page " + page++ + ", Enter for more, q to stop: ").trim().equalsIgnoreCase("q")) {
+                return;
+            }
+        }
+    }
+
+    // One page (numbered from 1) of `size` expenses, ending with the request for the next
+    // page when there is one.
+    public void displayExpenses(int page, int size) throws IOException {
+        if (page < 1) {
+            throw new IllegalArgumentException("Pages are numbered from 1.");
+        }
+        UserLocks.run(filename, () -> {
+            ExpensePager pager = new ExpensePager(filename, size, session());
+            try (ReportSink sink = ReportSink.console()) {
+                if (!hasExpenses()) {
+                    sink.message("No expenses found.");
+                    return;
+                }
+                pager.skipPages(page - 1);
+                sink.message("----- Your Expenses (page " + page + ") -----");
+                if (pager.next(sink) == 0) {
+                    sink.message("No expenses on this page.");
+                }
+                if (pager.hasMore()) {
+                    sink.message("Next: EXPENSES\t" + (page + 1) + "\t" + size);
+                }
+            }
+        });
+    }
+
+    // Called under the user lock.
+    private boolean hasExpenses() throws IOException {
+        User user = session();
+        return user.isInMemory() ? !user.getExpenses().isEmpty() : DetailedReport.hasExpenses(filename);
+    }
+
+    // Streams the expenses, all or those dated within [from, to], to a .csv or .json file.
+    public void exportExpenses(File file, LocalDate from, LocalDate to) throws IOException {
+        ExportSink sink = ReportSink.export(file);
+        generateReport(new DetailedReport(from, to, sink));
+        System.out.println(" Exported " + sink.rows() + " expenses to " + file.getPath());
+    }
+
+    // Where a server client's EXPORT goes: a new file in <user>_exports. Remote clients only
+    // name the file, so they can't write elsewhere on the server or replace an earlier export.
+    public File exportFile(String name) throws IOException {
+        File file = userFile(filename + "_exports", name);
+        if (file.exists()) {
+            throw new IllegalArgumentException("Export file already exists: " + file.getName());
+        }
+        return file;
+    }
+
+    // Where a server client's IMPORT reads from: a statement placed in <user>_uploads, so a
+    // remote client can't load other files on the server into their ledger.
+    public File uploadFile(String name) throws IOException {
+        return userFile(filename + "_uploads", name);
+    }
+
+    // A plain file name inside the given directory, which is created if needed. Absolute
+    // paths, separators and "." or ".." are refused.
+    private static File userFile(String directory, String name) throws IOException {
+        String trimmed = name.trim();
+        Path dir = Paths.get(directory).toAbsolutePath().normalize();
+        if (trimmed.isEmpty() || trimmed.indexOf('/') >= 0 || trimmed.indexOf('\\') >= 0
+                || !dir.equals(dir.resolve(trimmed).normalize().getParent())) {
+            throw new IllegalArgumentException("Give a file name without a directory: " + trimmed);
+        }
+        Files.createDirectories(dir);
+        return new File(directory, trimmed);
+    }
+
+    public void addReminder(Reminder r) throws IOException {
+        if (!r.isValid()) {
+            System.out.println(" Invalid reminder data.");
+            return;
+        }
+        long start = Metrics.start();
+        UserLocks.run(filename, () -> LedgerStorage.forUser(filename).append(LedgerStorage.Ledger.REMINDERS, r.toFileString()));
+        ReminderScheduler.shared().schedule(filename, r);
+        APPEND_REMINDER.stop(start);
+        System.out.println(" Reminder saved successfully!");
+        System.out.println(" Notification will be sent at: " + r.getDate() + " " + r.getTime());
+    }
+
+    // Reminders delivered through OutboxNotifier (server mode).
+    public void displayNotifications() throws IOException {
+        UserLocks.run(filename, () -> {
+            File outbox = new File(filename + "_notifications.txt");
+            if (!outbox.exists()) {
+                System.out.println("No notifications.");
+                return;
+            }
+            StringBuilder row = new StringBuilder();
+            LedgerReader.read(outbox, line -> {
+                if (line.fieldCount() == 3) {
+                    row.setLength(0);
+                    row.append("Reminder: ");
+                    line.appendText(0, row);
+                    row.append(" at ");
+                    line.appendText(1, row);
+                    row.append(' ');
+                    line.appendText(2, row);
+                    System.out.println(row);
+                }
+            });
+        });
+    }
+
+    public void addGoal(Goal g) throws IOException {
+        long start = Metrics.start();
+        UserLocks.run(filename, () -> {
+            LedgerStorage.forUser(filename).append(LedgerStorage.Ledger.GOALS, g.toFileString());
+            session().getGoals().update();
+        });
+        APPEND_GOAL.stop(start);
+        System.out.println(" Goal saved successfully!");
+    }
+
+    // Puts a share of future incomes toward a goal: a percentage of each income, or a
+    // fixed amount per income. source limits the rule to incomes from that source; * for any.
+    public void setGoalRule(String goal, boolean fixed, double value, String source) throws IOException {
+        if (value <= 0 || (!fixed && value > 100) || source.isEmpty()) {
+            System.out.println(" Invalid allocation rule.");
+            return;
+        }
+        boolean saved = UserLocks.call(filename, () -> {
+            session().getGoals().update();
+            if (!session().getGoals().hasGoal(goal)) {
+                return false;
+            }
+            session().getGoals().addRule(goal, fixed, value, source);
+            return true;
+        });
+        System.out.println(saved ? " Allocation rule saved." : " No goal named " + goal + ".");
+    }
+
+    public void displayGoals() throws IOException {
+        UserLocks.run(filename, () -> {
+            session().getGoals().update();
+            List<Goal> current = session().getGoals().getGoals();
+            if (current.isEmpty()) {
+                System.out.println("No goals found.");
+                return;
+            }
+            for (Goal goal : current) {
+                goal.displayGoal();
+                if (goal.isCompleted()) {
+                    System.out.println("   Completed!");
+                }
+            }
+        });
+    }
+
+    public void generateReport(ReportStrategy strategy) throws IOException {
+        long start = Metrics.start();
+        UserLocks.run(filename, () -> new Report(strategy).generateReport(filename, session()));
+        Metrics.stop("report.", strategy.getClass().getSimpleName(), start);
+    }
+
+    public void addIncome(Income income) throws IOException {
+        long start = Metrics.start();
+        UserLocks.run(filename, () -> {
+            LedgerStorage.forUser(filename).append(LedgerStorage.Ledger.INCOMES, income.toFileString());
+            session().getGoals().update();
+        });
+        APPEND_INCOME.stop(start);
+        System.out.println("Income added successfully!");
+    }
+
+    public void setBudget(Budget budget) throws IOException {
+        long start = Metrics.start();
+        UserLocks.run(filename, () -> {
+            LedgerStorage.forUser(filename).append(LedgerStorage.Ledger.BUDGETS, budget.toFileString());
+            session().getSpending().update();
+        });
+        APPEND_BUDGET.stop(start);
+        System.out.println("Budget set successfully!");
+    }
+
+    public void displayBudgets() throws IOException {
+        UserLocks.run(filename, () -> {
+            session().getSpending().update();
+            CategoryTotals totals = session().getSpending().getTotals();
+            if (totals.budgetCount() == 0) {
+                System.out.println("No budgets set yet.");
+                return;
+            }
+            System.out.println("\n--- Your Budgets ---");
+            for (int i = 0; i < totals.budgetCount(); i++) {
+                int id = totals.budgetCategory(i);
+                System.out.println("Category: " + totals.categories().name(id) + ", Budget: $" + totals.budgetCents(id) / 100.0);
+            }
+        });
+    }
+
+    public void compact() throws IOException {
+        Compactor.Result result = Compactor.shared().compactUser(filename);
+        System.out.println("Compacted " + result.files + " files: " + result.bytesBefore + " -> "
+                + result.bytesAfter + " bytes (" + result.reclaimed() + " reclaimed).");
+    }
+
+    public void displaySpendingAnalysis() throws IOException {
+        long start = Metrics.start();
+        UserLocks.run(filename, () -> {
+            session().getSpending().update();
+            CategoryTotals totals = session().getSpending().getTotals();
+
+            if (totals.isEmpty()) {
+                System.out.println("No data available for analysis.");
+            } else {
+                SpendingAnalysis analysis = new SpendingAnalysis(totals);
+                analysis.displayAnalysis();
+            }
+        });
+        ANALYSIS.stop(start);
+    }
+
+    public void verifyAnalysis() throws IOException {
+        boolean consistent = UserLocks.call(filename, () -> session().getSpending().verify());
+        if (consistent) {
+            System.out.println("Analysis data is up to date.");
+        } else {
+            System.out.println("Analysis data was out of date and has been rebuilt.");
+        }
+    }
+
+    public void importStatement(File statement) throws IOException {
+        if (!statement.isFile()) {
+            System.out.println("Statement file not found: " + statement);
+            return;
+        }
+        long start = Metrics.start();
+        StatementImporter importer = new StatementImporter(filename);
+        StatementImporter.Result result = importer.stage(statement);
+        if (!result.accepted()) {
+            System.out.println("Statement rejected: " + result.invalid + " of " + result.rows + " rows are invalid.");
+            for (String error : result.errors) {
+                System.out.println("  " + error);
+            }
+            if (result.invalid > result.errors.size()) {
+                System.out.println("  ... and " + (result.invalid - result.errors.size()) + " more.");
+            }
+            return;
+        }
+        UserLocks.run(filename, () -> {
+            importer.commit();
+            session().getSpending().update();
+            session().getGoals().update();
+            session().getAlerts().catchUp();
+        });
+        IMPORT.stop(start);
+        System.out.printf("Imported %d rows (%d expenses, %d incomes) in %.2fs (%.0f rows/sec).%n",
+                result.rows, result.expenses, result.incomes, result.nanos / 1e9, result.rowsPerSecond());
+    }
+
+    public boolean isBinaryLedger() throws IOException {
+        return BinaryLedger.isEnabled(filename);
+    }
+
+    public void setLedgerFormat(boolean binary) throws IOException {
+        UserLocks.run(filename, () -> {
+            if (binary == BinaryLedger.isEnabled(filename)) {
+                System.out.println("Ledger is already in that format.");
+            } else if (LedgerStorage.isLsm(filename)) {
+                System.out.println("Expenses in the log-structured store can't use the binary format; switch to text storage first.");
+            } else if (binary) {
+                int rows = BinaryLedger.convertToBinary(filename);
+                session().getSpending().verify();
+                System.out.println("Converted " + rows + " expenses to binary format.");
+            } else {
+                int rows = BinaryLedger.convertToText(filename);
+                session().getSpending().verify();
+                System.out.println("Converted " + rows + " expenses to text format.");
+            }
+        });
+    }
+
+    public boolean isLsmStorage() throws IOException {
+        return LedgerStorage.isLsm(filename);
+    }
+
+    // Moves all five ledgers between the text files and the log-structured store.
+    public void setLedgerStorage(boolean lsm) throws IOException {
+        UserLocks.run(filename, () -> {
+            if (lsm == LedgerStorage.isLsm(filename)) {
+                System.out.println("Ledgers are already stored that way.");
+            } else if (lsm && BinaryLedger.isEnabled(filename)) {
+                System.out.println("Switch expenses back to the text format first.");
+            } else if (lsm) {
+                int rows = LsmLedgerStorage.convertToLsm(filename);
+                session().getSpending().verify();
+                System.out.println("Moved " + rows + " records to the log-structured store.");
+            } else {
+                int rows = LsmLedgerStorage.convertToText(filename);
+                session().getSpending().verify();
+                System.out.println("Moved " + rows + " records back to text files.");
+            }
+        });
+    }
+
+    public void logout() throws IOException {
+        System.out.println("Logging out...");
+        UserLocks.run(filename, () -> {
+            session().getSpending().checkpoint();
+            session().getGoals().checkpoint();
+            session().getAlerts().checkpoint();
+            if (loggedOut) {
+                return;
+            }
+            loggedOut = true;
+            boolean last;
+            synchronized (LIVE) {
+                last = LIVE.merge(filename, -1, (held, change) -> held + change == 0 ? null : held + change) == null;
+            }
+            if (last) {
+                for (LedgerStorage.Ledger ledger : LedgerStorage.Ledger.values()) {
+                    LedgerAppender.close(filename + ledger.suffix);
+                }
+                for (String suffix : APPENDED) {
+                    LedgerAppender.close(filename + suffix);
+                }
+                LsmStore.close(LsmLedgerStorage.directory(filename));
+            }
+        });
+    }
+}
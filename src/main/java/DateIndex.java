@@ -0,0 +1,238 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Sparse date index over a comma-separated ledger, kept in <ledger>.dix. The ledger is
+// treated as a sequence of monthly segments: maximal runs of consecutive lines whose dates
+// fall in the same month. The index stores each segment's month and byte range in file
+// order, so a date-range query reads only the segments of the months it overlaps. Like
+// SpendingAggregates it remembers how many ledger bytes it covers and only reads what was
+// appended since; a ledger that shrank is re-indexed from scratch.
+//   header: magic int, reserved int, covered length long
+//   entry:  month int (year * 12 + month - 1), from long, to long
+class DateIndex {
+    private static final int MAGIC = 0x44495831;
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 20;
+    // Segments closer than this are read as one range; the lines in between are filtered
+    // out by date anyway, and it keeps ledgers with interleaved months from turning into
+    // one small read per line.
+    private static final long MERGE_GAP = 64 * 1024;
+
+    private final File ledger;
+    private final Path indexPath;
+    private final int fieldCount;
+    private final int dateField;
+
+    // Lines with fieldCount fields carry their date in dateField; other lines are ignored.
+    public DateIndex(File ledger, int fieldCount, int dateField) {
+        this.ledger = ledger;
+        this.indexPath = Paths.get(ledger.getPath() + ".dix");
+        this.fieldCount = fieldCount;
+        this.dateField = dateField;
+    }
+
+    // Drops the index of a ledger that is about to be rewritten in place.
+    public static void invalidate(File ledger) throws IOException {
+        Files.deleteIfExists(Paths.get(ledger.getPath() + ".dix"));
+    }
+
+    // Visits the lines dated within [from, to], in file order.
+    public void read(LocalDate from, LocalDate to, LedgerVisitor visitor) throws IOException {
+        if (!ledger.exists()) {
+            return;
+        }
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        List<long[]> segments = segments(from.getYear() * 12 + from.getMonthValue() - 1,
+                to.getYear() * 12 + to.getMonthValue() - 1);
+        try (FileChannel channel = FileChannel.open(ledger.toPath(), StandardOpenOption.READ)) {
+            for (long[] segment : segments) {
+                LedgerReader.read(channel, segment[0], segment[1], line -> {
+                    if (line.fieldCount() == fieldCount) {
+                        int day = line.epochDay(dateField);
+                        if (day != LedgerLine.NOT_A_DATE && day >= fromDay && day <= toDay) {
+                            visitor.visit(line);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    // Byte ranges of the segments in [fromMonth, toMonth], nearby ones merged.
+    List<long[]> segments(int fromMonth, int toMonth) throws IOException {
+        List<long[]> segments = new ArrayList<>();
+        try (FileChannel index = update()) {
+            ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE * 4096);
+            long position = HEADER_SIZE;
+            long size = index.size();
+            while (position < size) {
+                buffer.clear();
+                int read = index.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                int entries = read / ENTRY_SIZE;
+                if (entries == 0) {
+                    break;
+                }
+                for (int i = 0; i < entries; i++) {
+                    int month = buffer.getInt(i * ENTRY_SIZE);
+                    if (month < fromMonth || month > toMonth) {
+                        continue;
+                    }
+                    long from = buffer.getLong(i * ENTRY_SIZE + 4);
+                    long to = buffer.getLong(i * ENTRY_SIZE + 12);
+                    long[] last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+                    if (last != null && from - last[1] <= MERGE_GAP) {
+                        last[1] = to;
+                    } else {
+                        segments.add(new long[]{from, to});
+                    }
+                }
+                position += (long) entries * ENTRY_SIZE;
+            }
+        }
+        return segments;
+    }
+
+    // Brings the index up to the end of the ledger and returns it open.
+    private FileChannel update() throws IOException {
+        FileChannel index = FileChannel.open(indexPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long covered = readHeader(index);
+            long ledgerSize = ledger.length();
+            if (covered > ledgerSize) {
+                covered = 0;
+            }
+            // Entries are written before the header, so a crash can leave some behind it.
+            long entries = (index.size() - HEADER_SIZE) / ENTRY_SIZE;
+            ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+            while (entries > 0) {
+                entry.clear();
+                index.read(entry, HEADER_SIZE + (entries - 1) * ENTRY_SIZE);
+                if (entry.getLong(4) < covered) {
+                    break;
+                }
+                entries--;
+            }
+            index.truncate(HEADER_SIZE + entries * ENTRY_SIZE);
+            if (covered == ledgerSize) {
+                writeHeader(index, covered);
+                return index;
+            }
+
+            Segmenter segmenter = new Segmenter(index, entries, covered);
+            if (entries > 0) {
+                entry.clear();
+                index.read(entry, HEADER_SIZE + (entries - 1) * ENTRY_SIZE);
+                if (entry.getLong(12) >= covered) {
+                    // The last segment runs to the end of what was covered; it may continue.
+                    segmenter.resume(entry.getInt(0), entry.getLong(4));
+                }
+            }
+            long end = LedgerReader.read(ledger, covered, segmenter);
+            segmenter.finish(end);
+            writeHeader(index, end);
+            return index;
+        } catch (IOException | RuntimeException e) {
+            index.close();
+            throw e;
+        }
+    }
+
+    private class Segmenter implements LedgerVisitor {
+        private final FileChannel index;
+        private final ByteBuffer pending = ByteBuffer.allocate(ENTRY_SIZE * 1024);
+        private long entries;
+        private int month = LedgerLine.NOT_A_DATE;
+        private long from;
+        private boolean resumed;
+
+        Segmenter(FileChannel index, long entries, long covered) {
+            this.index = index;
+            this.entries = entries;
+            this.from = covered;
+        }
+
+        void resume(int month, long from) {
+            this.month = month;
+            this.from = from;
+            this.resumed = true;
+        }
+
+        public void visit(LedgerLine line) throws IOException {
+            if (line.fieldCount() != fieldCount) {
+                return;
+            }
+            int lineMonth = line.monthIndex(dateField);
+            if (lineMonth == LedgerLine.NOT_A_DATE || lineMonth == month) {
+                return;
+            }
+            close(line.offset());
+            month = lineMonth;
+            from = line.offset();
+        }
+
+        void finish(long end) throws IOException {
+            close(end);
+            flush();
+        }
+
+        private void close(long to) throws IOException {
+            if (month == LedgerLine.NOT_A_DATE) {
+                return;
+            }
+            if (resumed) {
+                // Rewrite the resumed segment in place rather than adding a new one.
+                resumed = false;
+                flush();
+                entries--;
+            }
+            if (!pending.hasRemaining()) {
+                flush();
+            }
+            pending.putInt(month).putLong(from).putLong(to);
+        }
+
+        private void flush() throws IOException {
+            pending.flip();
+            long position = HEADER_SIZE + entries * ENTRY_SIZE;
+            entries += pending.remaining() / ENTRY_SIZE;
+            while (pending.hasRemaining()) {
+                position += index.write(pending, position);
+            }
+            pending.clear();
+        }
+    }
+
+    private static long readHeader(FileChannel index) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (index.size() < HEADER_SIZE || index.read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC
+                || (index.size() - HEADER_SIZE) % ENTRY_SIZE != 0) {
+            index.truncate(0);
+            writeHeader(index, 0);
+            return 0;
+        }
+        return header.getLong(8);
+    }
+
+    private static void writeHeader(FileChannel index, long covered) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(0).putLong(covered).flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += index.write(header, position);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+class DetailedReport implements ReportStrategy {
+    private final LocalDate from;
+    private final LocalDate to;
+    private final ReportSink sink;
+
+    public DetailedReport() {
+        this(null, null);
+    }
+
+    // Only expenses dated within [from, to]; read through the ledger's DateIndex.
+    public DetailedReport(LocalDate from, LocalDate to) {
+        this(from, to, ReportSink.console());
+    }
+
+    // Renders into the sink (an export file, say) instead of the console; from and to are
+    // null for every expense. The sink is closed once the report is written.
+    public DetailedReport(LocalDate from, LocalDate to, ReportSink sink) {
+        this.from = from;
+        this.to = to;
+        this.sink = sink;
+    }
+
+    public void generate(String filename) {
+        try (ReportSink out = sink) {
+            if (!hasExpenses(filename)) {
+                out.message("No expenses found.");
+                return;
+            }
+            out.begin("Detailed Report:", from, to);
+            if (from != null) {
+                rowsBetween(filename, from, to, out);
+            } else {
+                rows(filename, 0, out);
+            }
+        } catch (Exception e) {
+            System.out.println("Error generating details: " + e.getMessage());
+        }
+    }
+
+    public void generate(String filename, User user) {
+        if (!user.isInMemory()) {
+            generate(filename);
+            return;
+        }
+        try (ReportSink out = sink) {
+            List<Expense> expenses = user.getExpenses();
+            if (expenses.isEmpty()) {
+                out.message("No expenses found.");
+                return;
+            }
+            out.begin("Detailed Report:", from, to);
+            if (from == null) {
+                rows(expenses, 0, out);
+                return;
+            }
+            String fromText = from.toString();
+            String toText = to.toString();
+            ExpenseRow row = new ExpenseRow();
+            for (int i = 0; i < expenses.size(); i++) {
+                if (SummaryReport.within(expenses.get(i).getDate(), fromText, toText)) {
+                    row.set(expenses.get(i), i);
+                    out.row(row);
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("Error generating details: " + e.getMessage());
+        }
+    }
+
+    static boolean hasExpenses(String filename) throws IOException {
+        if (BinaryLedger.isEnabled(filename)) {
+            return BinaryLedger.exists(filename);
+        }
+        return LedgerStorage.forUser(filename).end(LedgerStorage.Ledger.EXPENSES) > 0;
+    }
+
+    // Sends every expense from `start` on to the sink: a ledger position for text and LSM
+    // ledgers, a row number for binary ones.
+    static void rows(String filename, long start, ReportSink sink) throws IOException {
+        ExpenseRow row = new ExpenseRow();
+        if (BinaryLedger.isEnabled(filename)) {
+            if (!BinaryLedger.exists(filename)) {
+                return;
+            }
+            BinaryLedger ledger = BinaryLedger.open(filename);
+            for (int r = (int) start; r < ledger.size(); r++) {
+                row.set(ledger, r);
+                sink.row(row);
+            }
+            return;
+        }
+        LedgerStorage.forUser(filename).read(LedgerStorage.Ledger.EXPENSES, start, line -> {
+            if (row.set(line)) {
+                sink.row(row);
+            }
+        });
+    }
+
+    // Same, from a session's in-memory expenses; `start` is a list index.
+    static void rows(List<Expense> expenses, long start, ReportSink sink) throws IOException {
+        ExpenseRow row = new ExpenseRow();
+        for (int i = (int) start; i < expenses.size(); i++) {
+            row.set(expenses.get(i), i);
+            sink.row(row);
+        }
+    }
+
+    static void rowsBetween(String filename, LocalDate from, LocalDate to, ReportSink sink) throws IOException {
+        ExpenseRow row = new ExpenseRow();
+        if (BinaryLedger.isEnabled(filename)) {
+            if (!BinaryLedger.exists(filename)) {
+                return;
+            }
+            BinaryLedger ledger = BinaryLedger.open(filename);
+            for (int r : ledger.rowsBetween(from, to)) {
+                row.set(ledger, r);
+                sink.row(row);
+            }
+            return;
+        }
+        LedgerStorage.forUser(filename).readBetween(LedgerStorage.Ledger.EXPENSES, from, to, line -> {
+            if (row.set(line)) {
+                sink.row(row);
+            }
+        });
+    }
+
+    // Appends the display form of an expense line; returns false for lines that aren't expenses.
+    static boolean appendLine(LedgerLine line, StringBuilder out) {
+        if (line.fieldCount() != 4) {
+            return false;
+        }
+        out.append("Category: ");
+        line.appendText(1, out);
+        out.append(", Amount: $");
+        line.appendText(0, out);
+        out.append(", Method: ");
+        line.appendText(2, out);
+        out.append(", Date: ");
+        line.appendText(3, out);
+        return true;
+    }
+}
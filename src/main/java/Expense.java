@@ -0,0 +1,50 @@
+class Expense {
+    private double amount;
+    private String amountText;
+    private String category;
+    private String paymentMethod;
+    private String date;
+
+    public Expense(double amount, String category, String paymentMethod, String date) {
+        this.amount = amount;
+        this.category = category;
+        this.paymentMethod = paymentMethod;
+        this.date = date;
+    }
+
+    // An expense read back from a text ledger, keeping its amount as written there ("12.50",
+    // "7", or a value that doesn't parse, in which case amount is NaN) for display.
+    public Expense(double amount, String amountText, String category, String paymentMethod, String date) {
+        this(amount, category, paymentMethod, date);
+        this.amountText = amountText;
+    }
+
+    public String toFileString() {
+        return amount + "," + category + "," + paymentMethod + "," + date;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getAmountText() {
+        return amountText != null ? amountText : String.valueOf(amount);
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public void displayExpense() {
+        System.out.println("Category: " + category + ", Amount: $" + amount +
+                ", Payment Method: " + paymentMethod + ", Date: " + date);
+    }
+}
@@ -0,0 +1,61 @@
+import java.io.IOException;
+import java.util.List;
+
+// Walks the expense ledger a page at a time. Each page starts where the last one stopped
+// (a ledger position, or a row number in a binary ledger), so paging to the end reads
+// every row once; skipping ahead counts past rows without rendering them. Given a user
+// whose model is in memory, it pages through that model's expense list instead.
+class ExpensePager {
+    private final String filename;
+    private final int pageSize;
+    private final List<Expense> expenses;
+    private long position;
+    private boolean more = true;
+
+    public ExpensePager(String filename, int pageSize) {
+        this(filename, pageSize, null);
+    }
+
+    public ExpensePager(String filename, int pageSize, User user) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1.");
+        }
+        this.filename = filename;
+        this.pageSize = pageSize;
+        this.expenses = user != null && user.isInMemory() ? user.getExpenses() : null;
+    }
+
+    public boolean hasMore() {
+        return more;
+    }
+
+    public void skipPages(long pages) throws IOException {
+        if (pages > 0 && more) {
+            read(new PageSink(null, pages * pageSize, 0));
+        }
+    }
+
+    // Renders the next page into the sink, without closing it, and returns the number of
+    // rows written.
+    public int next(ReportSink sink) throws IOException {
+        if (!more) {
+            return 0;
+        }
+        PageSink page = new PageSink(sink, 0, pageSize);
+        read(page);
+        return page.passed();
+    }
+
+    private void read(PageSink page) throws IOException {
+        try {
+            if (expenses != null) {
+                DetailedReport.rows(expenses, position, page);
+            } else {
+                DetailedReport.rows(filename, position, page);
+            }
+            more = false;
+        } catch (PageSink.Full full) {
+            position = page.next();
+        }
+    }
+}
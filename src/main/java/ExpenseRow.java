@@ -0,0 +1,49 @@
+// One expense on its way to a ReportSink. The builders are reused from row to row, so a
+// sink must copy anything it keeps. position is where the row sits: its ledger position,
+// its row number in a binary ledger, or its index in a session's expense list.
+class ExpenseRow {
+    final StringBuilder category = new StringBuilder();
+    final StringBuilder amount = new StringBuilder();
+    final StringBuilder method = new StringBuilder();
+    final StringBuilder date = new StringBuilder();
+    long position;
+
+    // Returns false for lines that aren't expenses.
+    boolean set(LedgerLine line) {
+        if (line.fieldCount() != 4) {
+            return false;
+        }
+        clear();
+        line.appendText(0, amount);
+        line.appendText(1, category);
+        line.appendText(2, method);
+        line.appendText(3, date);
+        position = line.offset();
+        return true;
+    }
+
+    void set(BinaryLedger ledger, int row) {
+        clear();
+        amount.append(ledger.amount(row));
+        category.append(ledger.name(ledger.category(row)));
+        method.append(ledger.name(ledger.method(row)));
+        date.append(ledger.date(row));
+        position = row;
+    }
+
+    void set(Expense expense, int index) {
+        clear();
+        amount.append(expense.getAmountText());
+        category.append(expense.getCategory());
+        method.append(expense.getPaymentMethod());
+        date.append(expense.getDate());
+        position = index;
+    }
+
+    private void clear() {
+        category.setLength(0);
+        amount.setLength(0);
+        method.setLength(0);
+        date.setLength(0);
+    }
+}
@@ -0,0 +1,51 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+// Streams an export to a UTF-8 file as rows arrive, so it runs in constant memory whatever
+// the size of the ledger. A sink closed without begin() (no expenses) still leaves a
+// well-formed, empty export.
+abstract class ExportSink extends WriterSink {
+    private boolean begun;
+    private long rows;
+
+    protected ExportSink(File file) throws IOException {
+        super(new FileOutputStream(file), StandardCharsets.UTF_8, true);
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public void begin(String title, LocalDate from, LocalDate to) throws IOException {
+        begun = true;
+        header(from, to);
+    }
+
+    public void row(ExpenseRow row) throws IOException {
+        write(row, rows++);
+    }
+
+    public void message(String text) {
+    }
+
+    public void close() throws IOException {
+        try {
+            if (!begun) {
+                header(null, null);
+            }
+            footer();
+        } finally {
+            super.close();
+        }
+    }
+
+    protected abstract void header(LocalDate from, LocalDate to) throws IOException;
+
+    protected abstract void write(ExpenseRow row, long index) throws IOException;
+
+    protected void footer() throws IOException {
+    }
+}
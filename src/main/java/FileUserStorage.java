@@ -0,0 +1,156 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Scanner;
+
+class FileUserStorage implements UserStorage {
+    private static final Metrics.Timer SAVE = Metrics.timer("users.save");
+    private static final Metrics.Timer LOGIN = Metrics.timer("users.login");
+    // Shared with LedgerAppender's appends and IndexedUserStorage, which read this file too.
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private final String filePath;
+
+    public FileUserStorage() {
+        this("users.txt");
+    }
+
+    public FileUserStorage(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public boolean isEmailExists(String email) throws IOException {
+        File file = new File(filePath);
+        if (!file.exists()) return false;
+
+        Scanner scanner = new Scanner(file, CHARSET.name());
+        while (scanner.hasNextLine()) {
+            String[] data = scanner.nextLine().split(",");
+            if (data.length >= 2 && data[1].equalsIgnoreCase(email)) {
+                scanner.close();
+                return true;
+            }
+        }
+        scanner.close();
+        return false;
+    }
+
+    public void saveUser(User user) throws IOException {
+        long start = Metrics.start();
+        LedgerAppender.appendLine(filePath, user.toFileString());
+        SAVE.stop(start);
+    }
+
+    public boolean login(String email, String password) throws IOException {
+        long start = Metrics.start();
+        try {
+            return checkCredentials(email, password);
+        } finally {
+            LOGIN.stop(start);
+        }
+    }
+
+    private boolean checkCredentials(String email, String password) throws IOException {
+        File file = new File(filePath);
+        if (!file.exists()) return false;
+
+        Scanner scanner = new Scanner(file, CHARSET.name());
+        while (scanner.hasNextLine()) {
+            String[] data = scanner.nextLine().split(",");
+            if (data.length >= 3) {
+                String storedEmail = data[1];
+                String storedPassword = data[2];
+                if (storedEmail.equalsIgnoreCase(email)) {
+                    if (PasswordHasher.verify(password, storedPassword)) {
+                        scanner.close();
+                        if (PasswordHasher.needsRehash(storedPassword)) {
+                            rehash(storedEmail, storedPassword, PasswordHasher.hash(password));
+                        }
+                        return true;
+                    } else {
+                        scanner.close();
+                        System.out.println("Wrong password.");
+                        return false;
+                    }
+                }
+            }
+        }
+        scanner.close();
+        System.out.println("Email not found.");
+        return false;
+    }
+
+    // Appends the email's first record with the new hash and overwrites the old line with
+    // '#', as IndexedUserStorage does, so users.txt stays append-only for the index built
+    // over it. Holds the lock IndexedUserStorage takes on users.txt. Does nothing if the
+    // stored hash changed meanwhile.
+    private synchronized void rehash(String email, String storedHash, String hashed) throws IOException {
+        LedgerAppender.close(filePath);
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                byte[] bytes = new byte[(int) channel.size()];
+                int end = 0;
+                while (end < bytes.length) {
+                    int read = channel.read(ByteBuffer.wrap(bytes, end, bytes.length - end), end);
+                    if (read <= 0) {
+                        break;
+                    }
+                    end += read;
+                }
+                int start = 0;
+                while (start < end) {
+                    int stop = start;
+                    while (stop < end && bytes[stop] != '\n') {
+                        stop++;
+                    }
+                    int length = stop > start && bytes[stop - 1] == '\r' ? stop - 1 - start : stop - start;
+                    String[] data = new String(bytes, start, length, CHARSET).split(",", -1);
+                    if (data.length >= 3 && data[1].equalsIgnoreCase(email)) {
+                        if (data[2].equals(storedHash)) {
+                            data[2] = hashed;
+                            replace(channel, start, length, String.join(",", data), end);
+                        }
+                        return;
+                    }
+                    start = stop + 1;
+                }
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private static void replace(FileChannel channel, long offset, int length, String record, long end)
+            throws IOException {
+        StringBuilder line = new StringBuilder();
+        if (end > 0 && !endsWithNewline(channel, end)) {
+            line.append(System.lineSeparator());
+        }
+        line.append(record).append(System.lineSeparator());
+        write(channel, line.toString().getBytes(CHARSET), end);
+        byte[] blank = new byte[length];
+        Arrays.fill(blank, (byte) '#');
+        write(channel, blank, offset);
+    }
+
+    private static boolean endsWithNewline(FileChannel channel, long end) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, end - 1);
+        return last.get(0) == '\n';
+    }
+
+    private static void write(FileChannel channel, byte[] bytes, long at) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            at += channel.write(buffer, at);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+class Goal {
+    private String title;
+    private double targetAmount;
+    private double currentAmount;
+    private String deadline;
+
+    public Goal(String title, double targetAmount, double currentAmount, String deadline) {
+        this.title = title;
+        this.targetAmount = targetAmount;
+        this.currentAmount = currentAmount;
+        this.deadline = deadline;
+    }
+
+    public String toFileString() {
+        return title + "," + targetAmount + "," + currentAmount + "," + deadline;
+    }
+
+    public void displayGoal() {
+        System.out.println(" Goal: " + title + " | Target: $" + targetAmount +
+                " | Saved: $" + currentAmount + " | Deadline: " + deadline);
+    }
+
+    public boolean isCompleted() {
+        return currentAmount >= targetAmount;
+    }
+}
@@ -0,0 +1,273 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+// Goal progress projected from the income ledger. <user>_goalrules.txt holds allocation
+// rules "goal,percent|fixed,value,source,from": every income at or after position `from`
+// of the user's income ledger whose source matches (or the rule's source is *) puts that
+// share toward the goal, never past its target. A goal's progress is its typed-in amount
+// plus what it has been allocated. Like SpendingAggregates, the projection is stored in
+// <user>_goalprogress.txt with how far each file has been read, so updates only fold in
+// what was appended since, and is rewritten on the same schedule.
+class GoalProgress {
+    private final String filename;
+    private final Map<String, Tracked> goals = new LinkedHashMap<>();
+    private final List<Rule> rules = new ArrayList<>();
+    private long incomesLength;
+    private long goalsLength;
+    private long rulesLength;
+    private boolean dirty;
+    private long savedAt;
+
+    private static final class Tracked {
+        double target;
+        double typed;
+        double allocated;
+        String deadline;
+
+        double saved() {
+            return typed + allocated;
+        }
+    }
+
+    private static final class Rule {
+        final String goal;
+        final boolean fixed;
+        final double value;
+        final String source;
+        final long from;
+
+        Rule(String goal, boolean fixed, double value, String source, long from) {
+            this.goal = goal;
+            this.fixed = fixed;
+            this.value = value;
+            this.source = source;
+            this.from = from;
+        }
+
+        String toFileString() {
+            return goal + "," + (fixed ? "fixed" : "percent") + "," + value + "," + source + "," + from;
+        }
+    }
+
+    private GoalProgress(String filename) {
+        this.filename = filename;
+    }
+
+    public static GoalProgress load(String filename) throws IOException {
+        GoalProgress progress = new GoalProgress(filename);
+        progress.readSnapshot();
+        progress.update();
+        return progress;
+    }
+
+    private void readSnapshot() throws IOException {
+        clear();
+        dirty = false;
+        File file = new File(filename + "_goalprogress.txt");
+        if (!file.exists()) {
+            return;
+        }
+        try (Scanner scan = new Scanner(file)) {
+            while (scan.hasNextLine()) {
+                String[] parts = scan.nextLine().split(",");
+                if (parts[0].equals("#") && parts.length == 4) {
+                    incomesLength = Long.parseLong(parts[1]);
+                    goalsLength = Long.parseLong(parts[2]);
+                    rulesLength = Long.parseLong(parts[3]);
+                } else if (parts[0].equals("G") && parts.length == 6) {
+                    Tracked goal = new Tracked();
+                    goal.target = Double.parseDouble(parts[2]);
+                    goal.typed = Double.parseDouble(parts[3]);
+                    goal.allocated = Double.parseDouble(parts[4]);
+                    goal.deadline = parts[5];
+                    goals.put(parts[1], goal);
+                } else if (parts[0].equals("R") && parts.length == 6) {
+                    rules.add(new Rule(parts[1], parts[2].equals("fixed"),
+                            Double.parseDouble(parts[3]), parts[4], Long.parseLong(parts[5])));
+                }
+            }
+        } catch (NumberFormatException e) {
+            clear();
+        }
+    }
+
+    private void clear() {
+        goals.clear();
+        rules.clear();
+        incomesLength = 0;
+        goalsLength = 0;
+        rulesLength = 0;
+    }
+
+    public boolean hasGoal(String title) {
+        return goals.containsKey(title);
+    }
+
+    // Current progress of every goal, read from the projection rather than the ledgers.
+    public List<Goal> getGoals() {
+        List<Goal> result = new ArrayList<>(goals.size());
+        for (Map.Entry<String, Tracked> entry : goals.entrySet()) {
+            Tracked goal = entry.getValue();
+            result.add(new Goal(entry.getKey(), goal.target, goal.saved(), goal.deadline));
+        }
+        return result;
+    }
+
+    // Records a rule that applies to incomes added from now on. The caller holds the user lock.
+    public void addRule(String goal, boolean fixed, double value, String source) throws IOException {
+        update();
+        long from = LedgerStorage.forUser(filename).end(LedgerStorage.Ledger.INCOMES);
+        Rule rule = new Rule(goal, fixed, value, source, from);
+        LedgerAppender.appendLine(filename + "_goalrules.txt", rule.toFileString());
+        update();
+    }
+
+    // Folds in goals, rules and incomes appended since the last update. Goals and rules go
+    // first so that an income is matched against every rule that was in force when it was
+    // written; rules carry the income offset they start from.
+    public void update() throws IOException {
+        update(true);
+    }
+
+    private void update(boolean reload) throws IOException {
+        LedgerStorage storage = LedgerStorage.forUser(filename);
+        long goalsEnd = storage.read(LedgerStorage.Ledger.GOALS, goalsLength, this::applyGoal);
+        long rulesEnd = readLines(new File(filename + "_goalrules.txt"), rulesLength, this::applyRule);
+        long incomesEnd = storage.read(LedgerStorage.Ledger.INCOMES, incomesLength, this::applyIncome);
+        if (goalsEnd < 0 || rulesEnd < 0 || incomesEnd < 0) {
+            // A file shrank underneath us: after compaction the snapshot matches it, otherwise
+            // everything is replayed.
+            if (reload) {
+                readSnapshot();
+            } else {
+                clear();
+                dirty = true;
+            }
+            update(false);
+            return;
+        }
+        if (goalsEnd != goalsLength || rulesEnd != rulesLength || incomesEnd != incomesLength) {
+            goalsLength = goalsEnd;
+            rulesLength = rulesEnd;
+            incomesLength = incomesEnd;
+            dirty = true;
+        }
+        if (dirty && System.currentTimeMillis() - savedAt >= SpendingAggregates.CHECKPOINT_INTERVAL) {
+            save();
+        }
+    }
+
+    // Writes the snapshot if it is behind. Called under the user lock.
+    public void checkpoint() throws IOException {
+        if (dirty) {
+            save();
+        }
+    }
+
+    // Called by Compactor, under the user lock, after this instance was brought up to date
+    // and <user>_goals.txt was rewritten to the latest line per title.
+    public void goalsCompacted(long length) throws IOException {
+        goalsLength = length;
+        save();
+    }
+
+    // Adding a goal with an existing title redefines its target, amount and deadline but
+    // keeps what it has already been allocated.
+    private void applyGoal(LedgerLine line) {
+        if (line.fieldCount() == 4) {
+            try {
+                Tracked goal = goals.computeIfAbsent(line.text(0), title -> new Tracked());
+                goal.target = line.parseDouble(1);
+                goal.typed = line.parseDouble(2);
+                goal.deadline = line.text(3);
+            } catch (NumberFormatException e) {
+                // Malformed amount; the line is ignored like any other unreadable record.
+            }
+        }
+    }
+
+    private void applyRule(LedgerLine line) {
+        if (line.fieldCount() == 5) {
+            try {
+                rules.add(new Rule(line.text(0), line.text(1).equals("fixed"), line.parseDouble(2),
+                        line.text(3), Long.parseLong(line.text(4))));
+            } catch (NumberFormatException e) {
+                // Malformed rule; ignored.
+            }
+        }
+    }
+
+    private void applyIncome(LedgerLine line) {
+        if (line.fieldCount() != 3 || rules.isEmpty()) {
+            return;
+        }
+        double amount;
+        try {
+            amount = line.parseDouble(1);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        String source = null;
+        for (Rule rule : rules) {
+            if (rule.from > line.offset()) {
+                continue;
+            }
+            if (!rule.source.equals("*")) {
+                if (source == null) {
+                    source = line.text(0);
+                }
+                if (!rule.source.equalsIgnoreCase(source)) {
+                    continue;
+                }
+            }
+            Tracked goal = goals.get(rule.goal);
+            if (goal == null) {
+                continue;
+            }
+            double share = rule.fixed ? Math.min(rule.value, amount) : amount * rule.value / 100;
+            double room = goal.target - goal.saved();
+            if (share > 0 && room > 0) {
+                goal.allocated += Math.min(share, room);
+            }
+        }
+    }
+
+    private static long readLines(File file, long from, LedgerVisitor visitor) throws IOException {
+        if (!file.exists()) {
+            return from == 0 ? 0 : -1;
+        }
+        return LedgerReader.read(file, from, visitor);
+    }
+
+    private void save() throws IOException {
+        File tmp = new File(filename + "_goalprogress.txt.tmp");
+        BufferedWriter writer = new BufferedWriter(new FileWriter(tmp));
+        writer.write("#," + incomesLength + "," + goalsLength + "," + rulesLength);
+        writer.newLine();
+        for (Map.Entry<String, Tracked> entry : goals.entrySet()) {
+            Tracked goal = entry.getValue();
+            writer.write("G," + entry.getKey() + "," + goal.target + "," + goal.typed + "," + goal.allocated
+                    + "," + goal.deadline);
+            writer.newLine();
+        }
+        for (Rule rule : rules) {
+            writer.write("R," + rule.toFileString());
+            writer.newLine();
+        }
+        writer.close();
+        Files.move(tmp.toPath(), Paths.get(filename + "_goalprogress.txt"),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+        savedAt = System.currentTimeMillis();
+    }
+}
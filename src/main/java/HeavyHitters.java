@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Space-saving heavy hitters, weighted: keeps at most CAPACITY names with the amount seen
+// for each. A new name takes the slot of the smallest one and inherits its amount as an
+// overestimate, so any name whose true share exceeds total / CAPACITY is always kept, and
+// a kept name's amount is high by at most its error. Merging follows Agarwal et al.: a
+// name missing from a full summary is credited with that summary's minimum.
+class HeavyHitters {
+    static final int CAPACITY = 256;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private String[] names = new String[8];
+    private long[] weights = new long[8];
+    private long[] errors = new long[8];
+    private int size;
+
+    public void add(String name, long weight) {
+        add(name, weight, 0);
+    }
+
+    private void add(String name, long weight, long error) {
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            weights[slot] += weight;
+            errors[slot] += error;
+            return;
+        }
+        if (size < CAPACITY) {
+            put(size++, name, weight, error);
+            return;
+        }
+        int smallest = smallest();
+        slots.remove(names[smallest]);
+        put(smallest, name, weights[smallest] + weight, weights[smallest] + error);
+    }
+
+    public void merge(HeavyHitters other) {
+        long ours = size == CAPACITY ? weights[smallest()] : 0;
+        long theirs = other.size == CAPACITY ? other.weights[other.smallest()] : 0;
+        Map<String, long[]> merged = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            merged.put(names[i], new long[] {weights[i] + theirs, errors[i] + theirs});
+        }
+        for (int i = 0; i < other.size; i++) {
+            long[] entry = merged.get(other.names[i]);
+            if (entry == null) {
+                merged.put(other.names[i], new long[] {other.weights[i] + ours, other.errors[i] + ours});
+            } else {
+                entry[0] += other.weights[i] - theirs;
+                entry[1] += other.errors[i] - theirs;
+            }
+        }
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(merged.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        slots.clear();
+        size = 0;
+        for (Map.Entry<String, long[]> entry : entries.subList(0, Math.min(CAPACITY, entries.size()))) {
+            put(size++, entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+        }
+    }
+
+    // Slots of the `limit` largest names, largest first.
+    public int[] top(int limit) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(weights[b], weights[a]));
+        int[] top = new int[Math.min(limit, size)];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = order[i];
+        }
+        return top;
+    }
+
+    public String name(int slot) {
+        return names[slot];
+    }
+
+    public long weight(int slot) {
+        return weights[slot];
+    }
+
+    public long error(int slot) {
+        return errors[slot];
+    }
+
+    // One "prefix,weight,error,name" line per kept name.
+    public void write(String prefix, StringBuilder out) {
+        for (int i = 0; i < size; i++) {
+            out.append(prefix).append(',').append(weights[i]).append(',').append(errors[i]).append(',')
+                    .append(names[i]).append(System.lineSeparator());
+        }
+    }
+
+    public void read(String[] parts, int at) {
+        add(parts[at + 2], Long.parseLong(parts[at]), Long.parseLong(parts[at + 1]));
+    }
+
+    private void put(int slot, String name, long weight, long error) {
+        if (slot == names.length) {
+            names = Arrays.copyOf(names, Math.min(CAPACITY, slot * 2));
+            weights = Arrays.copyOf(weights, names.length);
+            errors = Arrays.copyOf(errors, names.length);
+        }
+        names[slot] = name;
+        weights[slot] = weight;
+        errors[slot] = error;
+        slots.put(name, slot);
+    }
+
+    private int smallest() {
+        int smallest = 0;
+        for (int i = 1; i < size; i++) {
+            if (weights[i] < weights[smallest]) {
+                smallest = i;
+            }
+        }
+        return smallest;
+    }
+}
@@ -0,0 +1,42 @@
+// Anoud Part
+class Income {
+    private String source;
+    private double amount;
+    private String date;
+
+    public Income(String source, double amount, String date) {
+        this.source = source;
+        this.amount = amount;
+        this.date = date;
+    }
+
+    public String toFileString() {
+        return source + "," + amount + "," + date;
+    }
+
+    public void displayIncome() {
+        System.out.println("Source: " + source + ", Amount: $" + amount + ", Date: " + date);
+    }
+
+    public static boolean isValidSource(String source) {
+        return source != null && source.length() >= 3 && source.length() <= 50;
+    }
+
+    public static boolean isValidAmount(double amount) {
+        return amount > 0;
+    }
+
+    // YYYY-MM-DD with ASCII digits, checked by hand: statement imports call this per row.
+    public static boolean isValidDate(String date) {
+        if (date.length() != 10) {
+            return false;
+        }
+        for (int i = 0; i < 10; i++) {
+            char c = date.charAt(i);
+            if ((i == 4 || i == 7) ? c != '-' : (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,433 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Same users.txt records as FileUserStorage, but looked up through a memory-mapped
+// open-addressing hash index (users.idx) on the lower-cased email. users.txt stays an
+// append-only data segment; anything appended behind our back is indexed on next access.
+// Every access holds an exclusive lock on users.txt, so processes sharing the files append
+// at the real end and see each other's index updates.
+class IndexedUserStorage implements UserStorage {
+    private static final Metrics.Timer SAVE = Metrics.timer("users.save");
+    private static final Metrics.Timer LOGIN = Metrics.timer("users.login");
+    private static final int MAGIC = 0x55494458;
+    private static final int HEADER_SIZE = 24;
+    private static final int SLOT_SIZE = 12;
+    private static final int MIN_CAPACITY = 1024;
+    // The charset FileUserStorage and LedgerAppender write users.txt in.
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private final FileChannel data;
+    private FileChannel index;
+    private Object indexKey;
+    private MappedByteBuffer table;
+    private int capacity;
+    private int size;
+    private long indexedLength;
+
+    public IndexedUserStorage() throws IOException {
+        this("users.txt", "users.idx");
+    }
+
+    public IndexedUserStorage(String dataFile, String indexFile) throws IOException {
+        this.dataPath = Paths.get(dataFile);
+        this.indexPath = Paths.get(indexFile);
+        this.data = FileChannel.open(dataPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Opens or builds users.idx and indexes whatever it doesn't cover yet.
+        locked(() -> null);
+    }
+
+    public boolean isEmailExists(String email) throws IOException {
+        return locked(() -> lookup(email) >= 0);
+    }
+
+    public void saveUser(User user) throws IOException {
+        long start = Metrics.start();
+        append(user);
+        SAVE.stop(start);
+    }
+
+    private void append(User user) throws IOException {
+        locked(() -> {
+            appendRecord(user.getEmail(), user.toFileString());
+            return null;
+        });
+    }
+
+    // Appends the record at the end of users.txt and indexes it unless the email already
+    // is. Returns the record's offset. Called under the locks.
+    private long appendRecord(String email, String record) throws IOException {
+        long end = data.size();
+        StringBuilder line = new StringBuilder();
+        if (end > 0 && !endsWithNewline(end)) {
+            line.append(System.lineSeparator());
+        }
+        long offset = end + line.length();
+        line.append(record).append(System.lineSeparator());
+
+        ByteBuffer bytes = ByteBuffer.wrap(line.toString().getBytes(CHARSET));
+        while (bytes.hasRemaining()) {
+            end += data.write(bytes, end);
+        }
+        if (lookup(email) < 0) {
+            insert(hash(email), offset);
+        }
+        indexedLength = end;
+        writeHeader();
+        return offset;
+    }
+
+    public boolean login(String email, String password) throws IOException {
+        long start = Metrics.start();
+        try {
+            return checkCredentials(email, password);
+        } finally {
+            LOGIN.stop(start);
+        }
+    }
+
+    // Only the lookup holds the locks; the password hash is checked outside them so
+    // concurrent logins verify in parallel.
+    private boolean checkCredentials(String email, String password) throws IOException {
+        String[] record = locked(() -> {
+            long offset = lookup(email);
+            return offset < 0 ? null : readLine(offset).split(",", -1);
+        });
+        if (record == null || record.length < 3) {
+            System.out.println("Email not found.");
+            return false;
+        }
+        if (!PasswordHasher.verify(password, record[2])) {
+            System.out.println("Wrong password.");
+            return false;
+        }
+        if (PasswordHasher.needsRehash(record[2])) {
+            String stored = record[2];
+            record[2] = PasswordHasher.hash(password);
+            rehash(email, stored, String.join(",", record));
+        }
+        return true;
+    }
+
+    // Appends the re-hashed record, points the index at it, and overwrites the old line
+    // with '#' so the superseded password doesn't stay on disk. Lines without a second
+    // field are skipped by every reader. Does nothing if the stored hash changed meanwhile.
+    private void rehash(String email, String storedHash, String record) throws IOException {
+        locked(() -> {
+            long oldOffset = lookup(email);
+            if (oldOffset < 0) {
+                return null;
+            }
+            String[] current = readLine(oldOffset).split(",");
+            if (current.length < 3 || !current[2].equals(storedHash)) {
+                return null;
+            }
+            // Blank the bytes actually on disk: older lines may not decode cleanly, so re-encoding
+            // the decoded text could give a different length and run into the next record.
+            byte[] oldLine = new byte[lineLength(oldOffset)];
+            long offset = appendRecord(email, record);
+            repoint(hash(email), oldOffset, offset);
+
+            Arrays.fill(oldLine, (byte) '#');
+            ByteBuffer blank = ByteBuffer.wrap(oldLine);
+            long at = oldOffset;
+            while (blank.hasRemaining()) {
+                at += data.write(blank, at);
+            }
+            return null;
+        });
+    }
+
+    // Runs the action under this instance's monitor and an exclusive lock on users.txt, after
+    // picking up what other processes changed in the index and appended to the data.
+    private synchronized <T> T locked(UserLocks.Action<T> action) throws IOException {
+        FileLock lock = data.lock();
+        try {
+            refresh();
+            catchUp();
+            return action.run();
+        } finally {
+            lock.release();
+        }
+    }
+
+    // Re-reads the shared header, or maps users.idx again if another process swapped in a
+    // new table (see createTable) or removed it.
+    private void refresh() throws IOException {
+        if (index != null && Files.exists(indexPath)) {
+            Object key = fileKey(indexPath);
+            if (key == null || key.equals(indexKey)) {
+                capacity = table.getInt(4);
+                size = table.getInt(8);
+                indexedLength = table.getLong(12);
+                return;
+            }
+        }
+        if (index != null) {
+            index.close();
+            index = null;
+        }
+        if (!openIndex()) {
+            createTable(MIN_CAPACITY, new int[0], new long[0], 0);
+        }
+    }
+
+    private void repoint(int hash, long oldOffset, long newOffset) {
+        int slot = (hash & 0x7fffffff) % capacity;
+        for (int probes = 0; probes < capacity; probes++) {
+            int at = HEADER_SIZE + slot * SLOT_SIZE;
+            if (table.getInt(at) == hash && table.getLong(at + 4) == oldOffset) {
+                table.putLong(at + 4, newOffset);
+                return;
+            }
+            slot = (slot + 1) % capacity;
+        }
+    }
+
+    private long lookup(String email) throws IOException {
+        int hash = hash(email);
+        int slot = (hash & 0x7fffffff) % capacity;
+        for (int probes = 0; probes < capacity; probes++) {
+            int at = HEADER_SIZE + slot * SLOT_SIZE;
+            int stored = table.getInt(at);
+            if (stored == 0) {
+                return -1;
+            }
+            if (stored == hash) {
+                long offset = table.getLong(at + 4);
+                String[] record = readLine(offset).split(",");
+                if (record.length >= 2 && record[1].equalsIgnoreCase(email)) {
+                    return offset;
+                }
+            }
+            slot = (slot + 1) % capacity;
+        }
+        return -1;
+    }
+
+    private void insert(int hash, long offset) throws IOException {
+        int slot = (hash & 0x7fffffff) % capacity;
+        while (table.getInt(HEADER_SIZE + slot * SLOT_SIZE) != 0) {
+            slot = (slot + 1) % capacity;
+        }
+        table.putInt(HEADER_SIZE + slot * SLOT_SIZE, hash);
+        table.putLong(HEADER_SIZE + slot * SLOT_SIZE + 4, offset);
+        size++;
+        if (size * 2 > capacity) {
+            grow();
+        }
+    }
+
+    private void grow() throws IOException {
+        int[] hashes = new int[size];
+        long[] offsets = new long[size];
+        int count = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int at = HEADER_SIZE + slot * SLOT_SIZE;
+            if (table.getInt(at) != 0) {
+                hashes[count] = table.getInt(at);
+                offsets[count] = table.getLong(at + 4);
+                count++;
+            }
+        }
+        createTable(capacity * 2, hashes, offsets, count);
+    }
+
+    // Indexes every line appended to users.txt since the index was last written.
+    private void catchUp() throws IOException {
+        long end = data.size();
+        if (end < indexedLength) {
+            // users.txt was rewritten or truncated; offsets are no longer valid.
+            indexedLength = 0;
+            createTable(capacity, new int[0], new long[0], 0);
+        }
+        if (end == indexedLength) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        byte[] line = new byte[256];
+        int length = 0;
+        long position = indexedLength;
+        long lineStart = position;
+        while (position < end) {
+            buffer.clear();
+            int read = data.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    indexLine(line, length, lineStart);
+                    length = 0;
+                    lineStart = position + i + 1;
+                } else {
+                    if (length == line.length) {
+                        line = Arrays.copyOf(line, length * 2);
+                    }
+                    line[length++] = b;
+                }
+            }
+            position += read;
+        }
+        if (length > 0) {
+            // Unterminated last line: index it, but look at it again once it is terminated.
+            indexLine(line, length, lineStart);
+        }
+        indexedLength = lineStart;
+        writeHeader();
+    }
+
+    private void indexLine(byte[] line, int length, long offset) throws IOException {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        int start = 0;
+        while (start < length && line[start] != ',') {
+            start++;
+        }
+        int stop = ++start;
+        while (stop < length && line[stop] != ',') {
+            stop++;
+        }
+        if (stop <= start) {
+            return;
+        }
+        String email = new String(line, start, stop - start, CHARSET);
+        if (lookup(email) < 0) {
+            insert(hash(email), offset);
+        }
+    }
+
+    private String readLine(long offset) throws IOException {
+        ByteBuffer buffer = lineBytes(offset);
+        return decode(buffer.array(), buffer.limit());
+    }
+
+    // Bytes from offset up to the line's '\r' or '\n', as stored.
+    private int lineLength(long offset) throws IOException {
+        ByteBuffer buffer = lineBytes(offset);
+        int end = buffer.limit();
+        return end > 0 && buffer.get(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    // The bytes from offset up to, not including, the next '\n' (or the end of the file),
+    // with the buffer's limit set to their length.
+    private ByteBuffer lineBytes(long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        int scanned = 0;
+        while (true) {
+            int read = data.read(buffer, offset + buffer.position());
+            int limit = buffer.position();
+            for (int i = scanned; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    return buffer.limit(i);
+                }
+            }
+            scanned = limit;
+            if (read <= 0) {
+                return buffer.limit(limit);
+            }
+            if (!buffer.hasRemaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                bigger.put(buffer);
+                buffer = bigger;
+            }
+        }
+    }
+
+    private static String decode(byte[] bytes, int end) {
+        if (end > 0 && bytes[end - 1] == '\r') {
+            end--;
+        }
+        return new String(bytes, 0, end, CHARSET);
+    }
+
+    private boolean endsWithNewline(long end) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        data.read(last, end - 1);
+        return last.get(0) == '\n';
+    }
+
+    private boolean openIndex() throws IOException {
+        if (!Files.exists(indexPath)) {
+            return false;
+        }
+        FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        if (fileSize >= HEADER_SIZE) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            int storedCapacity = buffer.getInt(4);
+            long storedLength = buffer.getLong(12);
+            if (buffer.getInt(0) == MAGIC && storedCapacity > 0
+                    && fileSize == HEADER_SIZE + (long) storedCapacity * SLOT_SIZE
+                    && storedLength <= data.size()) {
+                index = channel;
+                table = buffer;
+                capacity = storedCapacity;
+                size = buffer.getInt(8);
+                indexedLength = storedLength;
+                indexKey = fileKey(indexPath);
+                return true;
+            }
+        }
+        channel.close();
+        return false;
+    }
+
+    // Builds a fresh table next to the live one and swaps it in, so a crash never
+    // leaves a half-written users.idx behind.
+    private void createTable(int newCapacity, int[] hashes, long[] offsets, int count) throws IOException {
+        Path tmp = Paths.get(indexPath + ".tmp");
+        FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_SIZE + (long) newCapacity * SLOT_SIZE);
+        if (index != null) {
+            index.close();
+        }
+        index = channel;
+        table = buffer;
+        capacity = newCapacity;
+        size = 0;
+        for (int i = 0; i < count; i++) {
+            insert(hashes[i], offsets[i]);
+        }
+        writeHeader();
+        Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexKey = fileKey(indexPath);
+    }
+
+    // Identifies the file behind the path (its inode on Unix), or null where unsupported.
+    private static Object fileKey(Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+
+    private void writeHeader() {
+        table.putInt(0, MAGIC);
+        table.putInt(4, capacity);
+        table.putInt(8, size);
+        table.putLong(12, indexedLength);
+    }
+
+    private static int hash(String email) {
+        int h = email.toLowerCase(Locale.ROOT).hashCode();
+        return h == 0 ? 1 : h;
+    }
+}
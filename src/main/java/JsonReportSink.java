@@ -0,0 +1,108 @@
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+
+// {"from":..,"to":..,"expenses":[{"category":..,"amount":..,"method":..,"date":..},..]}
+// with one expense per line. from and to are null for a full export. Amounts that aren't
+// valid JSON numbers are written as strings.
+class JsonReportSink extends ExportSink {
+    public JsonReportSink(File file) throws IOException {
+        super(file);
+    }
+
+    protected void header(LocalDate from, LocalDate to) throws IOException {
+        line.append("{\"from\":");
+        string(from == null ? null : from.toString());
+        line.append(",\"to\":");
+        string(to == null ? null : to.toString());
+        line.append(",\"expenses\":[");
+        writeLine();
+    }
+
+    protected void write(ExpenseRow row, long index) throws IOException {
+        if (index > 0) {
+            line.append(',');
+        }
+        line.append("{\"category\":");
+        string(row.category);
+        line.append(",\"amount\":");
+        if (isNumber(row.amount)) {
+            line.append(row.amount);
+        } else {
+            string(row.amount);
+        }
+        line.append(",\"method\":");
+        string(row.method);
+        line.append(",\"date\":");
+        string(row.date);
+        line.append('}');
+        writeLine();
+    }
+
+    protected void footer() throws IOException {
+        line.append("]}");
+        writeLine();
+    }
+
+    private void string(CharSequence value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    // -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?
+    static boolean isNumber(CharSequence text) {
+        int i = 0;
+        int n = text.length();
+        if (i < n && text.charAt(i) == '-') {
+            i++;
+        }
+        int start = i;
+        while (i < n && isAsciiDigit(text.charAt(i))) {
+            i++;
+        }
+        if (i == start || (text.charAt(start) == '0' && i - start > 1)) {
+            return false;
+        }
+        if (i < n && text.charAt(i) == '.') {
+            start = ++i;
+            while (i < n && isAsciiDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < n && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < n && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                i++;
+            }
+            start = i;
+            while (i < n && isAsciiDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == start) {
+                return false;
+            }
+        }
+        return i == n;
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
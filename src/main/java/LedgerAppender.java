@@ -0,0 +1,294 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Long-lived appender for the line-oriented ledger files. One channel per file stays open
+// until close, and appends that arrive while a write is in flight are queued and written
+// together by the next caller (group commit), with at most one fsync per group.
+// append returns once its line has been written, so readers see it straight away; the
+// sync policy only decides when it is forced to disk:
+//   ALWAYS    fsync before append returns
+//   INTERVAL  fsync in the background every -Dledger.fsync.interval ms (default 100)
+//   OS        leave it to the OS; fsync only on close
+// The default comes from -Dledger.fsync=always|interval|os (default os). Other logs that
+// follow the default policy, such as LsmStore's write-ahead log, register a Syncable to be
+// synced by the same background task.
+class LedgerAppender {
+    enum SyncPolicy { ALWAYS, INTERVAL, OS }
+
+    interface Syncable {
+        void sync() throws IOException;
+    }
+
+    public static final SyncPolicy DEFAULT_POLICY =
+            SyncPolicy.valueOf(System.getProperty("ledger.fsync", "os").toUpperCase(Locale.ROOT));
+    public static final long SYNC_INTERVAL_MS = Long.getLong("ledger.fsync.interval", 100);
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(CHARSET);
+    private static final Map<String, LedgerAppender> OPEN = new HashMap<>();
+    private static final Set<Syncable> LOGS = new HashSet<>();
+    private static ScheduledExecutorService syncer;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(LedgerAppender::closeAllQuietly));
+    }
+
+    private final String path;
+    private final SyncPolicy policy;
+    private final FileChannel channel;
+    private List<byte[]> pending = new ArrayList<>();
+    private long enqueued;
+    private long written;
+    private boolean writing;
+    private boolean dirty;
+    private boolean closed;
+    private IOException failure;
+    private long failedFrom;
+    private long failedTo;
+
+    private LedgerAppender(String path, SyncPolicy policy) throws IOException {
+        this.path = path;
+        this.policy = policy;
+        this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    public static LedgerAppender forFile(String path) throws IOException {
+        return forFile(path, DEFAULT_POLICY);
+    }
+
+    // The policy only applies when the file isn't open yet; an open appender keeps its own.
+    public static synchronized LedgerAppender forFile(String path, SyncPolicy policy) throws IOException {
+        LedgerAppender appender = OPEN.get(path);
+        if (appender == null) {
+            appender = new LedgerAppender(path, policy);
+            OPEN.put(path, appender);
+            if (policy == SyncPolicy.INTERVAL) {
+                startSyncer();
+            }
+        }
+        return appender;
+    }
+
+    // Under the INTERVAL default, has the log synced with the appenders until unregistered;
+    // under ALWAYS the log syncs each write itself, and under OS it is left to the OS.
+    public static synchronized void register(Syncable log) {
+        if (DEFAULT_POLICY == SyncPolicy.INTERVAL) {
+            LOGS.add(log);
+            startSyncer();
+        }
+    }
+
+    public static synchronized void unregister(Syncable log) {
+        LOGS.remove(log);
+    }
+
+    private static void startSyncer() {
+        if (syncer == null) {
+            syncer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "ledger-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(LedgerAppender::syncAll,
+                    SYNC_INTERVAL_MS, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Shorthand for appending one record through the file's shared appender.
+    public static void appendLine(String path, String line) throws IOException {
+        forFile(path).append(line);
+    }
+
+    // Flushes and closes the appender for one file, if open. Call before a file is moved,
+    // replaced or deleted so the next append reopens it by name.
+    public static void close(String path) throws IOException {
+        LedgerAppender appender;
+        synchronized (LedgerAppender.class) {
+            appender = OPEN.remove(path);
+        }
+        if (appender != null) {
+            appender.shutdown();
+        }
+    }
+
+    // Flushes and closes every appender, e.g. on exit.
+    public static void closeAll() throws IOException {
+        List<LedgerAppender> matching;
+        synchronized (LedgerAppender.class) {
+            matching = new ArrayList<>(OPEN.values());
+            OPEN.clear();
+        }
+        IOException first = null;
+        for (LedgerAppender appender : matching) {
+            try {
+                appender.shutdown();
+            } catch (IOException e) {
+                if (first == null) {
+                    first = e;
+                }
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+    }
+
+    public void append(String line) throws IOException {
+        byte[] record = line.getBytes(CHARSET);
+        List<byte[]> batch;
+        long first;
+        long last;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Ledger appender for " + path + " is closed");
+            }
+            pending.add(record);
+            long sequence = ++enqueued;
+            while (writing && written < sequence) {
+                pause();
+            }
+            if (written >= sequence) {
+                if (failure != null && sequence >= failedFrom && sequence <= failedTo) {
+                    throw new IOException("Append to " + path + " failed", failure);
+                }
+                return;
+            }
+            writing = true;
+            batch = pending;
+            pending = new ArrayList<>();
+            first = written + 1;
+            last = enqueued;
+        }
+
+        IOException error = null;
+        try {
+            write(batch);
+        } catch (IOException e) {
+            error = e;
+        }
+        synchronized (this) {
+            written = last;
+            writing = false;
+            if (error != null) {
+                failure = error;
+                failedFrom = first;
+                failedTo = last;
+            }
+            notifyAll();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // Forces everything written so far to disk.
+    public void flush() throws IOException {
+        synchronized (this) {
+            while (written < enqueued) {
+                pause();
+            }
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+        }
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            throw e;
+        }
+    }
+
+    private void write(List<byte[]> batch) throws IOException {
+        int size = 0;
+        for (byte[] record : batch) {
+            size += record.length + NEWLINE.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] record : batch) {
+            buffer.put(record).put(NEWLINE);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (policy == SyncPolicy.ALWAYS) {
+            channel.force(false);
+        } else {
+            synchronized (this) {
+                dirty = true;
+            }
+        }
+    }
+
+    private void pause() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while appending to " + path);
+        }
+    }
+
+    private void shutdown() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static void syncAll() {
+        List<LedgerAppender> open;
+        List<Syncable> logs;
+        synchronized (LedgerAppender.class) {
+            open = new ArrayList<>(OPEN.values());
+            logs = new ArrayList<>(LOGS);
+        }
+        for (Syncable log : logs) {
+            try {
+                log.sync();
+            } catch (IOException e) {
+                // As for the appenders below: the next round or close retries.
+            }
+        }
+        for (LedgerAppender appender : open) {
+            if (appender.policy == SyncPolicy.INTERVAL) {
+                try {
+                    appender.flush();
+                } catch (IOException e) {
+                    // Closed underneath us or a transient error; the next round or close retries.
+                }
+            }
+        }
+    }
+
+    private static void closeAllQuietly() {
+        try {
+            closeAll();
+        } catch (IOException e) {
+            System.err.println("Error flushing ledgers: " + e.getMessage());
+        }
+    }
+}
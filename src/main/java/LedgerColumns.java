@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A user's expense ledger as primitive columns for LedgerKernels, one entry per expense in
+// ledger order: amount in cents (rounded like CategoryTotals), category id into names(),
+// and epoch day (LedgerLine.NOT_A_DATE when the date isn't YYYY-MM-DD). Kept current like
+// the projections, so a use only reads what was appended since the last one. Columns are
+// cached per user in LRU order within -Dkernels.cache.mb (default 64, ROW_BYTES a row); a
+// single ledger may take all of it, evicting the rest. of() returns null for a ledger that
+// doesn't fit, and remembers its length so it isn't read again until the ledger shrinks;
+// callers then read it through its date index instead. Callers hold the user lock.
+class LedgerColumns {
+    private static final long CAPACITY = Long.getLong("kernels.cache.mb", 64) << 20;
+    private static final int ROW_BYTES = 16;
+    private static final LinkedHashMap<String, LedgerColumns> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+    private static final Map<String, Long> TOO_LARGE = new HashMap<>();
+    private static long cachedBytes;
+
+    // Thrown through the ledger reader once the columns outgrow the cache.
+    static final class TooLarge extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        TooLarge() {
+            super("Ledger too large for the column cache");
+        }
+
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private final String filename;
+    private CategoryDictionary names;
+    private long[] cents;
+    private int[] categories;
+    private int[] days;
+    private int size;
+    private String format = "";
+    private long end;
+    private final long limit;
+    private NumberFormatException malformed;
+    // What cachedBytes counts for these columns. Only read or written holding CACHE: the
+    // arrays grow during refresh() without it, so bytes() may have moved on meanwhile.
+    private long accounted;
+
+    private LedgerColumns(String filename, long limit) {
+        this.filename = filename;
+        this.limit = limit;
+        clear();
+    }
+
+    public static LedgerColumns of(String filename) throws IOException {
+        LedgerColumns columns;
+        Long tooLarge;
+        synchronized (CACHE) {
+            columns = CACHE.get(filename);
+            tooLarge = TOO_LARGE.get(filename);
+        }
+        if (tooLarge != null && end(filename) >= tooLarge) {
+            return null;
+        }
+        if (columns == null) {
+            columns = new LedgerColumns(filename, CAPACITY / ROW_BYTES);
+        }
+        try {
+            columns.refresh();
+        } catch (TooLarge e) {
+            long length = end(filename);
+            synchronized (CACHE) {
+                if (CACHE.get(filename) == columns) {
+                    CACHE.remove(filename);
+                    cachedBytes -= columns.accounted;
+                    columns.accounted = 0;
+                }
+                TOO_LARGE.put(filename, length);
+            }
+            return null;
+        }
+        synchronized (CACHE) {
+            TOO_LARGE.remove(filename);
+            if (CACHE.get(filename) != columns) {
+                // New, or evicted while we were reading; eviction took off what it counted.
+                CACHE.put(filename, columns);
+            }
+            cachedBytes += columns.bytes() - columns.accounted;
+            columns.accounted = columns.bytes();
+            Iterator<LedgerColumns> eldest = CACHE.values().iterator();
+            while (cachedBytes > CAPACITY && eldest.hasNext()) {
+                LedgerColumns next = eldest.next();
+                if (next != columns) {
+                    cachedBytes -= next.accounted;
+                    next.accounted = 0;
+                    eldest.remove();
+                }
+            }
+        }
+        return columns;
+    }
+
+    // Columns of just the expenses dated within [from, to], read through the ledger's
+    // DateIndex (or the binary ledger's days) and not cached.
+    public static LedgerColumns between(String filename, LocalDate from, LocalDate to) throws IOException {
+        LedgerColumns columns = new LedgerColumns(filename, Integer.MAX_VALUE);
+        if (!BinaryLedger.isEnabled(filename)) {
+            LedgerStorage.forUser(filename).readBetween(LedgerStorage.Ledger.EXPENSES, from, to, columns::add);
+        } else if (BinaryLedger.exists(filename)) {
+            BinaryLedger ledger = BinaryLedger.open(filename);
+            int[] ids = new int[0];
+            for (int row : ledger.rowsBetween(from, to)) {
+                ids = columns.append(ledger, row, ids);
+            }
+        }
+        return columns;
+    }
+
+    // Where the ledger ends in the units refresh() tracks: rows for a binary ledger, the
+    // position for text and LSM ones.
+    private static long end(String filename) throws IOException {
+        if (BinaryLedger.isEnabled(filename)) {
+            return BinaryLedger.exists(filename) ? BinaryLedger.open(filename).size() : 0;
+        }
+        return LedgerStorage.forUser(filename).end(LedgerStorage.Ledger.EXPENSES);
+    }
+
+    // Throws the error from the first expense whose amount didn't parse, as reading the
+    // ledger line by line would have.
+    public void checkAmounts() {
+        if (malformed != null) {
+            throw malformed;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long[] cents() {
+        return cents;
+    }
+
+    public int[] categories() {
+        return categories;
+    }
+
+    public int[] days() {
+        return days;
+    }
+
+    public CategoryDictionary names() {
+        return names;
+    }
+
+    private long bytes() {
+        return (long) cents.length * ROW_BYTES;
+    }
+
+    private void refresh() throws IOException {
+        LedgerStorage storage = LedgerStorage.forUser(filename);
+        boolean binary = BinaryLedger.isEnabled(filename);
+        String current = binary ? "binary" : storage instanceof LsmLedgerStorage ? "lsm" : "text";
+        if (!current.equals(format)) {
+            // Converted since the last read; positions mean something else now.
+            clear();
+            format = current;
+        }
+        long next = binary ? readBinary(end) : storage.read(LedgerStorage.Ledger.EXPENSES, end, this::add);
+        if (next < 0) {
+            // The ledger shrank underneath us; read it again from the start.
+            clear();
+            format = current;
+            next = binary ? readBinary(0) : storage.read(LedgerStorage.Ledger.EXPENSES, 0, this::add);
+        }
+        end = next;
+    }
+
+    private void add(LedgerLine line) throws IOException {
+        if (line.fieldCount() != 4) {
+            return;
+        }
+        long amount;
+        try {
+            amount = CategoryTotals.toCents(line.parseDouble(0));
+        } catch (NumberFormatException e) {
+            if (malformed == null) {
+                malformed = e;
+            }
+            return;
+        }
+        append(amount, names.id(line, 1), line.epochDay(3));
+    }
+
+    // Binary ledgers are tracked by row count.
+    private long readBinary(long from) throws IOException {
+        if (!BinaryLedger.exists(filename)) {
+            return from == 0 ? 0 : -1;
+        }
+        BinaryLedger ledger = BinaryLedger.open(filename);
+        if (ledger.size() < from) {
+            return -1;
+        }
+        int[] ids = new int[0];
+        for (int row = (int) from; row < ledger.size(); row++) {
+            ids = append(ledger, row, ids);
+        }
+        return ledger.size();
+    }
+
+    // The binary ledger has its own name ids; ids maps each to ours once, and the grown
+    // map is returned for the next row.
+    private int[] append(BinaryLedger ledger, int row, int[] ids) throws IOException {
+        int name = ledger.category(row);
+        if (name >= ids.length) {
+            int old = ids.length;
+            ids = Arrays.copyOf(ids, Math.max(name + 1, Math.max(16, old * 2)));
+            Arrays.fill(ids, old, ids.length, -1);
+        }
+        if (ids[name] < 0) {
+            ids[name] = names.id(ledger.name(name));
+        }
+        append(CategoryTotals.toCents(ledger.amount(row)), ids[name], ledger.day(row));
+        return ids;
+    }
+
+    private void append(long amount, int category, int day) throws IOException {
+        if (size == cents.length) {
+            if (size >= limit) {
+                throw new TooLarge();
+            }
+            int length = (int) Math.min(size * 2L, limit);
+            cents = Arrays.copyOf(cents, length);
+            categories = Arrays.copyOf(categories, length);
+            days = Arrays.copyOf(days, length);
+        }
+        cents[size] = amount;
+        categories[size] = category;
+        days[size] = day;
+        size++;
+    }
+
+    private void clear() {
+        names = new CategoryDictionary();
+        cents = new long[1024];
+        categories = new int[1024];
+        days = new int[1024];
+        size = 0;
+        format = "";
+        end = 0;
+        malformed = null;
+    }
+}
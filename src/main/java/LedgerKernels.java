@@ -0,0 +1,49 @@
+// Aggregation kernels over the primitive columns of LedgerColumns: amounts in cents,
+// category ids and epoch days, rows [0, size). Sums are in exact fixed-point cents. The
+// scalar versions are plain counted loops the JIT can unroll; when the JDK's incubating
+// Vector API is available (run with --add-modules jdk.incubator.vector) and
+// kernels/VectorLedgerKernels.java was compiled in, shared() returns that subclass, which
+// does the sums and range filters with SIMD lanes. -Dkernels.vector=false forces scalar.
+abstract class LedgerKernels {
+    private static final LedgerKernels SHARED = load();
+
+    public static LedgerKernels shared() {
+        return SHARED;
+    }
+
+    private static LedgerKernels load() {
+        if (!Boolean.parseBoolean(System.getProperty("kernels.vector", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return new ScalarLedgerKernels();
+        }
+        try {
+            return (LedgerKernels) Class.forName("VectorLedgerKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Not compiled in; the scalar kernels give the same results.
+            return new ScalarLedgerKernels();
+        }
+    }
+
+    public String name() {
+        return getClass().getSimpleName();
+    }
+
+    public abstract long sum(long[] cents, int size);
+
+    // Sum and count of the rows dated within [fromDay, toDay], into result[0] and result[1].
+    public abstract void sumBetween(long[] cents, int[] days, int size, int fromDay, int toDay, long[] result);
+
+    // Adds each row dated within [fromDay, toDay] to totals[category] and counts it in
+    // rows[category]; both arrays must cover every id in categories.
+    public abstract void sumByCategory(long[] cents, int[] categories, int[] days, int size,
+                                       int fromDay, int toDay, long[] totals, int[] rows);
+
+    // deltas[i] = series[i + 1] - series[i].
+    public abstract void deltas(long[] series, long[] deltas);
+
+    // Straight-line projection of a month's spending: what was spent in `elapsed` of
+    // `days` days, scaled to the whole month and rounded to the cent.
+    public static long projectMonthEnd(long cents, int elapsed, int days) {
+        return elapsed <= 0 ? cents : Math.round(cents * (double) days / elapsed);
+    }
+}
@@ -0,0 +1,184 @@
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+// One line of a comma-separated ledger file, tokenized in place over LedgerReader's buffer.
+// Only valid during LedgerVisitor.visit. Fields are counted the way String.split(",")
+// counts them (trailing empty fields dropped), so parts.length checks carry over unchanged.
+class LedgerLine {
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    public static final int NOT_A_DATE = Integer.MIN_VALUE;
+
+    private byte[] bytes;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int fields;
+    private long offset;
+
+    void reset(byte[] bytes, int from, int to, long offset) {
+        this.bytes = bytes;
+        this.offset = offset;
+        fields = 0;
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || bytes[i] == ',') {
+                if (fields == starts.length) {
+                    starts = Arrays.copyOf(starts, fields * 2);
+                    ends = Arrays.copyOf(ends, fields * 2);
+                }
+                starts[fields] = start;
+                ends[fields] = i;
+                fields++;
+                start = i + 1;
+            }
+        }
+        if (to > from) {
+            while (fields > 0 && starts[fields - 1] == ends[fields - 1]) {
+                fields--;
+            }
+        }
+    }
+
+    public int fieldCount() {
+        return fields;
+    }
+
+    // File offset of the first byte of this line.
+    public long offset() {
+        return offset;
+    }
+
+    // Same result as Double.parseDouble(text(field)). Plain decimals that fit the exact
+    // fast path (<= 2^53 mantissa, <= 22 fraction digits) are parsed straight from the bytes;
+    // anything else falls back to Double.parseDouble.
+    public double parseDouble(int field) {
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                if (++digits > 18) {
+                    return Double.parseDouble(text(field));
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (dot) {
+                    scale++;
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                return Double.parseDouble(text(field));
+            }
+        }
+        if (digits == 0 || mantissa > (1L << 53) || scale >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(text(field));
+        }
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    // Epoch day of a YYYY-MM-DD field, or NOT_A_DATE if the field isn't a valid date.
+    public int epochDay(int field) {
+        int i = starts[field];
+        if (ends[field] - i != 10 || bytes[i + 4] != '-' || bytes[i + 7] != '-') {
+            return NOT_A_DATE;
+        }
+        int year = digits(i, 4);
+        int month = digits(i + 5, 2);
+        int day = digits(i + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1) {
+            return NOT_A_DATE;
+        }
+        boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        int monthLength = month == 2 ? (leap ? 29 : 28) : (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+        if (day > monthLength) {
+            return NOT_A_DATE;
+        }
+        // Days from civil date (proleptic Gregorian), as in LocalDate.toEpochDay.
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    // year * 12 + month - 1 of a YYYY-MM-DD field, or NOT_A_DATE if the field isn't a valid date.
+    public int monthIndex(int field) {
+        if (epochDay(field) == NOT_A_DATE) {
+            return NOT_A_DATE;
+        }
+        return digits(starts[field], 4) * 12 + digits(starts[field] + 5, 2) - 1;
+    }
+
+    public String text(int field) {
+        return new String(bytes, starts[field], ends[field] - starts[field], CHARSET);
+    }
+
+    // The whole line, commas included.
+    public String text() {
+        return new String(bytes, starts[0], ends[fields - 1] - starts[0], CHARSET);
+    }
+
+    // Same as text(field).hashCode(); only non-ASCII fields are decoded.
+    public int textHash(int field) {
+        int hash = 0;
+        for (int i = starts[field]; i < ends[field]; i++) {
+            if (bytes[i] < 0) {
+                return text(field).hashCode();
+            }
+            hash = 31 * hash + bytes[i];
+        }
+        return hash;
+    }
+
+    // Same as text(field).equals(text); only non-ASCII fields are decoded.
+    public boolean textEquals(int field, String text) {
+        int length = ends[field] - starts[field];
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[starts[field] + i];
+            if (b < 0) {
+                return text(field).equals(text);
+            }
+            if (i >= text.length() || text.charAt(i) != b) {
+                return false;
+            }
+        }
+        return length == text.length();
+    }
+
+    // Appends the field to a reusable builder; only non-ASCII fields allocate.
+    public void appendText(int field, StringBuilder out) {
+        for (int i = starts[field]; i < ends[field]; i++) {
+            if (bytes[i] < 0) {
+                String text = text(field);
+                out.append(text, i - starts[field], text.length());
+                return;
+            }
+            out.append((char) bytes[i]);
+        }
+    }
+
+    private int digits(int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            if (bytes[i] < '0' || bytes[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + (bytes[i] - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,50 @@
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Date-range queries over a user's expenses and incomes. Text ledgers go through their
+// DateIndex; binary ledgers filter the day column, which is already a single int scan.
+class LedgerQueries {
+    public static DateIndex expenseIndex(String filename) {
+        return new DateIndex(new File(filename + "_expenses.txt"), 4, 3);
+    }
+
+    public static DateIndex incomeIndex(String filename) {
+        return new DateIndex(new File(filename + "_incomes.txt"), 3, 2);
+    }
+
+    public static List<Expense> expensesBetween(String filename, LocalDate from, LocalDate to) throws IOException {
+        List<Expense> expenses = new ArrayList<>();
+        if (BinaryLedger.isEnabled(filename)) {
+            if (BinaryLedger.exists(filename)) {
+                BinaryLedger ledger = BinaryLedger.open(filename);
+                for (int row : ledger.rowsBetween(from, to)) {
+                    expenses.add(ledger.expense(row));
+                }
+            }
+            return expenses;
+        }
+        LedgerStorage.forUser(filename).readBetween(LedgerStorage.Ledger.EXPENSES, from, to, line -> {
+            try {
+                expenses.add(new Expense(line.parseDouble(0), line.text(1), line.text(2), line.text(3)));
+            } catch (NumberFormatException e) {
+                // Malformed amount; skipped like everywhere else.
+            }
+        });
+        return expenses;
+    }
+
+    public static List<Income> incomeBetween(String filename, LocalDate from, LocalDate to) throws IOException {
+        List<Income> incomes = new ArrayList<>();
+        LedgerStorage.forUser(filename).readBetween(LedgerStorage.Ledger.INCOMES, from, to, line -> {
+            try {
+                incomes.add(new Income(line.text(0), line.parseDouble(1), line.text(2)));
+            } catch (NumberFormatException e) {
+                // Malformed amount; skipped like everywhere else.
+            }
+        });
+        return incomes;
+    }
+}
@@ -0,0 +1,88 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Shared reader for the comma-separated ledger files. Lines are split on \n, \r\n or \r
+// like Scanner.nextLine, and handed to the visitor without creating Strings or arrays.
+class LedgerReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static void read(File file, LedgerVisitor visitor) throws IOException {
+        read(file, 0, visitor);
+    }
+
+    // Reads from the given byte offset to the current end of the file and returns that end,
+    // or -1 if the file is shorter than the offset.
+    public static long read(File file, long from, LedgerVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long end = channel.size();
+            if (end < from) {
+                return -1;
+            }
+            read(channel, from, end, visitor);
+            return end;
+        }
+    }
+
+    // Visits every line in [from, to). Callers pass line-aligned offsets; an unterminated
+    // last line is still visited.
+    public static void read(FileChannel channel, long from, long to, LedgerVisitor visitor) throws IOException {
+        byte[] bytes = new byte[(int) Math.max(1, Math.min(BUFFER_SIZE, to - from))];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        LedgerLine line = new LedgerLine();
+        long base = from;
+        int filled = 0;
+        int lineStart = 0;
+        int scan = 0;
+        boolean afterCr = false;
+        while (true) {
+            long remaining = to - (base + filled);
+            boolean eof = remaining <= 0;
+            if (!eof) {
+                if (filled == bytes.length) {
+                    if (lineStart > 0) {
+                        System.arraycopy(bytes, lineStart, bytes, 0, filled - lineStart);
+                        base += lineStart;
+                        filled -= lineStart;
+                        scan -= lineStart;
+                        lineStart = 0;
+                    } else {
+                        bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                        buffer = ByteBuffer.wrap(bytes);
+                    }
+                }
+                buffer.limit((int) Math.min(bytes.length, filled + remaining)).position(filled);
+                int read = channel.read(buffer, base + filled);
+                if (read <= 0) {
+                    eof = true;
+                } else {
+                    filled += read;
+                }
+            }
+            for (; scan < filled; scan++) {
+                byte b = bytes[scan];
+                if (b == '\n' && afterCr && scan == lineStart) {
+                    lineStart = scan + 1;
+                    afterCr = false;
+                } else if (b == '\n' || b == '\r') {
+                    line.reset(bytes, lineStart, scan, base + lineStart);
+                    visitor.visit(line);
+                    lineStart = scan + 1;
+                    afterCr = b == '\r';
+                } else {
+                    afterCr = false;
+                }
+            }
+            if (eof) {
+                if (lineStart < filled) {
+                    line.reset(bytes, lineStart, filled, base + lineStart);
+                    visitor.visit(line);
+                }
+                return;
+            }
+        }
+    }
+}
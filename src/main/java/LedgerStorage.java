@@ -0,0 +1,50 @@
+import java.io.IOException;
+import java.time.LocalDate;
+
+// Record-level access to a user's line ledgers. Records are the CSV lines the text files
+// hold, handed to visitors as LedgerLines. A record's position (LedgerLine.offset) is its
+// byte offset in the text file, and the LSM backend keeps the same positions, so
+// SpendingAggregates and GoalProgress, which remember how far they have read, carry over
+// when a user switches backend. The backend is chosen per user by the ledger.storage
+// setting (text or lsm).
+interface LedgerStorage {
+    String STORAGE_KEY = "ledger.storage";
+
+    enum Ledger {
+        EXPENSES("_expenses.txt", 4, 3),
+        INCOMES("_incomes.txt", 3, 2),
+        BUDGETS("_budgets.txt", 2, -1),
+        GOALS("_goals.txt", 4, -1),
+        REMINDERS("_reminders.txt", 3, 1);
+
+        final String suffix;
+        final int fieldCount;
+        final int dateField;
+
+        Ledger(String suffix, int fieldCount, int dateField) {
+            this.suffix = suffix;
+            this.fieldCount = fieldCount;
+            this.dateField = dateField;
+        }
+    }
+
+    void append(Ledger ledger, String line) throws IOException;
+
+    // Visits the records from position `from` on and returns the end position, or -1 if
+    // the ledger is now shorter than `from`.
+    long read(Ledger ledger, long from, LedgerVisitor visitor) throws IOException;
+
+    long end(Ledger ledger) throws IOException;
+
+    // Visits the records dated within [from, to]. Text ledgers answer in file order, the LSM
+    // store in date order.
+    void readBetween(Ledger ledger, LocalDate from, LocalDate to, LedgerVisitor visitor) throws IOException;
+
+    static LedgerStorage forUser(String filename) throws IOException {
+        return isLsm(filename) ? new LsmLedgerStorage(filename) : new TextLedgerStorage(filename);
+    }
+
+    static boolean isLsm(String filename) throws IOException {
+        return UserSettings.get(filename, STORAGE_KEY, "text").equals("lsm");
+    }
+}
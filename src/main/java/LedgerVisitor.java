@@ -0,0 +1,5 @@
+import java.io.IOException;
+
+interface LedgerVisitor {
+    void visit(LedgerLine line) throws IOException;
+}
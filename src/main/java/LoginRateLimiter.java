@@ -0,0 +1,181 @@
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Admission control for logins, checked before an attempt reaches the credential pool or
+// the user store. Every attempt takes a token from two buckets, one per email and one per
+// source (the client address in server mode); a bucket refills at -Dauth.rate.per.minute
+// (default 10 per email, 4x that per source) up to a burst of -Dauth.rate.burst (default 5,
+// 4x per source). -Dauth.lockout.failures consecutive wrong passwords (default 5) lock the
+// email for -Dauth.lockout.seconds (default 300). Buckets are a single AtomicLong holding
+// the time the bucket will be full again (GCRA), so taking a token is one CAS and a
+// rejected attempt does no I/O. Keys live in a ConcurrentHashMap kept to
+// -Dauth.limiter.entries (default 100000): idle keys are swept first, then the least
+// recently seen.
+class LoginRateLimiter {
+    private static final Metrics.Counter THROTTLED = Metrics.counter("auth.throttled");
+    private static final Metrics.Counter LOCKED = Metrics.counter("auth.locked");
+    private static final int SOURCE_FACTOR = 4;
+
+    private static final class Entry {
+        final AtomicLong fullAt = new AtomicLong();
+        final AtomicInteger failures = new AtomicInteger();
+        volatile long lockedUntil;
+        volatile long lastSeen;
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong lockouts = new AtomicLong();
+    private final long emailInterval;
+    private final long emailBurst;
+    private final int maxFailures;
+    private final long lockoutMillis;
+    private final int maxEntries;
+    private final long idleMillis;
+
+    public LoginRateLimiter() {
+        this(Integer.getInteger("auth.rate.per.minute", 10), Integer.getInteger("auth.rate.burst", 5),
+                Integer.getInteger("auth.lockout.failures", 5), Long.getLong("auth.lockout.seconds", 300),
+                Integer.getInteger("auth.limiter.entries", 100000));
+    }
+
+    public LoginRateLimiter(int perMinute, int burst, int maxFailures, long lockoutSeconds, int maxEntries) {
+        this.emailInterval = 60_000L / Math.max(1, perMinute);
+        this.emailBurst = Math.max(1, burst);
+        this.maxFailures = maxFailures;
+        this.lockoutMillis = lockoutSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.idleMillis = Math.max(emailInterval * emailBurst, lockoutMillis);
+    }
+
+    // Takes a token for the attempt. Returns null if it may go ahead, otherwise the message
+    // to show; nothing is charged to the email when the source is already over its rate.
+    public String admit(String email, String source) {
+        long now = System.currentTimeMillis();
+        Entry account = entry("e:" + email.toLowerCase(Locale.ROOT), now);
+        long locked = account.lockedUntil - now;
+        if (locked > 0) {
+            throttled.incrementAndGet();
+            THROTTLED.increment();
+            return "Account locked after too many failed logins. Try again in " + seconds(locked) + "s.";
+        }
+        long wait = take(entry("s:" + source, now), now, emailInterval / SOURCE_FACTOR, emailBurst * SOURCE_FACTOR);
+        if (wait == 0) {
+            wait = take(account, now, emailInterval, emailBurst);
+        }
+        if (wait > 0) {
+            throttled.incrementAndGet();
+            THROTTLED.increment();
+            return "Too many login attempts. Try again in " + seconds(wait) + "s.";
+        }
+        return null;
+    }
+
+    public void succeeded(String email) {
+        Entry account = entries.get("e:" + email.toLowerCase(Locale.ROOT));
+        if (account != null) {
+            account.failures.set(0);
+        }
+    }
+
+    public void failed(String email) {
+        long now = System.currentTimeMillis();
+        Entry account = entry("e:" + email.toLowerCase(Locale.ROOT), now);
+        if (account.failures.incrementAndGet() >= maxFailures) {
+            account.failures.set(0);
+            account.lockedUntil = now + lockoutMillis;
+            lockouts.incrementAndGet();
+            LOCKED.increment();
+        }
+    }
+
+    // Emails locked right now, with the seconds left on each lock.
+    public Map<String, Long> lockedAccounts() {
+        long now = System.currentTimeMillis();
+        Map<String, Long> locked = new TreeMap<>();
+        entries.forEach((key, entry) -> {
+            if (key.startsWith("e:") && entry.lockedUntil > now) {
+                locked.put(key.substring(2), seconds(entry.lockedUntil - now));
+            }
+        });
+        return locked;
+    }
+
+    public String stats() {
+        return String.format(Locale.ROOT, "limiter keys=%d locked=%d throttled=%d lockouts=%d",
+                entries.size(), lockedAccounts().size(), throttled.get(), lockouts.get());
+    }
+
+    // Returns 0 if a token was taken, otherwise the milliseconds until one is available.
+    private static long take(Entry entry, long now, long interval, long burst) {
+        while (true) {
+            long fullAt = entry.fullAt.get();
+            long next = Math.max(fullAt, now) + interval;
+            long over = next - now - interval * burst;
+            if (over > 0) {
+                return over;
+            }
+            if (entry.fullAt.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private Entry entry(String key, long now) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            if (entries.size() >= maxEntries) {
+                evict(now);
+            }
+            entry = entries.computeIfAbsent(key, k -> new Entry());
+        }
+        entry.lastSeen = now;
+        return entry;
+    }
+
+    // One thread at a time; the others carry on, so the map may briefly pass its bound.
+    private void evict(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            entries.values().removeIf(entry -> idle(entry, now));
+            int excess = entries.size() - maxEntries * 9 / 10;
+            if (excess <= 0) {
+                return;
+            }
+            PriorityQueue<Map.Entry<String, Entry>> oldest = new PriorityQueue<>(
+                    Comparator.comparingLong((Map.Entry<String, Entry> e) -> e.getValue().lastSeen).reversed());
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                if (e.getValue().lockedUntil > now) {
+                    continue;
+                }
+                oldest.add(e);
+                if (oldest.size() > excess) {
+                    oldest.poll();
+                }
+            }
+            for (Map.Entry<String, Entry> e : oldest) {
+                entries.remove(e.getKey(), e.getValue());
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private boolean idle(Entry entry, long now) {
+        return entry.fullAt.get() <= now && entry.lockedUntil <= now && now - entry.lastSeen > idleMillis;
+    }
+
+    private static long seconds(long millis) {
+        return (millis + 999) / 1000;
+    }
+}
@@ -0,0 +1,201 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Ledgers kept in an LsmStore under <user>_ledgers.lsm/. Each record is stored under
+//   [ledger][o][position]        the line, for reads in append order
+//   [ledger][d][day][position]   the line again, for date ranges (dated ledgers only)
+// and [ledger][e] holds the end position. Positions advance exactly as they would in the
+// text file, so converting either way keeps every position the projections remember.
+class LsmLedgerStorage implements LedgerStorage {
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final int SEPARATOR = System.lineSeparator().length();
+
+    private final LsmStore store;
+
+    public LsmLedgerStorage(String filename) throws IOException {
+        this.store = LsmStore.open(directory(filename));
+    }
+
+    public static Path directory(String filename) {
+        return Paths.get(filename + "_ledgers.lsm");
+    }
+
+    public void append(Ledger ledger, String line) throws IOException {
+        byte[] bytes = line.getBytes(CHARSET);
+        synchronized (store) {
+            long position = end(ledger);
+            write(ledger, position, bytes, position + bytes.length + SEPARATOR);
+        }
+    }
+
+    public long read(Ledger ledger, long from, LedgerVisitor visitor) throws IOException {
+        long end = end(ledger);
+        if (end < from) {
+            return -1;
+        }
+        LedgerLine line = new LedgerLine();
+        store.scan(recordKey(ledger, from), recordKey(ledger, Long.MAX_VALUE), (key, value) -> {
+            line.reset(value, 0, value.length, ByteBuffer.wrap(key).getLong(2));
+            visitor.visit(line);
+        });
+        return end;
+    }
+
+    public long end(Ledger ledger) throws IOException {
+        byte[] end = store.get(endKey(ledger));
+        return end == null ? 0 : ByteBuffer.wrap(end).getLong();
+    }
+
+    public void readBetween(Ledger ledger, LocalDate from, LocalDate to, LedgerVisitor visitor) throws IOException {
+        if (ledger.dateField < 0) {
+            throw new IllegalArgumentException(ledger + " records are not dated");
+        }
+        if (from.isAfter(to)) {
+            return;
+        }
+        LedgerLine line = new LedgerLine();
+        store.scan(dateKey(ledger, (int) from.toEpochDay(), 0), dateKey(ledger, (int) to.toEpochDay() + 1, 0),
+                (key, value) -> {
+                    line.reset(value, 0, value.length, ByteBuffer.wrap(key).getLong(6));
+                    visitor.visit(line);
+                });
+    }
+
+    // Moves every text ledger into the store, keeping positions, and switches the user over.
+    // Returns the number of records moved. The caller holds the user lock.
+    public static int convertToLsm(String filename) throws IOException {
+        Path dir = directory(filename);
+        LsmStore.close(dir);
+        deleteStore(dir);
+        LsmLedgerStorage storage = new LsmLedgerStorage(filename);
+        int[] rows = {0};
+        for (Ledger ledger : Ledger.values()) {
+            File file = new File(filename + ledger.suffix);
+            if (!file.exists()) {
+                continue;
+            }
+            LedgerAppender.close(file.getPath());
+            LedgerReader.read(file, line -> {
+                if (line.fieldCount() > 1 || !line.text(0).isEmpty()) {
+                    byte[] bytes = line.text().getBytes(CHARSET);
+                    storage.write(ledger, line.offset(), bytes, line.offset() + bytes.length + SEPARATOR);
+                    rows[0]++;
+                }
+            });
+            storage.setEnd(ledger, file.length());
+        }
+        storage.store.flush();
+        UserSettings.set(filename, STORAGE_KEY, "lsm");
+        for (Ledger ledger : Ledger.values()) {
+            File file = new File(filename + ledger.suffix);
+            DateIndex.invalidate(file);
+            Files.deleteIfExists(file.toPath());
+        }
+        return rows[0];
+    }
+
+    // Writes the store back out as text files, padding with empty lines wherever the
+    // original files had blank lines or CRLF endings so positions stay the same.
+    public static int convertToText(String filename) throws IOException {
+        LsmLedgerStorage storage = new LsmLedgerStorage(filename);
+        byte[] separator = System.lineSeparator().getBytes(CHARSET);
+        int[] rows = {0};
+        for (Ledger ledger : Ledger.values()) {
+            long end = storage.end(ledger);
+            if (end == 0) {
+                continue;
+            }
+            File file = new File(filename + ledger.suffix);
+            LedgerAppender.close(file.getPath());
+            Path tmp = Paths.get(file.getPath() + ".convert");
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp.toFile()))) {
+                long[] written = {0};
+                storage.store.scan(recordKey(ledger, 0), recordKey(ledger, Long.MAX_VALUE), (key, value) -> {
+                    long position = ByteBuffer.wrap(key).getLong(2);
+                    pad(out, position - written[0]);
+                    out.write(value);
+                    out.write(separator);
+                    written[0] = position + value.length + separator.length;
+                    rows[0]++;
+                });
+                pad(out, end - written[0]);
+            }
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            DateIndex.invalidate(file);
+        }
+        UserSettings.set(filename, STORAGE_KEY, "text");
+        Path dir = directory(filename);
+        LsmStore.close(dir);
+        deleteStore(dir);
+        return rows[0];
+    }
+
+    private void write(Ledger ledger, long position, byte[] line, long end) throws IOException {
+        List<byte[]> keys = new ArrayList<>(3);
+        List<byte[]> values = new ArrayList<>(3);
+        keys.add(recordKey(ledger, position));
+        values.add(line);
+        if (ledger.dateField >= 0) {
+            LedgerLine parsed = new LedgerLine();
+            parsed.reset(line, 0, line.length, position);
+            if (parsed.fieldCount() == ledger.fieldCount) {
+                int day = parsed.epochDay(ledger.dateField);
+                if (day != LedgerLine.NOT_A_DATE) {
+                    keys.add(dateKey(ledger, day, position));
+                    values.add(line);
+                }
+            }
+        }
+        keys.add(endKey(ledger));
+        values.add(ByteBuffer.allocate(Long.BYTES).putLong(end).array());
+        store.write(keys, values);
+    }
+
+    private void setEnd(Ledger ledger, long end) throws IOException {
+        store.write(Collections.singletonList(endKey(ledger)),
+                Collections.singletonList(ByteBuffer.allocate(Long.BYTES).putLong(end).array()));
+    }
+
+    private static void pad(OutputStream out, long gap) throws IOException {
+        for (long i = 0; i < gap; i++) {
+            out.write('\n');
+        }
+    }
+
+    private static void deleteStore(Path dir) throws IOException {
+        File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    private static byte[] recordKey(Ledger ledger, long position) {
+        return ByteBuffer.allocate(10).put((byte) ledger.ordinal()).put((byte) 'o').putLong(position).array();
+    }
+
+    // The day is stored with its sign bit flipped so negative epoch days sort first.
+    private static byte[] dateKey(Ledger ledger, int day, long position) {
+        return ByteBuffer.allocate(14).put((byte) ledger.ordinal()).put((byte) 'd')
+                .putInt(day ^ Integer.MIN_VALUE).putLong(position).array();
+    }
+
+    private static byte[] endKey(Ledger ledger) {
+        return new byte[]{(byte) ledger.ordinal(), (byte) 'e'};
+    }
+}
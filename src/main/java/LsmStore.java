@@ -0,0 +1,629 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+// Embedded log-structured key-value store. Keys and values are byte arrays; keys are
+// ordered by unsigned byte comparison. Writes are appended to wal.log as CRC-checked
+// batches and applied to a sorted in-memory memtable. Once the memtable passes
+// -Dlsm.memtable bytes (default 4 MB) it is written out as an immutable segment and the
+// log is reset. A segment (seg-<n>.sst, higher n is newer) holds
+//   entries  [int keyLength][key][int valueLength][value]... in key order
+//   index    every INDEX_INTERVAL-th key: [int keyLength][key][long offset]
+//   bloom    bit set over every key, BLOOM_BITS_PER_KEY bits per key
+//   footer   [long indexOffset][int indexCount][long bloomOffset][int bloomWords][int entries][int magic]
+// Point reads check the memtable, then segments newest first, skipping those whose bloom
+// filter rules the key out. Range reads merge the memtable and every segment, newest value
+// winning. When there are more than MAX_SEGMENTS segments, the newest ones of similar size
+// are merged into one. The log is synced as -Dledger.fsync says for the line ledgers: on
+// every write, every -Dledger.fsync.interval ms through LedgerAppender's syncer, or on
+// close. A store belongs to one process; UserLocks keeps others out.
+class LsmStore implements LedgerAppender.Syncable {
+    private static final int MAGIC = 0x4C534D31;
+    private static final int FOOTER_SIZE = 32;
+    private static final long MEMTABLE_BYTES = Long.getLong("lsm.memtable", 4L << 20);
+    private static final int MAX_SEGMENTS = 8;
+    private static final int INDEX_INTERVAL = 64;
+    private static final int BLOOM_BITS_PER_KEY = 10;
+    private static final int BLOOM_HASHES = 7;
+    private static final Comparator<byte[]> ORDER = Arrays::compareUnsigned;
+    private static final Map<Path, LsmStore> OPEN = new HashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                closeAll();
+            } catch (IOException e) {
+                System.err.println("Could not close ledger store: " + e.getMessage());
+            }
+        }));
+    }
+
+    interface EntryVisitor {
+        void visit(byte[] key, byte[] value) throws IOException;
+    }
+
+    private final Path dir;
+    private final FileChannel wal;
+    private final List<Segment> segments = new ArrayList<>();
+    private TreeMap<byte[], byte[]> memtable = new TreeMap<>(ORDER);
+    private long memtableBytes;
+    private int nextSegment;
+    private boolean dirty;
+
+    private LsmStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        List<Integer> numbers = new ArrayList<>();
+        File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file.toPath());
+                } else if (name.startsWith("seg-") && name.endsWith(".sst")) {
+                    numbers.add(Integer.parseInt(name.substring(4, name.length() - 4)));
+                }
+            }
+        }
+        Collections.sort(numbers);
+        for (int number : numbers) {
+            segments.add(new Segment(segmentPath(number)));
+        }
+        nextSegment = numbers.isEmpty() ? 0 : numbers.get(numbers.size() - 1) + 1;
+        wal = FileChannel.open(dir.resolve("wal.log"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replay();
+    }
+
+    public static synchronized LsmStore open(Path dir) throws IOException {
+        Path key = dir.toAbsolutePath().normalize();
+        LsmStore store = OPEN.get(key);
+        if (store == null) {
+            store = new LsmStore(key);
+            OPEN.put(key, store);
+            LedgerAppender.register(store);
+        }
+        return store;
+    }
+
+    public static void close(Path dir) throws IOException {
+        LsmStore store;
+        synchronized (LsmStore.class) {
+            store = OPEN.remove(dir.toAbsolutePath().normalize());
+        }
+        if (store != null) {
+            LedgerAppender.unregister(store);
+            store.shutdown();
+        }
+    }
+
+    public static void closeAll() throws IOException {
+        List<Path> open;
+        synchronized (LsmStore.class) {
+            open = new ArrayList<>(OPEN.keySet());
+        }
+        for (Path dir : open) {
+            close(dir);
+        }
+    }
+
+    // Applies the entries as one batch: after a crash either all of them are replayed or none.
+    public synchronized void write(List<byte[]> keys, List<byte[]> values) throws IOException {
+        int size = Integer.BYTES;
+        for (int i = 0; i < keys.size(); i++) {
+            size += 2 * Integer.BYTES + keys.get(i).length + values.get(i).length;
+        }
+        ByteBuffer record = ByteBuffer.allocate(2 * Integer.BYTES + size);
+        record.putInt(size).putInt(0).putInt(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            record.putInt(keys.get(i).length).put(keys.get(i)).putInt(values.get(i).length).put(values.get(i));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 2 * Integer.BYTES, size);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        record.flip();
+        while (record.hasRemaining()) {
+            wal.write(record);
+        }
+        if (LedgerAppender.DEFAULT_POLICY == LedgerAppender.SyncPolicy.ALWAYS) {
+            wal.force(false);
+        } else {
+            dirty = true;
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            put(keys.get(i), values.get(i));
+        }
+        if (memtableBytes >= MEMTABLE_BYTES) {
+            flush();
+        }
+    }
+
+    // Forces logged writes to disk; called by LedgerAppender's syncer under INTERVAL. The
+    // force runs outside the monitor so writes aren't held up behind it.
+    public void sync() throws IOException {
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+        }
+        try {
+            wal.force(false);
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            throw e;
+        }
+    }
+
+    public synchronized byte[] get(byte[] key) throws IOException {
+        byte[] value = memtable.get(key);
+        for (int i = segments.size() - 1; value == null && i >= 0; i--) {
+            value = segments.get(i).get(key);
+        }
+        return value;
+    }
+
+    // Visits the entries with from <= key < to in key order. The visitor must not write to
+    // this store.
+    public synchronized void scan(byte[] from, byte[] to, EntryVisitor visitor) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        for (Segment segment : segments) {
+            sources.add(new SegmentSource(segment, from, to));
+        }
+        sources.add(new MemtableSource(memtable.subMap(from, true, to, false)));
+        Source merged = new MergedSource(sources);
+        while (merged.advance()) {
+            visitor.visit(merged.key, merged.value);
+        }
+    }
+
+    // Writes the memtable out as a new segment and resets the log.
+    public synchronized void flush() throws IOException {
+        if (memtable.isEmpty()) {
+            return;
+        }
+        segments.add(writeSegment(segmentPath(nextSegment++), new MemtableSource(memtable), memtable.size()));
+        memtable = new TreeMap<>(ORDER);
+        memtableBytes = 0;
+        wal.truncate(0);
+        wal.position(0);
+        wal.force(true);
+        dirty = false;
+        if (segments.size() > MAX_SEGMENTS) {
+            merge();
+        }
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    private void put(byte[] key, byte[] value) {
+        byte[] previous = memtable.put(key, value);
+        memtableBytes += key.length + value.length + 64 - (previous == null ? 0 : previous.length + key.length + 64);
+    }
+
+    // Merges the newest segments, taking in older ones while they are no more than twice the
+    // size of what has been gathered, so segment sizes grow geometrically.
+    private void merge() throws IOException {
+        int first = segments.size() - 2;
+        long gathered = segments.get(first).size() + segments.get(first + 1).size();
+        while (first > 0 && segments.get(first - 1).size() <= 2 * gathered) {
+            first--;
+            gathered += segments.get(first).size();
+        }
+        List<Segment> run = new ArrayList<>(segments.subList(first, segments.size()));
+        List<Source> sources = new ArrayList<>();
+        int entries = 0;
+        for (Segment segment : run) {
+            sources.add(new SegmentSource(segment, null, null));
+            entries += segment.entries;
+        }
+        Segment merged = writeSegment(segmentPath(nextSegment++), new MergedSource(sources), entries);
+        for (Segment segment : run) {
+            segment.channel.close();
+            Files.delete(segment.path);
+        }
+        segments.subList(first, segments.size()).clear();
+        segments.add(merged);
+    }
+
+    private void replay() throws IOException {
+        ByteBuffer log = ByteBuffer.allocate((int) wal.size());
+        while (log.hasRemaining() && wal.read(log, log.position()) > 0) {
+            // Keep reading until the whole log is in.
+        }
+        log.flip();
+        long good = 0;
+        while (log.remaining() >= 2 * Integer.BYTES) {
+            int size = log.getInt();
+            int checksum = log.getInt();
+            if (size < Integer.BYTES || size > log.remaining()) {
+                break;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(log.array(), log.position(), size);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            int count = log.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[log.getInt()];
+                log.get(key);
+                byte[] value = new byte[log.getInt()];
+                log.get(value);
+                put(key, value);
+            }
+            good = log.position();
+        }
+        // Drop a batch torn by a crash so new writes follow the last complete one.
+        wal.truncate(good);
+        wal.position(good);
+    }
+
+    private void shutdown() throws IOException {
+        synchronized (this) {
+            try {
+                wal.force(true);
+                wal.close();
+            } finally {
+                for (Segment segment : segments) {
+                    segment.channel.close();
+                }
+            }
+        }
+    }
+
+    private Path segmentPath(int number) {
+        return dir.resolve("seg-" + number + ".sst");
+    }
+
+    private static Segment writeSegment(Path path, Source entries, int expected) throws IOException {
+        Path tmp = Paths.get(path + ".tmp");
+        long[] bloom = new long[Math.max(1, (int) (((long) expected * BLOOM_BITS_PER_KEY + 63) / 64))];
+        List<byte[]> indexKeys = new ArrayList<>();
+        List<Long> indexOffsets = new ArrayList<>();
+        FileOutputStream file = new FileOutputStream(tmp.toFile());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            long offset = 0;
+            int count = 0;
+            while (entries.advance()) {
+                if (count % INDEX_INTERVAL == 0) {
+                    indexKeys.add(entries.key);
+                    indexOffsets.add(offset);
+                }
+                addToBloom(bloom, entries.key);
+                out.writeInt(entries.key.length);
+                out.write(entries.key);
+                out.writeInt(entries.value.length);
+                out.write(entries.value);
+                offset += 2 * Integer.BYTES + entries.key.length + entries.value.length;
+                count++;
+            }
+            long indexOffset = offset;
+            for (int i = 0; i < indexKeys.size(); i++) {
+                out.writeInt(indexKeys.get(i).length);
+                out.write(indexKeys.get(i));
+                out.writeLong(indexOffsets.get(i));
+                offset += Integer.BYTES + indexKeys.get(i).length + Long.BYTES;
+            }
+            for (long word : bloom) {
+                out.writeLong(word);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(indexKeys.size());
+            out.writeLong(offset);
+            out.writeInt(bloom.length);
+            out.writeInt(count);
+            out.writeInt(MAGIC);
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        return new Segment(path);
+    }
+
+    private static void addToBloom(long[] bloom, byte[] key) {
+        long hash = hash(key);
+        long bits = bloom.length * 64L;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = ((hash + i * (hash >>> 32)) & Long.MAX_VALUE) % bits;
+            bloom[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private static boolean mightContain(long[] bloom, byte[] key) {
+        long hash = hash(key);
+        long bits = bloom.length * 64L;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = ((hash + i * (hash >>> 32)) & Long.MAX_VALUE) % bits;
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a followed by a 64-bit finalizer, so keys differing only in their last bytes
+    // still spread over the whole filter.
+    private static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static final class Segment {
+        final Path path;
+        final FileChannel channel;
+        final byte[][] indexKeys;
+        final long[] indexOffsets;
+        final long[] bloom;
+        final long dataEnd;
+        final int entries;
+
+        Segment(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            long size = channel.size();
+            ByteBuffer footer = read(size - FOOTER_SIZE, FOOTER_SIZE);
+            long indexOffset = footer.getLong();
+            int indexCount = footer.getInt();
+            long bloomOffset = footer.getLong();
+            int bloomWords = footer.getInt();
+            entries = footer.getInt();
+            if (footer.getInt() != MAGIC) {
+                channel.close();
+                throw new IOException("Corrupt ledger segment " + path);
+            }
+            dataEnd = indexOffset;
+            ByteBuffer index = read(indexOffset, (int) (bloomOffset - indexOffset));
+            indexKeys = new byte[indexCount][];
+            indexOffsets = new long[indexCount];
+            for (int i = 0; i < indexCount; i++) {
+                indexKeys[i] = new byte[index.getInt()];
+                index.get(indexKeys[i]);
+                indexOffsets[i] = index.getLong();
+            }
+            bloom = new long[bloomWords];
+            read(bloomOffset, bloomWords * Long.BYTES).asLongBuffer().get(bloom);
+        }
+
+        long size() throws IOException {
+            return channel.size();
+        }
+
+        byte[] get(byte[] key) throws IOException {
+            if (!mightContain(bloom, key)) {
+                return null;
+            }
+            int block = floor(key);
+            if (block < 0) {
+                return null;
+            }
+            long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : dataEnd;
+            Cursor cursor = new Cursor(channel, indexOffsets[block], end);
+            while (cursor.next()) {
+                int compare = ORDER.compare(cursor.key, key);
+                if (compare == 0) {
+                    return cursor.value;
+                }
+                if (compare > 0) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        // Index of the last block whose first key is <= key, or -1.
+        int floor(byte[] key) {
+            int low = 0;
+            int high = indexKeys.length - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (ORDER.compare(indexKeys[mid], key) <= 0) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+
+        private ByteBuffer read(long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Truncated ledger segment " + path);
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    // Sequential reader over the entries of a segment between two offsets.
+    private static final class Cursor {
+        private final FileChannel channel;
+        private final long end;
+        private ByteBuffer buffer;
+        private long filePosition;
+        byte[] key;
+        byte[] value;
+
+        Cursor(FileChannel channel, long from, long end) {
+            this.channel = channel;
+            this.end = end;
+            this.filePosition = from;
+            this.buffer = ByteBuffer.allocate((int) Math.max(64, Math.min(1 << 16, end - from)));
+            buffer.flip();
+        }
+
+        boolean next() throws IOException {
+            if (filePosition - buffer.remaining() >= end) {
+                return false;
+            }
+            key = bytes(readInt());
+            value = bytes(readInt());
+            return true;
+        }
+
+        private int readInt() throws IOException {
+            ensure(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        private byte[] bytes(int length) throws IOException {
+            ensure(length);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        private void ensure(int length) throws IOException {
+            if (buffer.remaining() >= length) {
+                return;
+            }
+            if (buffer.capacity() < length) {
+                ByteBuffer larger = ByteBuffer.allocate(length);
+                larger.put(buffer);
+                buffer = larger;
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < length) {
+                int read = channel.read(buffer, filePosition);
+                if (read < 0) {
+                    throw new IOException("Truncated ledger segment");
+                }
+                filePosition += read;
+            }
+            buffer.flip();
+        }
+    }
+
+    // An ordered stream of entries; advance() moves to the next one and returns false at the end.
+    private abstract static class Source {
+        byte[] key;
+        byte[] value;
+
+        abstract boolean advance() throws IOException;
+    }
+
+    private static final class MemtableSource extends Source {
+        private final Iterator<Map.Entry<byte[], byte[]>> entries;
+
+        MemtableSource(SortedMap<byte[], byte[]> entries) {
+            this.entries = entries.entrySet().iterator();
+        }
+
+        boolean advance() {
+            if (!entries.hasNext()) {
+                return false;
+            }
+            Map.Entry<byte[], byte[]> entry = entries.next();
+            key = entry.getKey();
+            value = entry.getValue();
+            return true;
+        }
+    }
+
+    // Entries of a segment with from <= key < to; null bounds are open.
+    private static final class SegmentSource extends Source {
+        private final Cursor cursor;
+        private final byte[] from;
+        private final byte[] to;
+
+        SegmentSource(Segment segment, byte[] from, byte[] to) {
+            int block = from == null ? 0 : Math.max(0, segment.floor(from));
+            long start = segment.indexOffsets.length == 0 ? segment.dataEnd : segment.indexOffsets[block];
+            this.cursor = new Cursor(segment.channel, start, segment.dataEnd);
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean advance() throws IOException {
+            while (cursor.next()) {
+                if (from != null && ORDER.compare(cursor.key, from) < 0) {
+                    continue;
+                }
+                if (to != null && ORDER.compare(cursor.key, to) >= 0) {
+                    return false;
+                }
+                key = cursor.key;
+                value = cursor.value;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    // Merges sources ordered oldest first; for a key present in several, the newest wins.
+    private static final class MergedSource extends Source {
+        private final PriorityQueue<Source> queue;
+        private final Map<Source, Integer> rank = new IdentityHashMap<>();
+
+        MergedSource(List<Source> sources) throws IOException {
+            queue = new PriorityQueue<>((a, b) -> {
+                int compare = ORDER.compare(a.key, b.key);
+                return compare != 0 ? compare : Integer.compare(rank.get(b), rank.get(a));
+            });
+            for (int i = 0; i < sources.size(); i++) {
+                rank.put(sources.get(i), i);
+                if (sources.get(i).advance()) {
+                    queue.add(sources.get(i));
+                }
+            }
+        }
+
+        boolean advance() throws IOException {
+            Source top = queue.poll();
+            if (top == null) {
+                return false;
+            }
+            key = top.key;
+            value = top.value;
+            if (top.advance()) {
+                queue.add(top);
+            }
+            while (!queue.isEmpty() && ORDER.compare(queue.peek().key, key) == 0) {
+                Source older = queue.poll();
+                if (older.advance()) {
+                    queue.add(older);
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+// Latency and throughput metrics, off unless -Dmetrics.enabled=true. A Timer keeps a
+// lock-free log-linear histogram of latencies in nanoseconds: each power of two is split
+// into SUB_BUCKETS linear steps, so reported percentiles are within 1/SUB_BUCKETS (12.5%)
+// of the true value. A Counter counts events that have no duration. Everything is
+// published as attributes of the JMX MBean PersonalBudget:type=Metrics, and every
+// -Dmetrics.dump.interval seconds (default 60) a snapshot is written to -Dmetrics.dump
+// (default metrics.json; names not ending in .json get the text form). When disabled,
+// start() returns 0 and stop() returns straight away, so instrumented paths only pay for
+// one constant check.
+class Metrics implements DynamicMBean {
+    public static final boolean ENABLED = Boolean.getBoolean("metrics.enabled");
+    private static final String DUMP = System.getProperty("metrics.dump", "metrics.json");
+    private static final long DUMP_INTERVAL = Long.getLong("metrics.dump.interval", 60);
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Timer DISABLED_TIMER = new Timer();
+    private static final Counter DISABLED_COUNTER = new Counter();
+    private static final long STARTED = System.nanoTime();
+    private static final String[] FIELDS = {"count", "perSecond", "meanMillis", "p50Millis", "p99Millis", "p999Millis", "maxMillis"};
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Metrics(),
+                        new ObjectName("PersonalBudget:type=Metrics"));
+            } catch (JMException e) {
+                System.err.println("Metrics are not available over JMX: " + e.getMessage());
+            }
+            ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            dumper.scheduleWithFixedDelay(Metrics::dumpQuietly, DUMP_INTERVAL, DUMP_INTERVAL, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(Metrics::dumpQuietly));
+        }
+    }
+
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public static Timer timer(String name) {
+        return ENABLED ? TIMERS.computeIfAbsent(name, key -> new Timer()) : DISABLED_TIMER;
+    }
+
+    // For timers named per call (prefix + name); the name is only built when enabled.
+    public static void stop(String prefix, String name, long start) {
+        if (start != 0) {
+            timer(prefix + name).stop(start);
+        }
+    }
+
+    public static Counter counter(String name) {
+        return ENABLED ? COUNTERS.computeIfAbsent(name, key -> new Counter()) : DISABLED_COUNTER;
+    }
+
+    static final class Timer {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public void stop(long start) {
+            if (start == 0) {
+                return;
+            }
+            long nanos = Math.max(0, System.nanoTime() - start);
+            buckets.incrementAndGet(bucket(nanos));
+            count.increment();
+            total.add(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        // Values below SUB_BUCKETS get a bucket each; above that, the bucket is picked by the
+        // position of the highest bit and the SUB_BITS bits after it.
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        // The largest value that falls in the bucket.
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long low = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+            return low + (1L << shift) - 1;
+        }
+
+        // count, perSecond, meanMillis, p50Millis, p99Millis, p999Millis, maxMillis
+        double[] snapshot() {
+            long[] counts = new long[buckets.length()];
+            long n = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+                n += counts[i];
+            }
+            double seconds = (System.nanoTime() - STARTED) / 1e9;
+            long largest = max.get();
+            return new double[]{n, n / seconds, n == 0 ? 0 : total.sum() / 1e6 / n,
+                    percentile(counts, n, 0.5, largest), percentile(counts, n, 0.99, largest),
+                    percentile(counts, n, 0.999, largest), largest / 1e6};
+        }
+
+        private static double percentile(long[] counts, long n, double quantile, long largest) {
+            long rank = (long) Math.ceil(quantile * n);
+            long seen = 0;
+            for (int i = 0; i < counts.length && n > 0; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), largest) / 1e6;
+                }
+            }
+            return 0;
+        }
+    }
+
+    static final class Counter {
+        private final LongAdder count = new LongAdder();
+
+        public void increment() {
+            if (ENABLED) {
+                count.increment();
+            }
+        }
+
+        long get() {
+            return count.sum();
+        }
+    }
+
+    public static String text() {
+        StringBuilder out = new StringBuilder(String.format("%-28s %10s %10s %10s %10s %10s %10s %10s%n",
+                "metric", "count", "per sec", "mean ms", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(TIMERS).entrySet()) {
+            double[] s = entry.getValue().snapshot();
+            out.append(String.format("%-28s %10d %10.2f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    entry.getKey(), (long) s[0], s[1], s[2], s[3], s[4], s[5], s[6]));
+        }
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(COUNTERS).entrySet()) {
+            out.append(String.format("%-28s %10d%n", entry.getKey(), entry.getValue().get()));
+        }
+        return out.toString();
+    }
+
+    public static String json() {
+        StringBuilder out = new StringBuilder("{\"uptimeSeconds\":")
+                .append((System.nanoTime() - STARTED) / 1_000_000_000L).append(",\"timers\":{");
+        String separator = "";
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(TIMERS).entrySet()) {
+            double[] s = entry.getValue().snapshot();
+            out.append(separator).append('"').append(entry.getKey()).append("\":{\"count\":").append((long) s[0]);
+            for (int i = 1; i < FIELDS.length; i++) {
+                out.append(",\"").append(FIELDS[i]).append("\":").append(String.format(Locale.ROOT, "%.4f", s[i]));
+            }
+            out.append('}');
+            separator = ",";
+        }
+        out.append("},\"counters\":{");
+        separator = "";
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(COUNTERS).entrySet()) {
+            out.append(separator).append('"').append(entry.getKey()).append("\":").append(entry.getValue().get());
+            separator = ",";
+        }
+        return out.append("}}").toString();
+    }
+
+    static void dump() throws IOException {
+        Path target = Paths.get(DUMP);
+        Path tmp = Paths.get(DUMP + ".tmp");
+        Files.write(tmp, (DUMP.endsWith(".json") ? json() + System.lineSeparator() : text())
+                .getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void dumpQuietly() {
+        try {
+            dump();
+        } catch (IOException e) {
+            System.err.println("Could not write metrics to " + DUMP + ": " + e.getMessage());
+        }
+    }
+
+    // JMX view: "<timer>.<field>" for every timer field and "<counter>" for every counter.
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Counter counter = COUNTERS.get(attribute);
+        if (counter != null) {
+            return counter.get();
+        }
+        int dot = attribute.lastIndexOf('.');
+        Timer timer = dot < 0 ? null : TIMERS.get(attribute.substring(0, dot));
+        int field = dot < 0 ? -1 : Arrays.asList(FIELDS).indexOf(attribute.substring(dot + 1));
+        if (timer == null || field < 0) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return timer.snapshot()[field];
+    }
+
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Left out, as the DynamicMBean contract allows.
+            }
+        }
+        return list;
+    }
+
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+    }
+
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(action));
+    }
+
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : new TreeMap<>(TIMERS).keySet()) {
+            for (String field : FIELDS) {
+                attributes.add(new MBeanAttributeInfo(name + "." + field, "java.lang.Double",
+                        field + " of " + name, true, false, false));
+            }
+        }
+        for (String name : new TreeMap<>(COUNTERS).keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "java.lang.Long", name, true, false, false));
+        }
+        return new MBeanInfo(Metrics.class.getName(), "Personal Budget latency and throughput",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+}
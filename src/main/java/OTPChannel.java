@@ -0,0 +1,7 @@
+import java.io.IOException;
+
+// Where one-time codes are sent. Implementations may block (SMTP, SMS gateways); OTPService
+// calls them on its own sender threads.
+interface OTPChannel {
+    void deliver(String address, String code) throws IOException;
+}
@@ -0,0 +1,11 @@
+import java.security.SecureRandom;
+
+class OTPGenerator {
+    // One generator for the process; SecureRandom is thread-safe.
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    public static String generateOTP() {
+        int otp = 100000 + RANDOM.nextInt(900000); // 6-digit OTP
+        return String.valueOf(otp);
+    }
+}
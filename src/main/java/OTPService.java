@@ -0,0 +1,254 @@
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Issues and checks one-time codes. Pending codes live in a ConcurrentHashMap keyed by the
+// lower-cased address, so verify is a single lookup and a constant-time comparison. A code
+// is good for -Dotp.ttl seconds (default 300) and -Dotp.attempts wrong guesses (default
+// 5), and is consumed by the first right one. Expiry is driven by a timing wheel of
+// one-second slots: each issued code is queued on the slot of its deadline, and a ticker
+// thread clears one slot per second, so expiring costs O(1) per code however many are
+// pending. A new code for the same address is refused for -Dotp.resend seconds (default
+// 30) after the last one. Delivery runs on -Dotp.senders threads (default 4) behind a
+// queue of -Dotp.queue (default 1024); when that is full, issue fails fast instead of
+// stacking up threads. -Dotp.channel picks the channel: console (default) or outbox.
+class OTPService {
+    private static final Metrics.Counter ISSUED = Metrics.counter("otp.issued");
+    private static final Metrics.Counter VERIFIED = Metrics.counter("otp.verified");
+    private static final Metrics.Counter WRONG = Metrics.counter("otp.wrong");
+    private static final Metrics.Counter EXPIRED = Metrics.counter("otp.expired");
+    private static final Metrics.Counter LOCKED = Metrics.counter("otp.locked");
+    private static final Metrics.Counter THROTTLED = Metrics.counter("otp.throttled");
+    private static final Metrics.Timer DELIVER = Metrics.timer("otp.deliver");
+    private static OTPService shared;
+
+    enum Result { VERIFIED, WRONG, EXPIRED, LOCKED }
+
+    private static final class Pending {
+        final byte[] code;
+        final long expiresAt;
+        int attempts;
+
+        Pending(String code, long expiresAt) {
+            this.code = code.getBytes(StandardCharsets.US_ASCII);
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // When an address may next be sent a code, kept apart from its Pending code so that
+    // using up the guesses, or a failed delivery, doesn't clear the wait. Each lockout
+    // since the last verified code doubles the wait before the next code, starting at the
+    // code lifetime; lockouts are forgotten a day after the last one.
+    private static final class Throttle {
+        long nextIssue;
+        int lockouts;
+        long lockedAt;
+
+        long forgetAt() {
+            return lockouts == 0 ? nextIssue : Math.max(nextIssue, lockedAt + LOCKOUT_MEMORY_MILLIS);
+        }
+    }
+
+    private static final long LOCKOUT_MEMORY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int SWEEP_SECONDS = 60;
+
+    private final OTPChannel channel;
+    private final long ttlMillis;
+    private final long resendMillis;
+    private final int maxAttempts;
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Throttle> throttles = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String>[] wheel;
+    private final ThreadPoolExecutor senders;
+    private final ScheduledExecutorService ticker;
+    private long tick;
+
+    public OTPService(OTPChannel channel, long ttlSeconds, long resendSeconds, int maxAttempts,
+                      int senderThreads, int queueSize) {
+        this.channel = channel;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.resendMillis = resendSeconds * 1000;
+        this.maxAttempts = maxAttempts;
+        this.wheel = slots((int) ttlSeconds + 2);
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), daemon("otp-sender"));
+        this.ticker = Executors.newSingleThreadScheduledExecutor(daemon("otp-expiry"));
+        this.tick = System.currentTimeMillis() / 1000;
+        ticker.scheduleAtFixedRate(this::expire, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public static synchronized OTPService shared() {
+        if (shared == null) {
+            OTPChannel channel = System.getProperty("otp.channel", "console").equals("outbox")
+                    ? new OutboxOTPChannel() : new ConsoleOTPChannel();
+            shared = new OTPService(channel, Long.getLong("otp.ttl", 300), Long.getLong("otp.resend", 30),
+                    Integer.getInteger("otp.attempts", 5), Integer.getInteger("otp.senders", 4),
+                    Integer.getInteger("otp.queue", 1024));
+        }
+        return shared;
+    }
+
+    // Issues a fresh code, replacing any pending one, and sends it. Throws
+    // IllegalStateException when the address asked for a code too recently or is waiting
+    // out a lockout; the future
+    // fails with RejectedExecutionException when the senders are saturated, or with the
+    // channel's error. Output from the channel goes to the caller's session.
+    public CompletableFuture<Void> issue(String address) {
+        String key = address.toLowerCase(Locale.ROOT);
+        long now = System.currentTimeMillis();
+        long[] waitUntil = {0};
+        throttles.compute(key, (k, throttle) -> {
+            if (throttle == null) {
+                throttle = new Throttle();
+            } else if (now < throttle.nextIssue) {
+                waitUntil[0] = throttle.nextIssue;
+                return throttle;
+            }
+            throttle.nextIssue = now + resendMillis;
+            return throttle;
+        });
+        if (waitUntil[0] != 0) {
+            THROTTLED.increment();
+            long wait = (waitUntil[0] - now + 999) / 1000;
+            throw new IllegalStateException("Please wait " + wait + "s before requesting another code.");
+        }
+        String code = OTPGenerator.generateOTP();
+        Pending issued = new Pending(code, now + ttlMillis);
+        pending.put(key, issued);
+        wheel[slot(issued.expiresAt)].add(key);
+        ISSUED.increment();
+
+        OutputStream session = SessionConsole.current();
+        CompletableFuture<Void> delivered = new CompletableFuture<>();
+        try {
+            senders.execute(() -> {
+                long start = Metrics.start();
+                SessionConsole.capture(session);
+                try {
+                    channel.deliver(address, code);
+                    DELIVER.stop(start);
+                    delivered.complete(null);
+                } catch (Exception e) {
+                    pending.remove(key, issued);
+                    delivered.completeExceptionally(e);
+                } finally {
+                    SessionConsole.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(key, issued);
+            delivered.completeExceptionally(e);
+        }
+        return delivered;
+    }
+
+    // Checks a code; the first right answer consumes it. After maxAttempts wrong answers
+    // the code is dropped, and a new one can only be issued once the lockout wait is over.
+    public Result verify(String address, String code) {
+        String key = address.toLowerCase(Locale.ROOT);
+        byte[] entered = code.trim().getBytes(StandardCharsets.US_ASCII);
+        Result[] result = {Result.EXPIRED};
+        pending.computeIfPresent(key, (k, current) -> {
+            if (current.expiresAt <= System.currentTimeMillis()) {
+                return null;
+            }
+            if (MessageDigest.isEqual(current.code, entered)) {
+                result[0] = Result.VERIFIED;
+                return null;
+            }
+            if (++current.attempts >= maxAttempts) {
+                result[0] = Result.LOCKED;
+                return null;
+            }
+            result[0] = Result.WRONG;
+            return current;
+        });
+        if (result[0] == Result.LOCKED) {
+            long now = System.currentTimeMillis();
+            throttles.compute(key, (k, throttle) -> {
+                if (throttle == null) {
+                    throttle = new Throttle();
+                }
+                long wait = Math.max(ttlMillis, resendMillis) << Math.min(throttle.lockouts, 10);
+                throttle.lockouts++;
+                throttle.lockedAt = now;
+                throttle.nextIssue = Math.max(throttle.nextIssue, now + wait);
+                return throttle;
+            });
+        } else if (result[0] == Result.VERIFIED) {
+            throttles.computeIfPresent(key, (k, throttle) -> {
+                throttle.lockouts = 0;
+                return throttle;
+            });
+        }
+        counter(result[0]).increment();
+        return result[0];
+    }
+
+    public int pending() {
+        return pending.size();
+    }
+
+    private static Metrics.Counter counter(Result result) {
+        switch (result) {
+            case VERIFIED:
+                return VERIFIED;
+            case WRONG:
+                return WRONG;
+            case EXPIRED:
+                return EXPIRED;
+            default:
+                return LOCKED;
+        }
+    }
+
+    // Clears every slot whose second has passed. Addresses re-issued since they were queued
+    // keep their newer code, which sits in a later slot.
+    private void expire() {
+        long now = System.currentTimeMillis();
+        long second = now / 1000;
+        for (; tick < second; tick++) {
+            ConcurrentLinkedQueue<String> slot = wheel[(int) (tick % wheel.length)];
+            String key;
+            while ((key = slot.poll()) != null) {
+                pending.computeIfPresent(key, (k, current) -> current.expiresAt <= now ? null : current);
+            }
+            if (tick % SWEEP_SECONDS == 0) {
+                throttles.forEach((address, unused) -> throttles.computeIfPresent(address,
+                        (k, throttle) -> throttle.forgetAt() <= now ? null : throttle));
+            }
+        }
+    }
+
+    private int slot(long expiresAt) {
+        return (int) (((expiresAt + 999) / 1000) % wheel.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ConcurrentLinkedQueue<String>[] slots(int count) {
+        ConcurrentLinkedQueue<String>[] slots = (ConcurrentLinkedQueue<String>[]) new ConcurrentLinkedQueue<?>[count];
+        for (int i = 0; i < count; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        return slots;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,9 @@
+import java.io.IOException;
+
+// Local stand-in for a push channel: alerts land in <user>_alerts.txt as
+// date,category,window,spent,limit.
+class OutboxAlertSink implements AlertSink {
+    public void alert(String filename, BudgetAlerts.Alert alert) throws IOException {
+        LedgerAppender.appendLine(filename + "_alerts.txt", alert.toFileString());
+    }
+}
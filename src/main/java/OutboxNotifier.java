@@ -0,0 +1,8 @@
+import java.io.IOException;
+
+// Local stand-in for a real delivery channel: notifications land in <user>_notifications.txt.
+class OutboxNotifier implements ReminderNotifier {
+    public void notify(String filename, Reminder reminder) throws IOException {
+        LedgerAppender.appendLine(filename + "_notifications.txt", reminder.toFileString());
+    }
+}
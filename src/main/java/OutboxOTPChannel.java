@@ -0,0 +1,8 @@
+import java.io.IOException;
+
+// Local stand-in for scripts and tests: appends "address,code" to otp-outbox.txt.
+class OutboxOTPChannel implements OTPChannel {
+    public void deliver(String address, String code) throws IOException {
+        LedgerAppender.appendLine("otp-outbox.txt", address + "," + code);
+    }
+}
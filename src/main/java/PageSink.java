@@ -0,0 +1,69 @@
+import java.io.IOException;
+import java.time.LocalDate;
+
+// Passes one page of rows on to another sink: drops the first `skip` rows, forwards up to
+// `limit`, and stops the read by throwing Full when the row after the page arrives. next()
+// is that row's position, where the following page starts.
+class PageSink implements ReportSink {
+    // Thrown through the ledger reader to stop it; carries no stack trace.
+    static final class Full extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        Full() {
+            super("Page full");
+        }
+
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private final ReportSink target;
+    private final long skip;
+    private final int limit;
+    private long seen;
+    private int passed;
+    private long next;
+
+    // With a limit of 0 nothing reaches the target, which may then be null.
+    PageSink(ReportSink target, long skip, int limit) {
+        this.target = target;
+        this.skip = skip;
+        this.limit = limit;
+    }
+
+    public long next() {
+        return next;
+    }
+
+    public int passed() {
+        return passed;
+    }
+
+    public void begin(String title, LocalDate from, LocalDate to) throws IOException {
+        target.begin(title, from, to);
+    }
+
+    public void row(ExpenseRow row) throws IOException {
+        if (seen < skip) {
+            seen++;
+            return;
+        }
+        if (passed == limit) {
+            next = row.position;
+            throw new Full();
+        }
+        passed++;
+        target.row(row);
+    }
+
+    public void message(String text) throws IOException {
+        target.message(text);
+    }
+
+    public void close() throws IOException {
+        if (target != null) {
+            target.close();
+        }
+    }
+}
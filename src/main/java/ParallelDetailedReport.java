@@ -0,0 +1,57 @@
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Each range is rendered to text on the pool; ranges are printed strictly in file order,
+// with at most a few ranges per worker rendered ahead so memory stays bounded.
+class ParallelDetailedReport extends ParallelReport {
+    public ParallelDetailedReport() {
+        this(DEFAULT_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    public ParallelDetailedReport(long threshold, ForkJoinPool pool) {
+        super(threshold, pool);
+    }
+
+    protected ReportStrategy sequential() {
+        return new DetailedReport();
+    }
+
+    protected String errorPrefix() {
+        return "Error generating details: ";
+    }
+
+    protected void generate(FileChannel channel, long[] bounds) {
+        System.out.println("Detailed Report:");
+        int chunks = bounds.length - 1;
+        int window = pool.getParallelism() * 2;
+        List<ForkJoinTask<String>> pending = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            pending.add(i < window ? pool.submit(render(channel, bounds[i], bounds[i + 1])) : null);
+        }
+        for (int i = 0; i < chunks; i++) {
+            String text = pending.get(i).join();
+            pending.set(i, null);
+            if (i + window < chunks) {
+                pending.set(i + window, pool.submit(render(channel, bounds[i + window], bounds[i + window + 1])));
+            }
+            System.out.print(text);
+        }
+    }
+
+    private static Callable<String> render(FileChannel channel, long from, long to) {
+        return () -> {
+            StringBuilder out = new StringBuilder();
+            String newline = System.lineSeparator();
+            LedgerReader.read(channel, from, to, line -> {
+                if (DetailedReport.appendLine(line, out)) {
+                    out.append(newline);
+                }
+            });
+            return out.toString();
+        };
+    }
+}
@@ -0,0 +1,98 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+
+// Base for the fork/join report modes: splits <user>_expenses.txt into line-aligned byte
+// ranges and scans them on a ForkJoinPool. Ledgers below the threshold (and binary
+// ledgers, which are already a single column scan) go to the sequential strategy.
+abstract class ParallelReport implements ReportStrategy {
+    public static final long DEFAULT_THRESHOLD =
+            Long.getLong("report.parallel.threshold", 4L * 1024 * 1024);
+    protected static final long CHUNK_SIZE = 1024 * 1024;
+
+    protected final long threshold;
+    protected final ForkJoinPool pool;
+
+    protected ParallelReport(long threshold, ForkJoinPool pool) {
+        this.threshold = threshold;
+        this.pool = pool;
+    }
+
+    protected abstract ReportStrategy sequential();
+
+    protected abstract void generate(FileChannel channel, long[] bounds) throws Exception;
+
+    protected abstract String errorPrefix();
+
+    public void generate(String filename) {
+        File file = new File(filename + "_expenses.txt");
+        try {
+            if (BinaryLedger.isEnabled(filename) || LedgerStorage.isLsm(filename)
+                    || !file.exists() || file.length() < threshold) {
+                sequential().generate(filename);
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                generate(channel, split(channel));
+            }
+        } catch (Exception e) {
+            System.out.println(errorPrefix() + message(e));
+        }
+    }
+
+    // Chunk boundaries, each moved forward to the start of the next line.
+    static long[] split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int chunks = (int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        long[] bounds = new long[chunks + 1];
+        bounds[chunks] = size;
+        for (int i = 1; i < chunks; i++) {
+            bounds[i] = Math.max(bounds[i - 1], lineStart(channel, i * CHUNK_SIZE, size));
+        }
+        return bounds;
+    }
+
+    private static long lineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        long at = position - 1;
+        while (at < size) {
+            buffer.clear();
+            int read = channel.read(buffer, at);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    return at + i + 1;
+                }
+                if (b == '\r') {
+                    if (i + 1 < read) {
+                        return buffer.get(i + 1) == '\n' ? at + i + 2 : at + i + 1;
+                    }
+                    ByteBuffer next = ByteBuffer.allocate(1);
+                    boolean crlf = channel.read(next, at + i + 1) == 1 && next.get(0) == '\n';
+                    return crlf ? at + i + 2 : at + i + 1;
+                }
+            }
+            at += read;
+        }
+        return size;
+    }
+
+    // ForkJoinTask.join re-creates exceptions thrown on worker threads, which can lose
+    // the original message.
+    private static String message(Throwable e) {
+        while (e.getMessage() == null && e.getCause() != null) {
+            e = e.getCause();
+        }
+        if (e instanceof UncheckedIOException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e.getMessage();
+    }
+}
@@ -0,0 +1,68 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Summary totals from each range are merged pairwise, in exact cents like SummaryReport.
+class ParallelSummaryReport extends ParallelReport {
+    public ParallelSummaryReport() {
+        this(DEFAULT_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    public ParallelSummaryReport(long threshold, ForkJoinPool pool) {
+        super(threshold, pool);
+    }
+
+    protected ReportStrategy sequential() {
+        return new SummaryReport();
+    }
+
+    protected String errorPrefix() {
+        return "Error generating summary: ";
+    }
+
+    protected void generate(FileChannel channel, long[] bounds) {
+        SummaryReport.Cents totals = pool.invoke(new SumTask(channel, bounds, 0, bounds.length - 1));
+
+        System.out.println(" Summary Report:");
+        System.out.println("- Total Expenses: $" + totals.total / 100.0);
+        System.out.println("- Number of Transactions: " + totals.count);
+    }
+
+    private static class SumTask extends RecursiveTask<SummaryReport.Cents> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final int from;
+        private final int to;
+
+        SumTask(FileChannel channel, long[] bounds, int from, int to) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected SummaryReport.Cents compute() {
+            if (to - from == 1) {
+                SummaryReport.Cents totals = new SummaryReport.Cents();
+                try {
+                    LedgerReader.read(channel, bounds[from], bounds[to], totals);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return totals;
+            }
+            int middle = (from + to) >>> 1;
+            SumTask left = new SumTask(channel, bounds, from, middle);
+            left.fork();
+            SummaryReport.Cents right = new SumTask(channel, bounds, middle, to).compute();
+            SummaryReport.Cents merged = left.join();
+            merged.total += right.total;
+            merged.count += right.count;
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// Salted PBKDF2 password hashes, stored in users.txt as
+//   pbkdf2-sha256$<iterations>$<base64 salt>$<base64 hash>
+// The cost is tunable with -Dauth.pbkdf2.iterations; records hashed with fewer iterations,
+// and legacy plaintext records, are reported by needsRehash so login can upgrade them.
+class PasswordHasher {
+    public static final int ITERATIONS = Integer.getInteger("auth.pbkdf2.iterations", 310_000);
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    public static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, ITERATIONS);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + ITERATIONS + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(hash);
+    }
+
+    // Plaintext records (anything not in the hashed format) are compared as-is.
+    public static boolean verify(String password, String stored) {
+        String[] parts = parse(stored);
+        if (parts == null) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        Base64.Decoder base64 = Base64.getDecoder();
+        byte[] expected = base64.decode(parts[2]);
+        byte[] actual = pbkdf2(password, base64.decode(parts[1]), Integer.parseInt(parts[0]));
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    public static boolean needsRehash(String stored) {
+        String[] parts = parse(stored);
+        return parts == null || Integer.parseInt(parts[0]) < ITERATIONS;
+    }
+
+    // iterations, salt, hash; or null if the value isn't a well-formed hash.
+    private static String[] parse(String stored) {
+        if (!stored.startsWith(PREFIX)) {
+            return null;
+        }
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3 || !parts[0].matches("\\d{1,9}")) {
+            return null;
+        }
+        try {
+            Base64.getDecoder().decode(parts[1]);
+            Base64.getDecoder().decode(parts[2]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return parts;
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,376 @@
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Scanner;
+
+public class PersonalBudget {
+    public static void main(String[] args) throws IOException {
+        UserStorage storage = new IndexedUserStorage();
+        UserValidator validator = new UserValidator();
+        if (args.length > 0 && args[0].equals("--analytics")) {
+            File report = new File(args.length > 1 ? args[1] : "analytics-report.txt");
+            try {
+                new AnalyticsJob(new File("users.txt"), new File("analytics.checkpoint"), report).run();
+            } catch (InterruptedException e) {
+                System.out.println("Analytics interrupted; run again to resume.");
+            } finally {
+                LedgerAppender.closeAll();
+                LsmStore.closeAll();
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : BudgetServer.DEFAULT_PORT;
+            new BudgetServer(port, storage, validator).serve();
+            return;
+        }
+
+        Scanner input = new Scanner(System.in);
+        AuthenticationManager auth = new AuthenticationManager(storage, validator);
+        ReminderScheduler.start(new ConsoleNotifier());
+        Compactor.start(false);
+
+        while (true) {
+            System.out.println("************* Welcome *************");
+            System.out.println("1. Sign Up\n2. Login \n3. Exit");
+            int choice = input.nextInt();
+            input.nextLine();
+
+            if (choice == 1) {
+
+                String username;
+                do {
+                    System.out.print("Username: ");
+                    username = input.nextLine().trim();
+                    if (username.isEmpty()) {
+                        System.out.println("Username cannot be empty. Please try again.");
+                    }
+                } while (username.isEmpty());
+
+
+                String email;
+                do {
+                    System.out.print("Email: ");
+                    email = input.nextLine().trim();
+                    if (!validator.isValidEmail(email)) {
+                        System.out.println("Invalid email format. Must be like user@example.com");
+                        System.out.println("Example: john@gmail.com, user123@company.co.uk");
+                    }
+                } while (!validator.isValidEmail(email));
+
+
+                String password;
+                do {
+                    System.out.print("Password: ");
+                    password = input.nextLine().trim();
+                    if (!validator.isValidPassword(password)) {
+                        System.out.println("Invalid password. Must be:");
+                        System.out.println("- Between 8-16 characters long");
+                        System.out.println("- Contain at least one uppercase letter");
+                        System.out.println("- Contain at least one lowercase letter");
+                        System.out.println("- Contain at least one number");
+                    }
+                } while (!validator.isValidPassword(password));
+
+
+                String phone;
+                do {
+                    System.out.print("Phone Number (e.g., +201234567890): ");
+                    phone = input.nextLine().trim();
+                    if (!validator.isValidPhone(phone)) {
+                        System.out.println("Invalid phone number. Must:");
+                        System.out.println("- Start with '+' sign");
+                        System.out.println("- Contain 10-15 digits after the '+'");
+                        System.out.println("Example: +201234567890, +12345678901");
+                    }
+                } while (!validator.isValidPhone(phone));
+
+
+                auth.signUp(username, email, password, phone, question -> {
+                    System.out.print(question);
+                    return input.nextLine();
+                });
+
+            } else if (choice == 2) {
+
+                String email;
+                do {
+                    System.out.print("Email: ");
+                    email = input.nextLine().trim();
+                    if (!validator.isValidEmail(email)) {
+                        System.out.println("Invalid email format. Must be like user@example.com");
+                        System.out.println("Example: john@gmail.com, user123@company.co.uk");
+                    }
+                } while (!validator.isValidEmail(email));
+
+                String password;
+                do {
+                    System.out.print("Password: ");
+                    password = input.nextLine().trim();
+                    if (!validator.isValidPassword(password)) {
+                        System.out.println("Invalid password. Must be:");
+                        System.out.println("- Between 8-16 characters long");
+                        System.out.println("- Contain at least one uppercase letter");
+                        System.out.println("- Contain at least one lowercase letter");
+                        System.out.println("- Contain at least one number");
+                    }
+                } while (!validator.isValidPassword(password));
+
+
+                if (auth.login(email, password)) {
+
+                    Dashboard dashboard = new Dashboard(email);
+                    while (true) {
+                        System.out.println("\n--- Dashboard ---");
+                        System.out.println("1. Add Expense");
+                        System.out.println("2. Display Expenses");
+                        System.out.println("3. Add Reminder");
+                        System.out.println("4. Add Goal");
+                        System.out.println("5. Display Goals");
+                        System.out.println("6. View Financial Report");
+                        System.out.println("7. Track My Income");
+                        System.out.println("8. Budgeting & Analysing");
+                        System.out.println("9. Logout");
+                        System.out.println("10. Ledger Storage Format");
+                        System.out.println("11. Import Bank Statement");
+
+                        int action = input.nextInt();
+                        input.nextLine();
+
+                        if (action == 1) {
+                            System.out.print("Amount: ");
+                            double amount = input.nextDouble();
+                            input.nextLine();
+
+                            System.out.print("Category: ");
+                            String category = input.nextLine();
+
+                            System.out.print("Payment Method: ");
+                            String method = input.nextLine();
+
+                            System.out.print("Date (YYYY-MM-DD): ");
+                            String date = input.nextLine();
+
+                            dashboard.addExpense(new Expense(amount, category, method, date));
+
+                        } else if (action == 2) {
+                            dashboard.displayExpenses(question -> {
+                                System.out.print(question);
+                                return input.nextLine();
+                            });
+                        } else if (action == 3) {
+                            System.out.print("Reminder Title: ");
+                            String title = input.nextLine();
+                            System.out.print("Date (YYYY-MM-DD): ");
+                            String rDate = input.nextLine();
+                            System.out.print("Time (HH:MM): ");
+                            String rTime = input.nextLine();
+                            dashboard.addReminder(new Reminder(title, rDate, rTime));
+                        } else if (action == 4) {
+                            System.out.print("Goal Title: ");
+                            String gTitle = input.nextLine();
+
+                            System.out.print("Target Amount: ");
+                            double gTarget = input.nextDouble();
+                            input.nextLine();
+
+                            System.out.print("Current Amount: ");
+                            double gCurrent = input.nextDouble();
+                            input.nextLine();
+
+                            System.out.print("Deadline (YYYY-MM-DD): ");
+                            String gDeadline = input.nextLine();
+
+                            dashboard.addGoal(new Goal(gTitle, gTarget, gCurrent, gDeadline));
+
+                            System.out.print("Share of each income to put toward this goal (%, 0 for none): ");
+                            double gShare = input.nextDouble();
+                            input.nextLine();
+                            if (gShare > 0) {
+                                dashboard.setGoalRule(gTitle, false, gShare, "*");
+                            }
+                        } else if (action == 5) {
+                            dashboard.displayGoals();
+                        } else if (action == 6) {
+                            System.out.println("Choose report type:");
+                            System.out.println("1. Summary Report");
+                            System.out.println("2. Detailed Report");
+                            System.out.println("3. Summary Report (parallel)");
+                            System.out.println("4. Detailed Report (parallel)");
+                            System.out.println("5. Summary Report for a date range");
+                            System.out.println("6. Detailed Report for a date range");
+                            System.out.println("7. Export Expenses (CSV or JSON file)");
+                            System.out.println("8. Statistics Report (median, p90/p99, top categories and methods)");
+                            System.out.println("9. Spending Trends (month over month, month-end projection)");
+                            int reportChoice = input.nextInt();
+                            input.nextLine();
+
+                            ReportStrategy strategy;
+                            if (reportChoice == 7) {
+                                System.out.print("File (.csv or .json): ");
+                                String path = input.nextLine().trim();
+                                System.out.print("Limit to a date range? (y/n): ");
+                                boolean range = input.nextLine().trim().equalsIgnoreCase("y");
+                                LocalDate from = range ? readDate(input, "From (YYYY-MM-DD): ") : null;
+                                LocalDate to = range ? readDate(input, "To (YYYY-MM-DD): ") : null;
+                                try {
+                                    dashboard.exportExpenses(new File(path), from, to);
+                                } catch (IllegalArgumentException | IOException e) {
+                                    System.out.println("Export failed: " + e.getMessage());
+                                }
+                                continue;
+                            } else if (reportChoice == 5 || reportChoice == 6) {
+                                LocalDate from = readDate(input, "From (YYYY-MM-DD): ");
+                                LocalDate to = readDate(input, "To (YYYY-MM-DD): ");
+                                strategy = reportChoice == 5 ? new SummaryReport(from, to) : new DetailedReport(from, to);
+                            } else if (reportChoice == 8) {
+                                System.out.print("Limit to a range of months? (y/n): ");
+                                boolean range = input.nextLine().trim().equalsIgnoreCase("y");
+                                strategy = range ? new StatisticsReport(readDate(input, "From (YYYY-MM-DD): "),
+                                        readDate(input, "To (YYYY-MM-DD): ")) : new StatisticsReport();
+                            } else if (reportChoice == 9) {
+                                strategy = new TrendsReport();
+                            } else if (reportChoice == 1) {
+                                strategy = new SummaryReport();
+                            } else if (reportChoice == 3) {
+                                strategy = new ParallelSummaryReport();
+                            } else if (reportChoice == 4) {
+                                strategy = new ParallelDetailedReport();
+                            } else {
+                                strategy = new DetailedReport();
+                            }
+                            dashboard.generateReport(strategy);
+                        } else if (action == 7) {
+                            // Track Income
+                            System.out.print("Income Source (e.g., salary, freelance): ");
+                            String source = input.nextLine();
+                            while (!Income.isValidSource(source)) {
+                                System.out.print("Invalid source (3-50 chars). Enter again: ");
+                                source = input.nextLine();
+                            }
+
+                            System.out.print("Amount: ");
+                            double amount = input.nextDouble();
+                            input.nextLine();
+                            while (!Income.isValidAmount(amount)) {
+                                System.out.print("Amount must be positive. Enter again: ");
+                                amount = input.nextDouble();
+                                input.nextLine();
+                            }
+
+                            System.out.print("Date (YYYY-MM-DD): ");
+                            String date = input.nextLine();
+                            while (!Income.isValidDate(date)) {
+                                System.out.print("Invalid date format. Enter again (YYYY-MM-DD): ");
+                                date = input.nextLine();
+                            }
+
+                            dashboard.addIncome(new Income(source, amount, date));
+
+                        } else if (action == 8) {
+                            // Budgeting & Analysis
+                            System.out.println("\nBudgeting Options:");
+                            System.out.println("1. Set Budget");
+                            System.out.println("2. View Budgets");
+                            System.out.println("3. Spending Analysis");
+                            System.out.println("4. Verify/Rebuild Analysis Data");
+                            System.out.print("Choose an option: ");
+                            int budgetChoice = input.nextInt();
+                            input.nextLine();
+
+                            if (budgetChoice == 1) {
+                                // Set Budget
+                                System.out.print("Category (e.g., groceries, rent): ");
+                                String category = input.nextLine();
+                                while (!Budget.isValidCategory(category)) {
+                                    System.out.print("Invalid category (3-50 chars). Enter again: ");
+                                    category = input.nextLine();
+                                }
+
+                                System.out.print("Budget Amount: ");
+                                double amount = input.nextDouble();
+                                input.nextLine();
+                                while (!Budget.isValidAmount(amount)) {
+                                    System.out.print("Amount must be positive. Enter again: ");
+                                    amount = input.nextDouble();
+                                    input.nextLine();
+                                }
+
+                                dashboard.setBudget(new Budget(category, amount));
+
+                            } else if (budgetChoice == 2) {
+                                dashboard.displayBudgets();
+                            } else if (budgetChoice == 3) {
+                                dashboard.displaySpendingAnalysis();
+                            } else if (budgetChoice == 4) {
+                                dashboard.verifyAnalysis();
+                            } else {
+                                System.out.println("Invalid option.");
+                            }
+
+                        } else if (action == 9) {
+                            dashboard.logout();
+                            break; // Exit dashboard loop
+                        } else if (action == 10) {
+                            boolean binary = dashboard.isBinaryLedger();
+                            boolean lsm = dashboard.isLsmStorage();
+                            System.out.println("Current format: " + (lsm ? "Log-structured store (all ledgers)"
+                                    : binary ? "Binary (columnar)" : "Text (CSV)"));
+                            System.out.println("1. Text (CSV)");
+                            System.out.println("2. Binary (columnar)");
+                            System.out.println("3. Log-structured store (all ledgers)");
+                            int formatChoice = input.nextInt();
+                            input.nextLine();
+
+                            if (formatChoice == 3) {
+                                dashboard.setLedgerStorage(true);
+                            } else if (formatChoice == 1 || formatChoice == 2) {
+                                if (lsm) {
+                                    dashboard.setLedgerStorage(false);
+                                }
+                                if (!lsm || formatChoice == 2) {
+                                    dashboard.setLedgerFormat(formatChoice == 2);
+                                }
+                            } else {
+                                System.out.println("Invalid option.");
+                            }
+                        } else if (action == 11) {
+                            System.out.println("Statement CSV columns: date,description,amount[,method[,category]]");
+                            System.out.println("Negative amounts are expenses, positive amounts are incomes.");
+                            System.out.print("Statement file path: ");
+                            dashboard.importStatement(new File(input.nextLine().trim()));
+                        } else {
+                            System.out.println("Invalid option.");
+                        }
+                    }
+                } else {
+                    System.out.println("Login failed. Returning to main menu.");
+                }
+            } else if (choice == 3) {
+                System.out.println("Exiting program...");
+                LedgerAppender.closeAll();
+                LsmStore.closeAll();
+                input.close();
+                break;
+            } else {
+                System.out.println("Invalid option. Please choose 1, 2, or 3.");
+            }
+        }
+    }
+
+    private static LocalDate readDate(Scanner input, String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            String date = input.nextLine().trim();
+            if (Income.isValidDate(date)) {
+                try {
+                    return LocalDate.parse(date);
+                } catch (DateTimeParseException e) {
+                    // Well-formed but not a real date; ask again.
+                }
+            }
+            System.out.println("Invalid date. Use YYYY-MM-DD.");
+        }
+    }
+}
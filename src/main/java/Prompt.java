@@ -0,0 +1,5 @@
+import java.io.IOException;
+
+interface Prompt {
+    String ask(String question) throws IOException;
+}
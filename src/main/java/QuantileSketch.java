@@ -0,0 +1,172 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+// KLL quantile sketch over amounts in cents. Values go into level 0; when the sketch holds
+// more than its capacity, the lowest full level is sorted and every other value moves up
+// a level with twice the weight. Level h holds about k * (2/3)^(top - h) values, so memory
+// stays O(k) whatever the count, and a rank is off by about n / k at worst. Two sketches
+// merge by concatenating their levels and compacting, which is what makes partitions (by
+// month, by user) combinable. -Dreport.sketch.k sets k (default 200).
+class QuantileSketch {
+    static final int K = Integer.getInteger("report.sketch.k", 200);
+
+    private long[][] levels = {new long[8]};
+    private int[] sizes = new int[1];
+    private int[] capacities = {K};
+    private int capacity = K;
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    private int retained;
+    // Alternates which half of a compacted level moves up, so compaction doesn't bias low or high.
+    private boolean odd;
+
+    public void add(long cents) {
+        count++;
+        min = Math.min(min, cents);
+        max = Math.max(max, cents);
+        push(0, cents);
+        if (retained > capacity) {
+            compress();
+        }
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        for (int h = 0; h < other.sizes.length; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                push(h, other.levels[h][i]);
+            }
+        }
+        while (retained > capacity) {
+            compress();
+        }
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    // The value at rank q * count (q in [0, 1]); 0 when empty.
+    public long quantile(double q) {
+        if (count == 0) {
+            return 0;
+        }
+        if (q <= 0) {
+            return min;
+        }
+        if (q >= 1) {
+            return max;
+        }
+        long[] values = new long[retained];
+        long[] weights = new long[retained];
+        int n = 0;
+        for (int h = 0; h < sizes.length; h++) {
+            for (int i = 0; i < sizes[h]; i++) {
+                values[n] = levels[h][i];
+                weights[n++] = 1L << h;
+            }
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> values[i]));
+        double target = q * count;
+        long seen = 0;
+        for (int i : order) {
+            seen += weights[i];
+            if (seen >= target) {
+                return values[i];
+            }
+        }
+        return max;
+    }
+
+    private void push(int level, long value) {
+        ensureLevel(level);
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], sizes[level] * 2);
+        }
+        levels[level][sizes[level]++] = value;
+        retained++;
+    }
+
+    // Adding a level shrinks the capacity of every level below it.
+    private void ensureLevel(int level) {
+        if (level < sizes.length) {
+            return;
+        }
+        levels = Arrays.copyOf(levels, level + 1);
+        sizes = Arrays.copyOf(sizes, level + 1);
+        capacities = new int[level + 1];
+        capacity = 0;
+        for (int h = 0; h <= level; h++) {
+            levels[h] = levels[h] == null ? new long[8] : levels[h];
+            capacities[h] = Math.max(2, (int) Math.ceil(K * Math.pow(2.0 / 3, level - h)));
+            capacity += capacities[h];
+        }
+    }
+
+    // Halves the lowest level that is at capacity.
+    private void compress() {
+        for (int h = 0; h < sizes.length; h++) {
+            if (sizes[h] >= capacities[h]) {
+                long[] level = levels[h];
+                int size = sizes[h];
+                Arrays.sort(level, 0, size);
+                // With an odd count the smallest value stays behind at this level.
+                int start = size % 2;
+                sizes[h] = start;
+                retained -= size - start;
+                odd = !odd;
+                for (int i = start + (odd ? 1 : 0); i < size; i += 2) {
+                    push(h + 1, level[i]);
+                }
+                return;
+            }
+        }
+    }
+
+    // "count,min,max,levels" with levels separated by '|' and values by ' '.
+    public void write(StringBuilder out) {
+        out.append(count).append(',').append(min).append(',').append(max).append(',');
+        for (int h = 0; h < sizes.length; h++) {
+            if (h > 0) {
+                out.append('|');
+            }
+            for (int i = 0; i < sizes[h]; i++) {
+                if (i > 0) {
+                    out.append(' ');
+                }
+                out.append(levels[h][i]);
+            }
+        }
+    }
+
+    public static QuantileSketch read(String[] parts, int at) {
+        QuantileSketch sketch = new QuantileSketch();
+        String[] levels = parts[at + 3].split("\\|", -1);
+        for (int h = 0; h < levels.length; h++) {
+            sketch.ensureLevel(h);
+            if (!levels[h].isEmpty()) {
+                for (String value : levels[h].split(" ")) {
+                    sketch.push(h, Long.parseLong(value));
+                }
+            }
+        }
+        sketch.count = Long.parseLong(parts[at]);
+        sketch.min = Long.parseLong(parts[at + 1]);
+        sketch.max = Long.parseLong(parts[at + 2]);
+        return sketch;
+    }
+}
@@ -0,0 +1,35 @@
+class Reminder {
+    private String title;
+    private String date;
+    private String time;
+
+    public Reminder(String title, String date, String time) {
+        this.title = title;
+        this.date = date;
+        this.time = time;
+    }
+
+    public String toFileString() {
+        return title + "," + date + "," + time;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getTime() {
+        return time;
+    }
+
+    public void displayReminder() {
+        System.out.println("Reminder: " + title + " at " + date + " " + time);
+    }
+
+    public boolean isValid() {
+        return !title.isEmpty() && date.matches("\\d{4}-\\d{2}-\\d{2}") && time.matches("\\d{2}:\\d{2}");
+    }
+}
@@ -0,0 +1,5 @@
+import java.io.IOException;
+
+interface ReminderNotifier {
+    void notify(String filename, Reminder reminder) throws IOException;
+}
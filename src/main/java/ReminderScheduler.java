@@ -0,0 +1,357 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fires reminders for every user through a ReminderNotifier. The schedule is kept in
+// reminder-schedule/<hour>.txt, one file per hour since the epoch (UTC), with lines
+//   id,user,date,time,title   a scheduled reminder
+//   X,id                      a cancellation
+// Only the current and the next hour are held in memory, in a hashed timing wheel of
+// one-second slots with doubly linked entries, so insert and cancel are O(1) and memory
+// only grows with the reminders due soon. Later hours are loaded as the clock reaches them.
+// reminder-schedule/cursor holds the first hour not yet fully fired; on restart the
+// scheduler resumes from there (firing anything missed, at least once) instead of
+// rescanning every user's reminders file. That scan only happens once, to migrate
+// reminders saved before the schedule existed.
+class ReminderScheduler {
+    private static final int WHEEL_SIZE = 4096;
+    private static final long SECONDS_PER_HOUR = 3600;
+    private static ReminderScheduler shared;
+
+    private final Path dir;
+    private final ReminderNotifier notifier;
+    private final Entry[] wheel = new Entry[WHEEL_SIZE];
+    private final Map<String, Entry> loaded = new HashMap<>();
+    private final ExecutorService delivery;
+    private final AtomicLong ids;
+    private Thread ticker;
+    private long tick;
+    private long loadedThrough;
+
+    // A scheduled reminder; entry is set while its hour is loaded.
+    static final class Handle {
+        final String id;
+        final long hour;
+
+        Handle(String id, long hour) {
+            this.id = id;
+            this.hour = hour;
+        }
+    }
+
+    private static final class Entry {
+        final String id;
+        final String filename;
+        final Reminder reminder;
+        final long due;
+        Entry previous;
+        Entry next;
+
+        Entry(String id, String filename, Reminder reminder, long due) {
+            this.id = id;
+            this.filename = filename;
+            this.reminder = reminder;
+            this.due = due;
+        }
+    }
+
+    public ReminderScheduler(Path dir, ReminderNotifier notifier) {
+        this.dir = dir;
+        this.notifier = notifier;
+        this.ids = new AtomicLong(System.currentTimeMillis() << 12);
+        this.delivery = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "reminder-delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Starts the process-wide scheduler with the given notifier, if none is running yet.
+    public static synchronized ReminderScheduler start(ReminderNotifier notifier) throws IOException {
+        if (shared == null) {
+            shared = new ReminderScheduler(Paths.get("reminder-schedule"), notifier);
+            shared.start();
+        }
+        return shared;
+    }
+
+    public static synchronized ReminderScheduler shared() throws IOException {
+        return start(new ConsoleNotifier());
+    }
+
+    // The process-wide scheduler, or null if none was started.
+    public static synchronized ReminderScheduler running() {
+        return shared;
+    }
+
+    public Path directory() {
+        return dir;
+    }
+
+    // Hours before this one have fully fired.
+    public synchronized long currentHour() {
+        return tick / SECONDS_PER_HOUR;
+    }
+
+    public synchronized void start() throws IOException {
+        if (ticker != null) {
+            return;
+        }
+        Files.createDirectories(dir);
+        tick = now();
+        long hour = tick / SECONDS_PER_HOUR;
+        Path cursor = dir.resolve("cursor");
+        long from = hour;
+        if (Files.exists(cursor)) {
+            from = Math.min(hour, Long.parseLong(new String(Files.readAllBytes(cursor), StandardCharsets.UTF_8).trim()));
+        } else {
+            migrate();
+        }
+        loadedThrough = from - 1;
+        loadThrough(hour + 1);
+        writeCursor(hour);
+
+        ticker = new Thread(this::run, "reminder-scheduler");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            thread = ticker;
+            ticker = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+        delivery.shutdown();
+    }
+
+    // Persists the reminder and, if it falls in a loaded hour, puts it on the wheel.
+    public synchronized Handle schedule(String filename, Reminder reminder) throws IOException {
+        long due = epochSecond(reminder);
+        long hour = due / SECONDS_PER_HOUR;
+        String id = persist(hour, filename, reminder);
+        if (hour <= loadedThrough) {
+            add(new Entry(id, filename, reminder, due));
+        }
+        return new Handle(id, hour);
+    }
+
+    public synchronized void cancel(Handle handle) throws IOException {
+        append(handle.hour, "X," + handle.id);
+        Entry entry = loaded.remove(handle.id);
+        if (entry != null) {
+            unlink(entry);
+        }
+    }
+
+    public synchronized int pending() {
+        return loaded.size();
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long target = now();
+                synchronized (this) {
+                    while (tick < target) {
+                        advance();
+                    }
+                }
+                long millis = System.currentTimeMillis();
+                Thread.sleep(1000 - millis % 1000);
+            }
+        } catch (InterruptedException e) {
+            // Stopped.
+        } catch (IOException e) {
+            System.err.println("Reminder scheduler stopped: " + e.getMessage());
+        }
+    }
+
+    private void advance() throws IOException {
+        tick++;
+        if (tick % SECONDS_PER_HOUR == 0) {
+            long hour = tick / SECONDS_PER_HOUR;
+            loadThrough(hour + 1);
+            writeCursor(hour);
+            LedgerAppender.close(bucket(hour - 1).toString());
+        }
+        int slot = (int) (tick % WHEEL_SIZE);
+        Entry entry = wheel[slot];
+        while (entry != null) {
+            Entry next = entry.next;
+            if (entry.due <= tick) {
+                unlink(entry);
+                loaded.remove(entry.id);
+                fire(entry);
+            }
+            entry = next;
+        }
+    }
+
+    private void add(Entry entry) {
+        if (entry.due <= tick) {
+            fire(entry);
+            return;
+        }
+        int slot = (int) (entry.due % WHEEL_SIZE);
+        entry.next = wheel[slot];
+        if (entry.next != null) {
+            entry.next.previous = entry;
+        }
+        wheel[slot] = entry;
+        loaded.put(entry.id, entry);
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.previous != null) {
+            entry.previous.next = entry.next;
+        } else {
+            int slot = (int) (entry.due % WHEEL_SIZE);
+            if (wheel[slot] == entry) {
+                wheel[slot] = entry.next;
+            }
+        }
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+    }
+
+    private void fire(Entry entry) {
+        delivery.execute(() -> {
+            try {
+                notifier.notify(entry.filename, entry.reminder);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not deliver reminder " + entry.id + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private void loadThrough(long hour) throws IOException {
+        while (loadedThrough < hour) {
+            loadedThrough++;
+            File file = bucket(loadedThrough).toFile();
+            if (!file.exists()) {
+                continue;
+            }
+            List<Entry> entries = new ArrayList<>();
+            Set<String> cancelled = new HashSet<>();
+            LedgerReader.read(file, line -> {
+                if (line.fieldCount() == 2 && line.text(0).equals("X")) {
+                    cancelled.add(line.text(1));
+                } else if (line.fieldCount() >= 5) {
+                    Reminder reminder = new Reminder(title(line), line.text(2), line.text(3));
+                    if (reminder.isValid()) {
+                        entries.add(new Entry(line.text(0), line.text(1), reminder, epochSecond(reminder)));
+                    }
+                }
+            });
+            for (Entry entry : entries) {
+                if (!cancelled.contains(entry.id)) {
+                    add(entry);
+                }
+            }
+        }
+    }
+
+    // Titles may contain commas; everything after the time field is the title.
+    private static String title(LedgerLine line) {
+        StringBuilder title = new StringBuilder();
+        for (int field = 4; field < line.fieldCount(); field++) {
+            if (field > 4) {
+                title.append(',');
+            }
+            line.appendText(field, title);
+        }
+        return title.toString();
+    }
+
+    // One-time import of reminders saved before the schedule existed; past ones are skipped.
+    private void migrate() throws IOException {
+        File[] files = new File(".").listFiles((parent, name) -> name.endsWith("_reminders.txt"));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String filename = file.getName().substring(0, file.getName().length() - "_reminders.txt".length());
+            List<Reminder> reminders = new ArrayList<>();
+            LedgerReader.read(file, line -> {
+                if (line.fieldCount() == 3) {
+                    Reminder reminder = new Reminder(line.text(0), line.text(1), line.text(2));
+                    if (reminder.isValid() && epochSecond(reminder) > tick) {
+                        reminders.add(reminder);
+                    }
+                }
+            });
+            for (Reminder reminder : reminders) {
+                persist(epochSecond(reminder) / SECONDS_PER_HOUR, filename, reminder);
+            }
+        }
+    }
+
+    private String persist(long hour, String filename, Reminder reminder) throws IOException {
+        String id = Long.toString(ids.incrementAndGet(), 36);
+        append(hour, id + "," + filename + "," + reminder.getDate() + "," + reminder.getTime() + ","
+                + reminder.getTitle());
+        return id;
+    }
+
+    // Only the loaded hours go through a long-lived appender; keeping one open for every
+    // future hour that has a reminder would hold a file descriptor per bucket.
+    private void append(long hour, String line) throws IOException {
+        if (hour <= loadedThrough) {
+            LedgerAppender.appendLine(bucket(hour).toString(), line);
+        } else {
+            Files.write(bucket(hour), (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private void writeCursor(long hour) throws IOException {
+        Path tmp = dir.resolve("cursor.tmp");
+        Files.write(tmp, Long.toString(hour).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, dir.resolve("cursor"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path bucket(long hour) {
+        return dir.resolve(hour + ".txt");
+    }
+
+    // Reminder times are wall-clock times in the system time zone. Invalid dates that
+    // still pass Reminder.isValid (e.g. 2024-02-31) fire at the start of the epoch, i.e. now.
+    static long epochSecond(Reminder reminder) {
+        try {
+            return LocalDateTime.of(LocalDate.parse(reminder.getDate()), LocalTime.parse(reminder.getTime()))
+                    .atZone(ZoneId.systemDefault()).toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
@@ -0,0 +1,19 @@
+class Report {
+    private ReportStrategy strategy;
+
+    public Report(ReportStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public void setStrategy(ReportStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public void generateReport(String filename) {
+        strategy.generate(filename);
+    }
+
+    public void generateReport(String filename, User user) {
+        strategy.generate(filename, user);
+    }
+}
@@ -0,0 +1,35 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Locale;
+
+// Where detailed reports and Display Expenses send their rows. Rows arrive one at a time
+// and are written out as they come, so no sink holds more than a row of the ledger.
+// close() finishes the output (an export closes its JSON array, say) and flushes it.
+interface ReportSink extends Closeable {
+    // The title is for the console; exports only record the period (null for all dates).
+    void begin(String title, LocalDate from, LocalDate to) throws IOException;
+
+    void row(ExpenseRow row) throws IOException;
+
+    // A line for whoever reads the console, such as "No expenses found."; exports drop it.
+    void message(String text) throws IOException;
+
+    // The console, or the session's output in server mode, behind a buffered writer.
+    static ReportSink console() {
+        return new TextReportSink(System.out);
+    }
+
+    // A CSV or JSON export, picked by the file's extension.
+    static ExportSink export(File file) throws IOException {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return new CsvReportSink(file);
+        }
+        if (name.endsWith(".json")) {
+            return new JsonReportSink(file);
+        }
+        throw new IllegalArgumentException("Export file must end in .csv or .json");
+    }
+}
@@ -0,0 +1,9 @@
+interface ReportStrategy {
+    void generate(String filename);
+
+    // The same report for a logged-in user. Strategies that can work from the session's
+    // in-memory model override this; the rest read the ledgers.
+    default void generate(String filename, User user) {
+        generate(filename);
+    }
+}
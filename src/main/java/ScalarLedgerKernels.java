@@ -0,0 +1,39 @@
+class ScalarLedgerKernels extends LedgerKernels {
+    public long sum(long[] cents, int size) {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += cents[i];
+        }
+        return sum;
+    }
+
+    // Branch-free: an in-range row contributes its amount and 1, any other row 0.
+    public void sumBetween(long[] cents, int[] days, int size, int fromDay, int toDay, long[] result) {
+        long sum = 0;
+        long count = 0;
+        for (int i = 0; i < size; i++) {
+            long day = days[i];
+            long in = ~((day - fromDay) | (toDay - day)) >>> 63;
+            sum += cents[i] & -in;
+            count += in;
+        }
+        result[0] = sum;
+        result[1] = count;
+    }
+
+    public void sumByCategory(long[] cents, int[] categories, int[] days, int size,
+                              int fromDay, int toDay, long[] totals, int[] rows) {
+        for (int i = 0; i < size; i++) {
+            long day = days[i];
+            int in = (int) (~((day - fromDay) | (toDay - day)) >>> 63);
+            totals[categories[i]] += cents[i] & -in;
+            rows[categories[i]] += in;
+        }
+    }
+
+    public void deltas(long[] series, long[] deltas) {
+        for (int i = 0; i + 1 < series.length; i++) {
+            deltas[i] = series[i + 1] - series[i];
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+// System.out replacement used in server mode. Output printed by a thread that has a
+// session target goes to that session; everything else goes to the real console.
+class SessionConsole extends OutputStream {
+    private static final ThreadLocal<OutputStream> TARGET = new ThreadLocal<>();
+    private final OutputStream console;
+
+    private SessionConsole(OutputStream console) {
+        this.console = console;
+    }
+
+    public static void install() {
+        System.setOut(new PrintStream(new SessionConsole(System.out), true));
+    }
+
+    public static void capture(OutputStream target) {
+        TARGET.set(target);
+    }
+
+    public static void release() {
+        TARGET.remove();
+    }
+
+    // The calling thread's session target, or null on the console.
+    public static OutputStream current() {
+        return TARGET.get();
+    }
+
+    public void write(int b) throws IOException {
+        target().write(b);
+    }
+
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        target().write(bytes, offset, length);
+    }
+
+    public void flush() throws IOException {
+        target().flush();
+    }
+
+    private OutputStream target() {
+        OutputStream target = TARGET.get();
+        return target != null ? target : console;
+    }
+}
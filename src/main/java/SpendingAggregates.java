@@ -0,0 +1,210 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Scanner;
+
+// Category totals and latest budgets materialized in <user>_aggregates.txt. The file
+// remembers how many bytes of the expense and budget ledgers it already covers, so each
+// update only reads what was appended since, and Spending Analysis never rescans the ledgers.
+// Like BudgetAlerts' windows, the file is rewritten at most every
+// -Dprojections.checkpoint.interval ms (default 1000) and on logout; what it misses is
+// replayed on load.
+class SpendingAggregates {
+    static final long CHECKPOINT_INTERVAL = Long.getLong("projections.checkpoint.interval", 1000);
+
+    private final String filename;
+    private CategoryTotals totals = new CategoryTotals();
+    private long expensesLength;
+    private long budgetsLength;
+    private boolean dirty;
+    private long savedAt;
+
+    private SpendingAggregates(String filename) {
+        this.filename = filename;
+    }
+
+    public static SpendingAggregates load(String filename) throws IOException {
+        SpendingAggregates aggregates = new SpendingAggregates(filename);
+        aggregates.readSnapshot();
+        aggregates.update();
+        return aggregates;
+    }
+
+    // Replaces the in-memory state with <user>_aggregates.txt, or clears it when that file
+    // is missing or unreadable.
+    private void readSnapshot() throws IOException {
+        clear();
+        dirty = false;
+        File file = new File(filename + "_aggregates.txt");
+        if (!file.exists()) {
+            return;
+        }
+        try (Scanner scan = new Scanner(file)) {
+            while (scan.hasNextLine()) {
+                String[] parts = scan.nextLine().split(",");
+                if (parts.length != 3) {
+                    continue;
+                }
+                if (parts[0].equals("#")) {
+                    expensesLength = Long.parseLong(parts[1]);
+                    budgetsLength = Long.parseLong(parts[2]);
+                } else if (parts[0].equals("S")) {
+                    totals.addSpending(totals.categories().id(parts[1]), CategoryTotals.toCents(Double.parseDouble(parts[2])));
+                } else if (parts[0].equals("B")) {
+                    totals.setBudget(totals.categories().id(parts[1]), CategoryTotals.toCents(Double.parseDouble(parts[2])));
+                }
+            }
+        } catch (NumberFormatException e) {
+            clear();
+        }
+    }
+
+    private void clear() {
+        totals = new CategoryTotals();
+        expensesLength = 0;
+        budgetsLength = 0;
+    }
+
+    public CategoryTotals getTotals() {
+        return totals;
+    }
+
+    // Folds in whatever was appended to the ledgers since the last update. Called right
+    // after every expense or budget write, so it normally reads a single line.
+    public void update() throws IOException {
+        update(true);
+    }
+
+    private void update(boolean reload) throws IOException {
+        LedgerStorage storage = LedgerStorage.forUser(filename);
+        long expensesEnd = BinaryLedger.isEnabled(filename)
+                ? readBinary(expensesLength)
+                : storage.read(LedgerStorage.Ledger.EXPENSES, expensesLength, this::applyExpense);
+        long budgetsEnd = storage.read(LedgerStorage.Ledger.BUDGETS, budgetsLength, this::applyBudget);
+        if (expensesEnd < 0 || budgetsEnd < 0) {
+            // A ledger shrank underneath us. Compaction leaves a snapshot that matches the
+            // rewritten file, so try that first; if it doesn't fit either, start from scratch.
+            if (reload) {
+                readSnapshot();
+            } else {
+                clear();
+                dirty = true;
+            }
+            update(false);
+            return;
+        }
+        if (expensesEnd != expensesLength || budgetsEnd != budgetsLength) {
+            expensesLength = expensesEnd;
+            budgetsLength = budgetsEnd;
+            dirty = true;
+        }
+        if (dirty && System.currentTimeMillis() - savedAt >= CHECKPOINT_INTERVAL) {
+            save();
+        }
+    }
+
+    // Writes the snapshot if it is behind. Called under the user lock.
+    public void checkpoint() throws IOException {
+        if (dirty) {
+            save();
+        }
+    }
+
+    // Recomputes everything from the raw ledgers and replaces the stored aggregates.
+    // Returns false when the stored values had drifted from the ledgers.
+    public boolean verify() throws IOException {
+        update();
+        SpendingAggregates rebuilt = new SpendingAggregates(filename);
+        rebuilt.update();
+
+        boolean consistent = rebuilt.totals.sameAs(totals);
+        totals = rebuilt.totals;
+        expensesLength = rebuilt.expensesLength;
+        budgetsLength = rebuilt.budgetsLength;
+        save();
+        return consistent;
+    }
+
+    // Called by Compactor, under the user lock, after this instance was brought up to date
+    // and <user>_budgets.txt was rewritten to one line per category.
+    public void budgetsCompacted(long length) throws IOException {
+        budgetsLength = length;
+        save();
+    }
+
+    private void applyExpense(LedgerLine line) {
+        if (line.fieldCount() == 4) {
+            try {
+                long cents = CategoryTotals.toCents(line.parseDouble(0));
+                totals.addSpending(totals.categories().id(line, 1), cents);
+            } catch (NumberFormatException e) {
+                // Malformed amount; the line is ignored like any other unreadable record.
+            }
+        }
+    }
+
+    private void applyBudget(LedgerLine line) {
+        if (line.fieldCount() == 2) {
+            try {
+                long cents = CategoryTotals.toCents(line.parseDouble(1));
+                totals.setBudget(totals.categories().id(line, 0), cents);
+            } catch (NumberFormatException e) {
+                // Malformed amount; the line is ignored like any other unreadable record.
+            }
+        }
+    }
+
+    // Binary ledgers are tracked by the byte length of their amount column.
+    private long readBinary(long from) throws IOException {
+        BinaryLedger ledger = BinaryLedger.open(filename);
+        long end = (long) ledger.size() * Double.BYTES;
+        if (end < from) {
+            return -1;
+        }
+        // The binary ledger has its own name ids; map each to ours once per update.
+        int[] ids = new int[16];
+        Arrays.fill(ids, -1);
+        for (int row = (int) (from / Double.BYTES); row < ledger.size(); row++) {
+            int name = ledger.category(row);
+            if (name >= ids.length) {
+                int old = ids.length;
+                ids = Arrays.copyOf(ids, Math.max(name + 1, old * 2));
+                Arrays.fill(ids, old, ids.length, -1);
+            }
+            if (ids[name] < 0) {
+                ids[name] = totals.categories().id(ledger.name(name));
+            }
+            totals.addSpending(ids[name], CategoryTotals.toCents(ledger.amount(row)));
+        }
+        return end;
+    }
+
+    private void save() throws IOException {
+        File tmp = new File(filename + "_aggregates.txt.tmp");
+        BufferedWriter writer = new BufferedWriter(new FileWriter(tmp));
+        writer.write("#," + expensesLength + "," + budgetsLength);
+        writer.newLine();
+        CategoryDictionary categories = totals.categories();
+        for (int id = 0; id < categories.size(); id++) {
+            if (totals.hasSpending(id)) {
+                writer.write("S," + categories.name(id) + "," + CategoryTotals.format(totals.spentCents(id)));
+                writer.newLine();
+            }
+        }
+        for (int i = 0; i < totals.budgetCount(); i++) {
+            int id = totals.budgetCategory(i);
+            writer.write("B," + categories.name(id) + "," + CategoryTotals.format(totals.budgetCents(id)));
+            writer.newLine();
+        }
+        writer.close();
+        Files.move(tmp.toPath(), Paths.get(filename + "_aggregates.txt"),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+        savedAt = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,23 @@
+class SpendingAnalysis {
+    private final CategoryTotals totals;
+
+    public SpendingAnalysis(CategoryTotals totals) {
+        this.totals = totals;
+    }
+
+    public void displayAnalysis() {
+        System.out.println("\n--- Spending Analysis ---");
+        System.out.println("Category\tSpent\tBudget\tDifference");
+        System.out.println("----------------------------------");
+        CategoryDictionary categories = totals.categories();
+        for (int id = 0; id < categories.size(); id++) {
+            if (!totals.hasSpending(id)) {
+                continue;
+            }
+            long spent = totals.spentCents(id);
+            long budget = totals.hasBudget(id) ? totals.budgetCents(id) : 0;
+            System.out.printf("%-10s\t$%.2f\t$%.2f\t$%.2f%n",
+                    categories.name(id), spent / 100.0, budget / 100.0, (budget - spent) / 100.0);
+        }
+    }
+}
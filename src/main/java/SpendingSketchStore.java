@@ -0,0 +1,176 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.TreeMap;
+
+// A user's SpendingSketches partitioned by the month of each expense (undated expenses in
+// a partition of their own), kept as a projection like SpendingAggregates: stored in
+// <user>_sketches.txt with how far the expense ledger has been read, so a report only
+// folds in what was appended since. A report over a range merges the months it covers.
+// The file holds "#,format,length", then per partition a "P,month" line (YYYY-MM, or "-")
+// followed by its SpendingSketches lines.
+class SpendingSketchStore {
+    private static final int UNDATED = Integer.MIN_VALUE;
+
+    private final String filename;
+    private final TreeMap<Integer, SpendingSketches> months = new TreeMap<>();
+    // Interns categories and methods so a row allocates no strings once they are known.
+    private final CategoryDictionary names = new CategoryDictionary();
+    private String format = "";
+    private long expensesLength;
+
+    private SpendingSketchStore(String filename) {
+        this.filename = filename;
+    }
+
+    // Called under the user lock.
+    public static SpendingSketchStore load(String filename) throws IOException {
+        SpendingSketchStore store = new SpendingSketchStore(filename);
+        store.readSnapshot();
+        store.update(true);
+        return store;
+    }
+
+    public boolean isEmpty() {
+        return months.isEmpty();
+    }
+
+    // The statistics of every month in [from, to], or of everything for null bounds.
+    public SpendingSketches merged(YearMonth from, YearMonth to) {
+        SpendingSketches merged = new SpendingSketches();
+        Map<Integer, SpendingSketches> range = from == null ? months
+                : months.subMap(month(from), true, month(to), true);
+        for (SpendingSketches sketches : range.values()) {
+            merged.merge(sketches);
+        }
+        return merged;
+    }
+
+    private static int month(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    private void update(boolean reload) throws IOException {
+        LedgerStorage storage = LedgerStorage.forUser(filename);
+        String current = BinaryLedger.isEnabled(filename) ? "binary"
+                : storage instanceof LsmLedgerStorage ? "lsm" : "text";
+        if (!current.equals(format)) {
+            clear();
+            format = current;
+        }
+        long end = format.equals("binary")
+                ? readBinary(expensesLength)
+                : storage.read(LedgerStorage.Ledger.EXPENSES, expensesLength, this::applyExpense);
+        if (end < 0) {
+            // The ledger shrank underneath us; start over from the snapshot, then from scratch.
+            if (reload) {
+                readSnapshot();
+            } else {
+                clear();
+                format = current;
+            }
+            update(false);
+            return;
+        }
+        if (end != expensesLength) {
+            expensesLength = end;
+            save();
+        }
+    }
+
+    private void applyExpense(LedgerLine line) {
+        if (line.fieldCount() != 4) {
+            return;
+        }
+        long cents;
+        try {
+            cents = CategoryTotals.toCents(line.parseDouble(0));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        int month = line.monthIndex(3);
+        partition(month == LedgerLine.NOT_A_DATE ? UNDATED : month)
+                .add(names.name(names.id(line, 1)), names.name(names.id(line, 2)), cents);
+    }
+
+    // Binary ledgers are tracked by the byte length of their amount column.
+    private long readBinary(long from) throws IOException {
+        BinaryLedger ledger = BinaryLedger.open(filename);
+        long end = (long) ledger.size() * Double.BYTES;
+        if (end < from) {
+            return -1;
+        }
+        for (int row = (int) (from / Double.BYTES); row < ledger.size(); row++) {
+            int day = ledger.day(row);
+            int month = UNDATED;
+            if (day != LedgerLine.NOT_A_DATE) {
+                LocalDate date = LocalDate.ofEpochDay(day);
+                month = date.getYear() * 12 + date.getMonthValue() - 1;
+            }
+            partition(month).add(names.name(names.id(ledger.name(ledger.category(row)))),
+                    names.name(names.id(ledger.name(ledger.method(row)))), CategoryTotals.toCents(ledger.amount(row)));
+        }
+        return end;
+    }
+
+    private SpendingSketches partition(int month) {
+        return months.computeIfAbsent(month, m -> new SpendingSketches());
+    }
+
+    private void clear() {
+        months.clear();
+        format = "";
+        expensesLength = 0;
+    }
+
+    private void readSnapshot() throws IOException {
+        clear();
+        File file = new File(filename + "_sketches.txt");
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), Charset.defaultCharset())) {
+            SpendingSketches partition = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("#,")) {
+                    String[] parts = line.split(",");
+                    format = parts[1];
+                    expensesLength = Long.parseLong(parts[2]);
+                } else if (line.startsWith("P,")) {
+                    String month = line.substring(2);
+                    partition = partition(month.equals("-") ? UNDATED : month(YearMonth.parse(month)));
+                } else if (partition != null) {
+                    partition.read(line);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Unreadable snapshot (bad number, date or layout); rebuilt from the ledger.
+            clear();
+        }
+    }
+
+    private void save() throws IOException {
+        StringBuilder out = new StringBuilder();
+        String newline = System.lineSeparator();
+        out.append("#,").append(format).append(',').append(expensesLength).append(newline);
+        for (Map.Entry<Integer, SpendingSketches> entry : months.entrySet()) {
+            int month = entry.getKey();
+            out.append("P,").append(month == UNDATED ? "-" : YearMonth.of(month / 12, month % 12 + 1).toString())
+                    .append(newline);
+            entry.getValue().write(out);
+        }
+        Path tmp = Paths.get(filename + "_sketches.txt.tmp");
+        Files.write(tmp, out.toString().getBytes(Charset.defaultCharset()));
+        Files.move(tmp, Paths.get(filename + "_sketches.txt"),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
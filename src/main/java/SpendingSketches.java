@@ -0,0 +1,104 @@
+import java.util.HashMap;
+import java.util.Map;
+
+// Bounded-size statistics over a set of expenses: a quantile sketch of all amounts and
+// one per category, and the categories and payment methods with the most spending. Sets
+// built over different expenses (months, users) merge into the statistics of their union.
+// Written as lines
+//   N,count,cents                 Q,category|*,count,min,max,levels
+//   C,weight,error,category       M,weight,error,method
+class SpendingSketches {
+    private long count;
+    private long cents;
+    private final QuantileSketch amounts = new QuantileSketch();
+    private final Map<String, QuantileSketch> byCategory = new HashMap<>();
+    private final HeavyHitters categories = new HeavyHitters();
+    private final HeavyHitters methods = new HeavyHitters();
+
+    public void add(String category, String method, long amount) {
+        count++;
+        cents += amount;
+        amounts.add(amount);
+        byCategory.computeIfAbsent(category, name -> new QuantileSketch()).add(amount);
+        categories.add(category, amount);
+        methods.add(method, amount);
+    }
+
+    public void merge(SpendingSketches other) {
+        count += other.count;
+        cents += other.cents;
+        amounts.merge(other.amounts);
+        for (Map.Entry<String, QuantileSketch> entry : other.byCategory.entrySet()) {
+            byCategory.computeIfAbsent(entry.getKey(), name -> new QuantileSketch()).merge(entry.getValue());
+        }
+        categories.merge(other.categories);
+        methods.merge(other.methods);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long cents() {
+        return cents;
+    }
+
+    public QuantileSketch amounts() {
+        return amounts;
+    }
+
+    // Null for a category with no expenses here.
+    public QuantileSketch amounts(String category) {
+        return byCategory.get(category);
+    }
+
+    public HeavyHitters categories() {
+        return categories;
+    }
+
+    public HeavyHitters methods() {
+        return methods;
+    }
+
+    public void write(StringBuilder out) {
+        String newline = System.lineSeparator();
+        out.append("N,").append(count).append(',').append(cents).append(newline);
+        out.append("Q,*,");
+        amounts.write(out);
+        out.append(newline);
+        for (Map.Entry<String, QuantileSketch> entry : byCategory.entrySet()) {
+            out.append("Q,").append(entry.getKey()).append(',');
+            entry.getValue().write(out);
+            out.append(newline);
+        }
+        categories.write("C", out);
+        methods.write("M", out);
+    }
+
+    // Reads one line written by write(); returns false for anything else.
+    public boolean read(String line) {
+        String[] parts = line.split(",", -1);
+        switch (parts[0]) {
+            case "N":
+                count = Long.parseLong(parts[1]);
+                cents = Long.parseLong(parts[2]);
+                return true;
+            case "Q":
+                QuantileSketch sketch = QuantileSketch.read(parts, 2);
+                if (parts[1].equals("*")) {
+                    amounts.merge(sketch);
+                } else {
+                    byCategory.computeIfAbsent(parts[1], name -> new QuantileSketch()).merge(sketch);
+                }
+                return true;
+            case "C":
+                categories.read(parts, 1);
+                return true;
+            case "M":
+                methods.read(parts, 1);
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Streams a bank statement (CSV: date,description,amount[,method[,category]]) into the
+// user's ledgers. Negative amounts are expenses, positive ones incomes. Rows flow through
+// parse -> validate -> classify -> write stages, each on its own thread and connected by
+// bounded queues of row batches, so a slow stage holds back the ones before it and the
+// statement is never held in memory. Rows are written to staging files; commit appends
+// them to the ledgers only when no line was rejected.
+class StatementImporter {
+    private static final int BATCH_SIZE = 1024;
+    private static final int QUEUE_BATCHES = 8;
+    private static final int MAX_REPORTED_ERRORS = 20;
+    private static final List<Row> END = new ArrayList<>();
+    private static final String[][] CATEGORY_KEYWORDS = {
+            {"groceries", "grocer", "supermarket", "market", "bakery", "butcher"},
+            {"rent", "rent", "landlord", "lease"},
+            {"utilities", "electric", "water", "gas", "internet", "mobile", "telecom"},
+            {"transport", "uber", "taxi", "fuel", "petrol", "metro", "bus", "train", "parking"},
+            {"dining", "restaurant", "cafe", "coffee", "pizza", "burger"},
+            {"health", "pharmacy", "clinic", "hospital", "doctor", "dental"},
+            {"entertainment", "netflix", "spotify", "cinema", "theatre"},
+            {"shopping", "amazon", "store", "mall", "shop"}
+    };
+
+    private final String filename;
+    private final File stagedExpenses;
+    private final File stagedIncomes;
+
+    static class Row {
+        int line;
+        String date;
+        String description;
+        double amount;
+        String method;
+        String category;
+        String error;
+    }
+
+    static class Result {
+        long rows;
+        long expenses;
+        long incomes;
+        long invalid;
+        long nanos;
+        final List<String> errors = new ArrayList<>();
+        // Set by the validate stage so the write stage can stop early.
+        volatile boolean rejected;
+
+        boolean accepted() {
+            return invalid == 0;
+        }
+
+        double rowsPerSecond() {
+            return nanos == 0 ? 0 : rows * 1e9 / nanos;
+        }
+    }
+
+    interface BatchStage {
+        List<Row> apply(List<Row> batch) throws IOException;
+    }
+
+    public StatementImporter(String filename) {
+        this.filename = filename;
+        this.stagedExpenses = new File(filename + "_expenses.txt.import");
+        this.stagedIncomes = new File(filename + "_incomes.txt.import");
+    }
+
+    // Runs the pipeline over the statement into the staging files.
+    public Result stage(File statement) throws IOException {
+        Result result = new Result();
+        long started = System.nanoTime();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        BlockingQueue<List<Row>> parsed = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+        BlockingQueue<List<Row>> validated = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+        BlockingQueue<List<Row>> classified = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+
+        try (BufferedWriter expenses = new BufferedWriter(new FileWriter(stagedExpenses), 64 * 1024);
+             BufferedWriter incomes = new BufferedWriter(new FileWriter(stagedIncomes), 64 * 1024)) {
+            StringBuilder text = new StringBuilder();
+            Thread[] stages = {
+                    stage("import-validate", parsed, validated, failure, batch -> validate(batch, result)),
+                    stage("import-classify", validated, classified, failure, StatementImporter::classify),
+                    stage("import-write", classified, null, failure, batch -> {
+                        if (!result.rejected) {
+                            write(batch, expenses, incomes, text, result);
+                        }
+                        return batch;
+                    })
+            };
+            try {
+                Parser parser = new Parser(parsed, result);
+                LedgerReader.read(statement, parser);
+                parser.flush();
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                put(parsed, END);
+                for (Thread stage : stages) {
+                    join(stage);
+                }
+            }
+        }
+        result.nanos = System.nanoTime() - started;
+
+        Exception error = failure.get();
+        if (error != null) {
+            discard();
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            }
+            throw (RuntimeException) error;
+        }
+        if (!result.accepted()) {
+            discard();
+        }
+        return result;
+    }
+
+    // Appends the staged rows to the ledgers. Callers hold the user's lock.
+    public void commit() throws IOException {
+        if (LedgerStorage.isLsm(filename)) {
+            LedgerStorage storage = LedgerStorage.forUser(filename);
+            LedgerReader.read(stagedExpenses, line -> storage.append(LedgerStorage.Ledger.EXPENSES, line.text()));
+            LedgerReader.read(stagedIncomes, line -> storage.append(LedgerStorage.Ledger.INCOMES, line.text()));
+        } else {
+            if (BinaryLedger.isEnabled(filename)) {
+                List<Expense> batch = new ArrayList<>();
+                LedgerReader.read(stagedExpenses, line -> {
+                    batch.add(new Expense(line.parseDouble(0), line.text(1), line.text(2), line.text(3)));
+                    if (batch.size() == 4096) {
+                        BinaryLedger.append(filename, batch);
+                        batch.clear();
+                    }
+                });
+                BinaryLedger.append(filename, batch);
+            } else {
+                transfer(stagedExpenses, new File(filename + "_expenses.txt"));
+            }
+            transfer(stagedIncomes, new File(filename + "_incomes.txt"));
+        }
+        discard();
+    }
+
+    public void discard() throws IOException {
+        Files.deleteIfExists(stagedExpenses.toPath());
+        Files.deleteIfExists(stagedIncomes.toPath());
+    }
+
+    // Parse stage: runs on the caller's thread and hands rows on in batches.
+    private static class Parser implements LedgerVisitor {
+        private final BlockingQueue<List<Row>> out;
+        private final Result result;
+        private List<Row> batch = new ArrayList<>(BATCH_SIZE);
+        private int lineNumber;
+
+        Parser(BlockingQueue<List<Row>> out, Result result) {
+            this.out = out;
+            this.result = result;
+        }
+
+        public void visit(LedgerLine line) throws IOException {
+            lineNumber++;
+            if (line.fieldCount() == 0 || (line.fieldCount() == 1 && line.text(0).trim().isEmpty())) {
+                return;
+            }
+            Row row = new Row();
+            row.line = lineNumber;
+            if (line.fieldCount() < 3 || line.fieldCount() > 5) {
+                row.error = "expected date,description,amount[,method[,category]]";
+            } else {
+                row.date = line.text(0).trim();
+                row.description = line.text(1).trim();
+                row.method = line.fieldCount() > 3 ? line.text(3).trim() : "";
+                row.category = line.fieldCount() > 4 ? line.text(4).trim() : "";
+                try {
+                    row.amount = line.parseDouble(2);
+                } catch (NumberFormatException e) {
+                    if (lineNumber == 1) {
+                        return; // Column header.
+                    }
+                    row.error = "invalid amount '" + line.text(2) + "'";
+                }
+            }
+            result.rows++;
+            batch.add(row);
+            if (batch.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (!batch.isEmpty()) {
+                put(out, batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+    }
+
+    // Only valid rows are passed on; each rejected line is counted and the first few reported.
+    private static List<Row> validate(List<Row> batch, Result result) {
+        List<Row> valid = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            if (row.error == null) {
+                row.error = check(row);
+            }
+            if (row.error == null) {
+                valid.add(row);
+            } else {
+                result.invalid++;
+                result.rejected = true;
+                if (result.errors.size() < MAX_REPORTED_ERRORS) {
+                    result.errors.add("Line " + row.line + ": " + row.error);
+                }
+            }
+        }
+        return valid;
+    }
+
+    private static String check(Row row) {
+        if (!Income.isValidDate(row.date)) {
+            return "invalid date '" + row.date + "' (YYYY-MM-DD)";
+        }
+        if (!Double.isFinite(row.amount) || !Income.isValidAmount(Math.abs(row.amount))) {
+            return "amount must be non-zero";
+        }
+        if (row.amount > 0 && !Income.isValidSource(row.description)) {
+            return "income description must be 3-50 characters";
+        }
+        if (row.amount < 0 && row.description.isEmpty()) {
+            return "missing description";
+        }
+        if (!row.category.isEmpty() && !Budget.isValidCategory(row.category)) {
+            return "category must be 3-50 characters";
+        }
+        return null;
+    }
+
+    private static List<Row> classify(List<Row> batch) {
+        for (Row row : batch) {
+            if (row.amount < 0 && row.category.isEmpty()) {
+                row.category = category(row.description.toLowerCase(Locale.ROOT));
+            }
+            if (row.method.isEmpty()) {
+                row.method = "bank";
+            }
+        }
+        return batch;
+    }
+
+    private static String category(String description) {
+        for (String[] rule : CATEGORY_KEYWORDS) {
+            for (int i = 1; i < rule.length; i++) {
+                if (description.contains(rule[i])) {
+                    return rule[0];
+                }
+            }
+        }
+        return "other";
+    }
+
+    private static void write(List<Row> batch, BufferedWriter expenses, BufferedWriter incomes,
+                              StringBuilder text, Result result) throws IOException {
+        for (Row row : batch) {
+            text.setLength(0);
+            if (row.amount < 0) {
+                text.append(new Expense(-row.amount, row.category, row.method, row.date).toFileString());
+                expenses.append(text).append(System.lineSeparator());
+                result.expenses++;
+            } else {
+                text.append(new Income(row.description, row.amount, row.date).toFileString());
+                incomes.append(text).append(System.lineSeparator());
+                result.incomes++;
+            }
+        }
+    }
+
+    private static Thread stage(String name, BlockingQueue<List<Row>> in, BlockingQueue<List<Row>> out,
+                                AtomicReference<Exception> failure, BatchStage work) {
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    List<Row> batch = in.take();
+                    if (batch == END) {
+                        break;
+                    }
+                    if (failure.get() != null) {
+                        continue; // Drain so upstream stages never block on a dead pipeline.
+                    }
+                    try {
+                        List<Row> next = work.apply(batch);
+                        if (out != null && !next.isEmpty()) {
+                            out.put(next);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+                if (out != null) {
+                    out.put(END);
+                }
+            } catch (InterruptedException e) {
+                failure.compareAndSet(null, new InterruptedIOException("Import interrupted"));
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void put(BlockingQueue<List<Row>> queue, List<Row> batch) throws InterruptedIOException {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        }
+    }
+
+    private static void join(Thread thread) throws InterruptedIOException {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        }
+    }
+
+    private static void transfer(File staged, File ledger) throws IOException {
+        try (FileChannel source = FileChannel.open(staged.toPath(), StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(ledger.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long size = source.size();
+            long position = 0;
+            while (position < size) {
+                position += source.transferTo(position, size - position, target);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+// Transaction-size percentiles per category and the top categories and payment methods,
+// answered from the user's SpendingSketchStore instead of sorting the ledger. A date range
+// covers the whole months containing from and to, since that is how the sketches are kept.
+class StatisticsReport implements ReportStrategy {
+    static final int TOP = Integer.getInteger("report.top", 5);
+
+    private final LocalDate from;
+    private final LocalDate to;
+
+    public StatisticsReport() {
+        this(null, null);
+    }
+
+    public StatisticsReport(LocalDate from, LocalDate to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public void generate(String filename) {
+        try {
+            SpendingSketchStore store = SpendingSketchStore.load(filename);
+            SpendingSketches stats = from == null ? store.merged(null, null)
+                    : store.merged(YearMonth.from(from), YearMonth.from(to));
+            if (stats.count() == 0) {
+                System.out.println("No expenses found.");
+                return;
+            }
+            System.out.println(" Statistics Report:");
+            if (from != null) {
+                System.out.println("- Period: " + YearMonth.from(from) + " to " + YearMonth.from(to) + " (whole months)");
+            }
+            System.out.println("- Number of Transactions: " + stats.count());
+            System.out.println("- Total Expenses: $" + CategoryTotals.format(stats.cents()));
+            System.out.println("- Transaction Size: " + percentiles(stats.amounts()));
+            System.out.println("- Top Categories:");
+            HeavyHitters categories = stats.categories();
+            for (int slot : categories.top(TOP)) {
+                String name = categories.name(slot);
+                QuantileSketch amounts = stats.amounts(name);
+                System.out.printf("  %-15s %s  (%d transactions; %s)%n", name, spent(categories, slot),
+                        amounts.count(), percentiles(amounts));
+            }
+            System.out.println("- Top Payment Methods:");
+            HeavyHitters methods = stats.methods();
+            for (int slot : methods.top(TOP)) {
+                System.out.printf("  %-15s %s%n", methods.name(slot), spent(methods, slot));
+            }
+        } catch (IOException e) {
+            System.out.println("Error generating statistics: " + e.getMessage());
+        }
+    }
+
+    static String percentiles(QuantileSketch amounts) {
+        return "median $" + CategoryTotals.format(amounts.quantile(0.5))
+                + ", p90 $" + CategoryTotals.format(amounts.quantile(0.9))
+                + ", p99 $" + CategoryTotals.format(amounts.quantile(0.99))
+                + ", max $" + CategoryTotals.format(amounts.max());
+    }
+
+    // The amount is exact unless the name was evicted and came back at some point.
+    private static String spent(HeavyHitters top, int slot) {
+        return "$" + CategoryTotals.format(top.weight(slot))
+                + (top.error(slot) > 0 ? " (at most $" + CategoryTotals.format(top.error(slot)) + " over)" : "");
+    }
+}
@@ -0,0 +1,96 @@
+import java.nio.DoubleBuffer;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+class SummaryReport implements ReportStrategy {
+    private final LocalDate from;
+    private final LocalDate to;
+
+    public SummaryReport() {
+        this(null, null);
+    }
+
+    // Only expenses dated within [from, to]; read through the ledger's DateIndex.
+    public SummaryReport(LocalDate from, LocalDate to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    // Totals are kept in exact cents. The whole ledger is summed with LedgerKernels over the
+    // user's cached LedgerColumns, or streamed when it is too large for them.
+    public void generate(String filename) {
+        try {
+            if (!DetailedReport.hasExpenses(filename)) {
+                System.out.println("No expenses found.");
+                return;
+            }
+            Cents totals = new Cents();
+            LedgerColumns columns = from == null ? LedgerColumns.of(filename) : null;
+            if (columns != null) {
+                columns.checkAmounts();
+                totals.total = LedgerKernels.shared().sum(columns.cents(), columns.size());
+                totals.count = columns.size();
+            } else if (BinaryLedger.isEnabled(filename)) {
+                BinaryLedger ledger = BinaryLedger.open(filename);
+                if (from != null) {
+                    for (int row : ledger.rowsBetween(from, to)) {
+                        totals.add(ledger.amount(row));
+                    }
+                } else {
+                    DoubleBuffer amounts = ledger.amounts();
+                    while (amounts.hasRemaining()) {
+                        totals.add(amounts.get());
+                    }
+                }
+            } else if (from != null) {
+                LedgerStorage.forUser(filename).readBetween(LedgerStorage.Ledger.EXPENSES, from, to, totals);
+            } else {
+                LedgerStorage.forUser(filename).read(LedgerStorage.Ledger.EXPENSES, 0, totals);
+            }
+
+            System.out.println(" Summary Report:");
+            printPeriod(from, to);
+            System.out.println("- Total Expenses: $" + totals.total / 100.0);
+            System.out.println("- Number of Transactions: " + totals.count);
+
+        } catch (Exception e) {
+            System.out.println("Error generating summary: " + e.getMessage());
+        }
+    }
+
+    // Whether a ledger date falls within [from, to], given as YYYY-MM-DD. Dates that aren't
+    // real (2024-02-30) are never within a range, as with the DateIndex.
+    static boolean within(String date, String from, String to) {
+        if (date.compareTo(from) < 0 || date.compareTo(to) > 0 || !Income.isValidDate(date)) {
+            return false;
+        }
+        int year = Integer.parseInt(date, 0, 4, 10);
+        int month = Integer.parseInt(date, 5, 7, 10);
+        int day = Integer.parseInt(date, 8, 10, 10);
+        return month >= 1 && month <= 12 && day >= 1 && day <= YearMonth.of(year, month).lengthOfMonth();
+    }
+
+    static void printPeriod(LocalDate from, LocalDate to) {
+        if (from != null) {
+            System.out.println("- Period: " + from + " to " + to);
+        }
+    }
+
+    // Each amount rounded to the cent like LedgerColumns, so the kernel sum, the streamed
+    // sum and ParallelSummaryReport's merged ranges all give the same total.
+    static class Cents implements LedgerVisitor {
+        long total;
+        long count;
+
+        public void visit(LedgerLine line) {
+            if (line.fieldCount() == 4) {
+                add(line.parseDouble(0));
+            }
+        }
+
+        void add(double amount) {
+            total += CategoryTotals.toCents(amount);
+            count++;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+
+// The original layout: one <user>_<ledger>.txt file per ledger.
+class TextLedgerStorage implements LedgerStorage {
+    private final String filename;
+
+    public TextLedgerStorage(String filename) {
+        this.filename = filename;
+    }
+
+    public void append(Ledger ledger, String line) throws IOException {
+        LedgerAppender.appendLine(filename + ledger.suffix, line);
+    }
+
+    public long read(Ledger ledger, long from, LedgerVisitor visitor) throws IOException {
+        File file = new File(filename + ledger.suffix);
+        if (!file.exists()) {
+            return from == 0 ? 0 : -1;
+        }
+        return LedgerReader.read(file, from, visitor);
+    }
+
+    public long end(Ledger ledger) {
+        return new File(filename + ledger.suffix).length();
+    }
+
+    public void readBetween(Ledger ledger, LocalDate from, LocalDate to, LedgerVisitor visitor) throws IOException {
+        if (ledger.dateField < 0) {
+            throw new IllegalArgumentException(ledger + " records are not dated");
+        }
+        new DateIndex(new File(filename + ledger.suffix), ledger.fieldCount, ledger.dateField).read(from, to, visitor);
+    }
+}
@@ -0,0 +1,34 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.time.LocalDate;
+
+// The "Category: .., Amount: $.., Method: .., Date: .." layout shared by the detailed
+// report and Display Expenses.
+class TextReportSink extends WriterSink {
+    public TextReportSink(PrintStream out) {
+        super(out, Charset.defaultCharset(), false);
+    }
+
+    public void begin(String title, LocalDate from, LocalDate to) throws IOException {
+        line.append(title);
+        writeLine();
+        if (from != null) {
+            line.append("- Period: ").append(from).append(" to ").append(to);
+            writeLine();
+        }
+    }
+
+    public void row(ExpenseRow row) throws IOException {
+        line.append("Category: ").append(row.category)
+                .append(", Amount: $").append(row.amount)
+                .append(", Method: ").append(row.method)
+                .append(", Date: ").append(row.date);
+        writeLine();
+    }
+
+    public void message(String text) throws IOException {
+        line.append(text);
+        writeLine();
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+// Spending per month for the last -Dreport.trend.months months (default 6) with the change
+// from each month to the next, and where the current month is heading: spending so far
+// scaled to the whole month, overall and per category against its budget. Computed with
+// LedgerKernels over the cached LedgerColumns, or over just the months shown when the
+// ledger is too large for the cache.
+class TrendsReport implements ReportStrategy {
+    private static final int MONTHS = Integer.getInteger("report.trend.months", 6);
+
+    private final LocalDate today;
+
+    public TrendsReport() {
+        this(LocalDate.now());
+    }
+
+    public TrendsReport(LocalDate today) {
+        this.today = today;
+    }
+
+    public void generate(String filename) {
+        try {
+            if (!DetailedReport.hasExpenses(filename)) {
+                System.out.println("No expenses found.");
+                return;
+            }
+            YearMonth current = YearMonth.from(today);
+            LedgerColumns columns = LedgerColumns.of(filename);
+            if (columns == null) {
+                columns = LedgerColumns.between(filename, current.minusMonths(MONTHS - 1).atDay(1), current.atEndOfMonth());
+            }
+            LedgerKernels kernels = LedgerKernels.shared();
+            long[] monthly = new long[MONTHS];
+            long[] result = new long[2];
+            for (int i = 0; i < MONTHS; i++) {
+                YearMonth month = current.minusMonths(MONTHS - 1 - i);
+                kernels.sumBetween(columns.cents(), columns.days(), columns.size(),
+                        (int) month.atDay(1).toEpochDay(), (int) month.atEndOfMonth().toEpochDay(), result);
+                monthly[i] = result[0];
+            }
+            long[] deltas = new long[MONTHS - 1];
+            kernels.deltas(monthly, deltas);
+
+            System.out.println(" Spending Trends:");
+            for (int i = 0; i < MONTHS; i++) {
+                YearMonth month = current.minusMonths(MONTHS - 1 - i);
+                String change = i == 0 ? "" : "  (" + change(deltas[i - 1], monthly[i - 1]) + ")";
+                System.out.println("- " + month + (i == MONTHS - 1 ? " so far" : "") + ": $"
+                        + CategoryTotals.format(monthly[i]) + change);
+            }
+            int elapsed = today.getDayOfMonth();
+            int length = current.lengthOfMonth();
+            long projected = LedgerKernels.projectMonthEnd(monthly[MONTHS - 1], elapsed, length);
+            System.out.println("- Projected for " + current + " (day " + elapsed + " of " + length + "): $"
+                    + CategoryTotals.format(projected)
+                    + (MONTHS > 1 ? "  (" + change(projected - monthly[MONTHS - 2], monthly[MONTHS - 2]) + ")" : ""));
+
+            CategoryDictionary names = columns.names();
+            long[] totals = new long[names.size()];
+            int[] rows = new int[names.size()];
+            kernels.sumByCategory(columns.cents(), columns.categories(), columns.days(), columns.size(),
+                    (int) current.atDay(1).toEpochDay(), (int) current.atEndOfMonth().toEpochDay(), totals, rows);
+            CategoryTotals budgets = SpendingAggregates.load(filename).getTotals();
+            System.out.println("- Projected by category:");
+            for (int id = 0; id < names.size(); id++) {
+                if (rows[id] == 0) {
+                    continue;
+                }
+                long categoryProjection = LedgerKernels.projectMonthEnd(totals[id], elapsed, length);
+                StringBuilder line = new StringBuilder();
+                line.append(String.format("  %-15s $%s so far, $%s projected", names.name(id),
+                        CategoryTotals.format(totals[id]), CategoryTotals.format(categoryProjection)));
+                int budget = budgets.categories().find(names.name(id));
+                if (budget >= 0 && budgets.hasBudget(budget)) {
+                    long limit = budgets.budgetCents(budget);
+                    line.append(" of $").append(CategoryTotals.format(limit)).append(" budget");
+                    if (categoryProjection > limit) {
+                        line.append(" (over by $").append(CategoryTotals.format(categoryProjection - limit)).append(')');
+                    }
+                }
+                System.out.println(line);
+            }
+        } catch (IOException e) {
+            System.out.println("Error generating trends: " + e.getMessage());
+        }
+    }
+
+    private static String change(long delta, long previous) {
+        String amount = (delta < 0 ? "-$" : "+$") + CategoryTotals.format(Math.abs(delta));
+        return previous == 0 ? amount : amount + String.format(", %+.1f%%", 100.0 * delta / previous);
+    }
+}
@@ -0,0 +1,107 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class User {
+    private String username;
+    private String email;
+    private String password;
+    private String phoneNumber;
+    private List<Expense> expenses;
+    private List<Reminder> reminders;
+    private List<Income> incomes;
+    private SpendingAggregates spending;
+    private GoalProgress goals;
+    private BudgetAlerts alerts;
+    private boolean inMemory;
+
+    public User(String username, String email, String password, String phoneNumber) {
+        this.username = username;
+        this.email = email;
+        this.password = password;
+        this.phoneNumber = phoneNumber;
+        this.expenses = new ArrayList<>();
+        this.reminders = new ArrayList<>();
+        this.incomes = new ArrayList<>();
+    }
+
+    // A logged-in user's in-memory model, kept by UserSessions. Credentials stay in
+    // users.txt; budgets, goals and alert windows come from the user's projections.
+    public User(String email, SpendingAggregates spending, GoalProgress goals, BudgetAlerts alerts) {
+        this(null, email, null, null);
+        this.spending = spending;
+        this.goals = goals;
+        this.alerts = alerts;
+    }
+
+    public String toFileString() {
+        return username + "," + email + "," + password + "," + phoneNumber;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void addExpense(Expense e) {
+        expenses.add(e);
+    }
+
+    public void addReminder(Reminder r) {
+        reminders.add(r);
+    }
+
+    public void addIncome(Income income) {
+        incomes.add(income);
+    }
+
+    public List<Expense> getExpenses() {
+        return Collections.unmodifiableList(expenses);
+    }
+
+    public List<Reminder> getReminders() {
+        return Collections.unmodifiableList(reminders);
+    }
+
+    public List<Income> getIncomes() {
+        return Collections.unmodifiableList(incomes);
+    }
+
+    // Spending per category and the latest budgets.
+    public SpendingAggregates getSpending() {
+        return spending;
+    }
+
+    public GoalProgress getGoals() {
+        return goals;
+    }
+
+    public BudgetAlerts getAlerts() {
+        return alerts;
+    }
+
+    // Whether the expense, income and reminder lists hold the user's ledgers.
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    void setInMemory(boolean inMemory) {
+        this.inMemory = inMemory;
+    }
+
+    // Empties one ledger's list, or all of them for null.
+    void clear(LedgerStorage.Ledger ledger) {
+        if (ledger == null || ledger == LedgerStorage.Ledger.EXPENSES) {
+            expenses = new ArrayList<>();
+        }
+        if (ledger == null || ledger == LedgerStorage.Ledger.INCOMES) {
+            incomes = new ArrayList<>();
+        }
+        if (ledger == null || ledger == LedgerStorage.Ledger.REMINDERS) {
+            reminders = new ArrayList<>();
+        }
+    }
+}
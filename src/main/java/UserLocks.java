@@ -0,0 +1,65 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Per-user mutual exclusion for ledger access. Threads in this process first take one of
+// a fixed set of striped locks (chosen by the user's file prefix), then an exclusive
+// FileChannel lock on <user>.lock so other processes sharing the files wait as well.
+// Both are reentrant per user: a thread that already holds a user's lock runs nested
+// actions for that user directly. Users sharing a stripe still each get their file lock.
+class UserLocks {
+    interface Action<T> {
+        T run() throws IOException;
+    }
+
+    interface Task {
+        void run() throws IOException;
+    }
+
+    private static final int STRIPES = 256;
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[STRIPES];
+    // How many times the current thread holds each user's lock.
+    private static final ThreadLocal<Map<String, Integer>> HELD = ThreadLocal.withInitial(HashMap::new);
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            LOCKS[i] = new ReentrantLock();
+        }
+    }
+
+    public static <T> T call(String filename, Action<T> action) throws IOException {
+        ReentrantLock lock = LOCKS[(filename.hashCode() & 0x7fffffff) % STRIPES];
+        lock.lock();
+        Map<String, Integer> held = HELD.get();
+        int holds = held.merge(filename, 1, Integer::sum);
+        try {
+            if (holds > 1) {
+                return action.run();
+            }
+            try (FileChannel channel = FileChannel.open(Paths.get(filename + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // Released when the channel closes.
+                channel.lock();
+                return action.run();
+            }
+        } finally {
+            if (holds == 1) {
+                held.remove(filename);
+            } else {
+                held.put(filename, holds - 1);
+            }
+            lock.unlock();
+        }
+    }
+
+    public static void run(String filename, Task task) throws IOException {
+        call(filename, () -> {
+            task.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,205 @@
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// In-memory models of logged-in users, so Display Expenses and the detailed report are
+// answered from memory instead of re-reading the ledgers every time. A model
+// is loaded at login and kept current the way the projections are: it remembers how far
+// it has read each ledger and folds in whatever was appended since before each use, so
+// writes go to disk first and reach the model on the next read. Models are kept in LRU
+// order within -Dsession.cache.mb megabytes (default 64, estimated per record); the least
+// recently used are dropped first and reloaded on their next use. Models left unused for
+// -Dsession.idle.minutes (default 30) are dropped as well, whether or not the cache is
+// full, so users who walked away don't pin memory. A user whose ledgers would take more
+// than a quarter of the cache keeps only the projections, and reads stream from disk as
+// before. Callers hold the user lock.
+class UserSessions {
+    private static final long CAPACITY = Long.getLong("session.cache.mb", 64) << 20;
+    private static final long IDLE_MILLIS = Long.getLong("session.idle.minutes", 30) * 60_000;
+    private static final int RECORD_BYTES = 64;
+    private static final int NAME_BYTES = 48;
+    private static final UserSessions SHARED = new UserSessions(CAPACITY, IDLE_MILLIS);
+
+    private final long capacity;
+    private final long idleMillis;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private static final class Entry {
+        final User user;
+        // Interns categories, methods, sources and dates shared between records.
+        final CategoryDictionary names = new CategoryDictionary();
+        boolean binary;
+        boolean lsm;
+        long expensesEnd;
+        long incomesEnd;
+        long remindersEnd;
+        long bytes;
+        long lastUsed;
+
+        Entry(User user) {
+            this.user = user;
+        }
+    }
+
+    UserSessions(long capacity, long idleMillis) {
+        this.capacity = capacity;
+        this.idleMillis = idleMillis;
+    }
+
+    public static UserSessions shared() {
+        return SHARED;
+    }
+
+    // The user's model, loaded on first use and brought up to date with the ledgers.
+    public User get(String filename, String email) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(filename);
+        }
+        if (entry == null) {
+            entry = new Entry(new User(email, SpendingAggregates.load(filename), GoalProgress.load(filename),
+                    BudgetAlerts.load(filename)));
+            entry.user.setInMemory(fits(filename));
+        }
+        long before = entry.bytes;
+        if (entry.user.isInMemory()) {
+            refresh(filename, entry);
+        }
+        synchronized (this) {
+            if (entries.get(filename) == entry) {
+                bytes += entry.bytes - before;
+            } else {
+                // New, or evicted while we were reading; eviction took off its old size.
+                entries.put(filename, entry);
+                bytes += entry.bytes;
+            }
+            entry.lastUsed = System.currentTimeMillis();
+            trim(filename, entry.lastUsed);
+        }
+        return entry.user;
+    }
+
+    public synchronized void evict(String filename) {
+        Entry entry = entries.remove(filename);
+        if (entry != null) {
+            bytes -= entry.bytes;
+        }
+    }
+
+    // Drops least recently used models, never the one just used, until the rest fit and
+    // none has been idle too long. Entries are in access order, so the scan stops at the
+    // first one that is recent enough once the cache fits.
+    private void trim(String keep, long now) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            if (bytes <= capacity && now - eldest.getValue().lastUsed < idleMillis) {
+                break;
+            }
+            bytes -= eldest.getValue().bytes;
+            it.remove();
+        }
+    }
+
+    // Guesses from the ledger sizes whether the user's records fit in their share of the
+    // cache, so a huge ledger is never read just to find out.
+    private boolean fits(String filename) throws IOException {
+        LedgerStorage storage = LedgerStorage.forUser(filename);
+        long estimate = 2 * (storage.end(LedgerStorage.Ledger.INCOMES) + storage.end(LedgerStorage.Ledger.REMINDERS));
+        if (BinaryLedger.isEnabled(filename)) {
+            estimate += BinaryLedger.exists(filename) ? (long) BinaryLedger.open(filename).size() * RECORD_BYTES : 0;
+        } else {
+            estimate += 2 * storage.end(LedgerStorage.Ledger.EXPENSES);
+        }
+        return estimate <= capacity / 4;
+    }
+
+    private void refresh(String filename, Entry entry) throws IOException {
+        User user = entry.user;
+        boolean binary = BinaryLedger.isEnabled(filename);
+        boolean lsm = LedgerStorage.isLsm(filename);
+        if (binary != entry.binary || lsm != entry.lsm) {
+            // Converted since the last read; positions mean something else now.
+            entry.binary = binary;
+            entry.lsm = lsm;
+            entry.expensesEnd = entry.incomesEnd = entry.remindersEnd = 0;
+            user.clear(null);
+        }
+        LedgerStorage storage = LedgerStorage.forUser(filename);
+        entry.expensesEnd = binary
+                ? readBinary(filename, entry)
+                : read(storage, LedgerStorage.Ledger.EXPENSES, entry, entry.expensesEnd, line -> {
+                    if (line.fieldCount() == 4) {
+                        // Every four-field line is kept and shown as written, like the
+                        // ledger readers do; amounts repeat, so their text is interned too.
+                        double amount;
+                        try {
+                            amount = line.parseDouble(0);
+                        } catch (NumberFormatException e) {
+                            amount = Double.NaN;
+                        }
+                        user.addExpense(new Expense(amount, name(entry, line, 0), name(entry, line, 1),
+                                name(entry, line, 2), name(entry, line, 3)));
+                    }
+                });
+        entry.incomesEnd = read(storage, LedgerStorage.Ledger.INCOMES, entry, entry.incomesEnd, line -> {
+            if (line.fieldCount() == 3) {
+                try {
+                    user.addIncome(new Income(name(entry, line, 0), line.parseDouble(1), name(entry, line, 2)));
+                } catch (NumberFormatException e) {
+                    // As above.
+                }
+            }
+        });
+        entry.remindersEnd = read(storage, LedgerStorage.Ledger.REMINDERS, entry, entry.remindersEnd, line -> {
+            if (line.fieldCount() == 3) {
+                user.addReminder(new Reminder(line.text(0), name(entry, line, 1), name(entry, line, 2)));
+            }
+        });
+        entry.bytes = (long) (user.getExpenses().size() + user.getIncomes().size() + user.getReminders().size())
+                * RECORD_BYTES + (long) entry.names.size() * NAME_BYTES;
+        if (entry.bytes > capacity / 4) {
+            user.clear(null);
+            user.setInMemory(false);
+            entry.bytes = (long) entry.names.size() * NAME_BYTES;
+        }
+    }
+
+    // Reads a ledger from `from` on; if it shrank (compaction), rereads it from the start.
+    private static long read(LedgerStorage storage, LedgerStorage.Ledger ledger, Entry entry, long from,
+                             LedgerVisitor visitor) throws IOException {
+        long end = storage.read(ledger, from, visitor);
+        if (end >= 0) {
+            return end;
+        }
+        entry.user.clear(ledger);
+        return storage.read(ledger, 0, visitor);
+    }
+
+    // Binary ledgers are tracked by row count.
+    private static long readBinary(String filename, Entry entry) throws IOException {
+        if (!BinaryLedger.exists(filename)) {
+            return 0;
+        }
+        BinaryLedger ledger = BinaryLedger.open(filename);
+        if (ledger.size() < entry.expensesEnd) {
+            entry.user.clear(LedgerStorage.Ledger.EXPENSES);
+            entry.expensesEnd = 0;
+        }
+        for (int row = (int) entry.expensesEnd; row < ledger.size(); row++) {
+            entry.user.addExpense(new Expense(ledger.amount(row), entry.names.name(entry.names.id(ledger.name(ledger.category(row)))),
+                    entry.names.name(entry.names.id(ledger.name(ledger.method(row)))),
+                    entry.names.name(entry.names.id(ledger.date(row)))));
+        }
+        return ledger.size();
+    }
+
+    private static String name(Entry entry, LedgerLine line, int field) {
+        return entry.names.name(entry.names.id(line, field));
+    }
+}
@@ -0,0 +1,31 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+// Per-user preferences kept in <user>_settings.txt.
+class UserSettings {
+    public static String get(String filename, String key, String defaultValue) throws IOException {
+        return load(filename).getProperty(key, defaultValue);
+    }
+
+    public static void set(String filename, String key, String value) throws IOException {
+        Properties settings = load(filename);
+        settings.setProperty(key, value);
+        try (FileOutputStream out = new FileOutputStream(filename + "_settings.txt")) {
+            settings.store(out, null);
+        }
+    }
+
+    private static Properties load(String filename) throws IOException {
+        Properties settings = new Properties();
+        File file = new File(filename + "_settings.txt");
+        if (file.exists()) {
+            try (FileInputStream in = new FileInputStream(file)) {
+                settings.load(in);
+            }
+        }
+        return settings;
+    }
+}
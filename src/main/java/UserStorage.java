@@ -0,0 +1,7 @@
+import java.io.IOException;
+
+interface UserStorage {
+    boolean isEmailExists(String email) throws IOException;
+    void saveUser(User user) throws IOException;
+    boolean login(String email, String password) throws IOException;
+}
@@ -0,0 +1,19 @@
+class UserValidator {
+    public boolean isValidEmail(String email) {
+        return email != null &&
+                email.matches("^[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Z|a-z]{2,}$");
+    }
+
+    public boolean isValidPassword(String password) {
+        return password != null &&
+                password.length() >= 8 &&
+                password.length() <= 16 &&
+                password.matches("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d).+$");
+    }
+
+    public boolean isValidPhone(String phone) {
+
+        return phone != null &&
+                phone.matches("^\\+\\d{10,15}$");
+    }
+}
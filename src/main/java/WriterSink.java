@@ -0,0 +1,44 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+// Base for sinks that render each row into a reusable line and copy it into a buffered
+// writer, so writing a row creates no Strings.
+abstract class WriterSink implements ReportSink {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String NEWLINE = System.lineSeparator();
+
+    protected final StringBuilder line = new StringBuilder();
+    private final Writer out;
+    private final boolean owned;
+    private char[] chars = new char[256];
+
+    // An owned stream is closed with the sink; otherwise it is only flushed.
+    protected WriterSink(OutputStream stream, Charset charset, boolean owned) {
+        this.out = new BufferedWriter(new OutputStreamWriter(stream, charset), BUFFER_SIZE);
+        this.owned = owned;
+    }
+
+    // Writes out the line, ended with a line separator, and clears it.
+    protected void writeLine() throws IOException {
+        line.append(NEWLINE);
+        int length = line.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        line.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+        line.setLength(0);
+    }
+
+    public void close() throws IOException {
+        if (owned) {
+            out.close();
+        } else {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DateIndexTest {
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rangesMatchAFullScan() throws IOException {
+        Path ledger = dir.resolve("u_expenses.txt");
+        List<String> lines = ledger(20_000, 7);
+        Files.write(ledger, lines);
+        DateIndex index = new DateIndex(ledger.toFile(), 4, 3);
+
+        assertRanges(index, lines);
+    }
+
+    @Test
+    void picksUpAppendedLines() throws IOException {
+        Path ledger = dir.resolve("u_expenses.txt");
+        List<String> lines = ledger(5_000, 11);
+        Files.write(ledger, lines);
+        DateIndex index = new DateIndex(ledger.toFile(), 4, 3);
+        assertEquals(between(lines, START, START.plusDays(729)), read(index, START, START.plusDays(729)));
+
+        // Later lines in earlier months, and a line continuing the last segment's month.
+        List<String> more = List.of(line(START.plusDays(3)), line(START.plusDays(400)), line(START.plusDays(729)));
+        Files.write(ledger, more, StandardOpenOption.APPEND);
+        lines.addAll(more);
+
+        assertRanges(index, lines);
+    }
+
+    @Test
+    void reindexesALedgerThatShrank() throws IOException {
+        Path ledger = dir.resolve("u_expenses.txt");
+        List<String> lines = ledger(5_000, 13);
+        Files.write(ledger, lines);
+        DateIndex index = new DateIndex(ledger.toFile(), 4, 3);
+        read(index, START, START.plusDays(729));
+
+        List<String> rewritten = new ArrayList<>(lines.subList(0, 1_000));
+        Files.write(ledger, rewritten);
+
+        assertRanges(index, rewritten);
+    }
+
+    @Test
+    void includesBothEndsAndSkipsUnreadableLines() throws IOException {
+        Path ledger = dir.resolve("u_expenses.txt");
+        List<String> lines = List.of("1.00,Food,Cash,2024-02-29", "2.00,Food,Cash,not-a-date", "3.00,Food,2024-03-01",
+                "4.00,Food,Cash,2024-03-01", "5.00,Food,Cash,2024-03-02");
+        Files.write(ledger, lines);
+        DateIndex index = new DateIndex(ledger.toFile(), 4, 3);
+
+        assertEquals(List.of("1.00,Food,Cash,2024-02-29", "4.00,Food,Cash,2024-03-01"),
+                read(index, LocalDate.of(2024, 2, 29), LocalDate.of(2024, 3, 1)));
+        assertEquals(List.of(), read(index, LocalDate.of(2023, 1, 1), LocalDate.of(2024, 2, 28)));
+    }
+
+    private static void assertRanges(DateIndex index, List<String> lines) throws IOException {
+        Random random = new Random(1);
+        for (int i = 0; i < 50; i++) {
+            LocalDate from = START.minusDays(10).plusDays(random.nextInt(760));
+            LocalDate to = from.plusDays(random.nextInt(120));
+            assertEquals(between(lines, from, to), read(index, from, to), from + ".." + to);
+        }
+        assertEquals(between(lines, START, START.plusDays(729)), read(index, START, START.plusDays(729)));
+    }
+
+    // Two years of expenses, mostly in date order with some entered late, plus lines the
+    // index must skip.
+    private static List<String> ledger(int size, long seed) {
+        Random random = new Random(seed);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int day = (int) ((long) i * 730 / size);
+            if (random.nextInt(20) == 0) {
+                day = Math.max(0, day - random.nextInt(90));
+            }
+            if (random.nextInt(500) == 0) {
+                lines.add("9.99,Broken,Cash,2024-13-45");
+            } else if (random.nextInt(500) == 0) {
+                lines.add("9.99,Short");
+            } else {
+                lines.add(line(START.plusDays(day)));
+            }
+        }
+        return lines;
+    }
+
+    private static String line(LocalDate date) {
+        return (date.getDayOfMonth() + 0.5) + ",Food,Cash," + date;
+    }
+
+    private static List<String> between(List<String> lines, LocalDate from, LocalDate to) {
+        List<String> result = new ArrayList<>();
+        for (String line : lines) {
+            String[] fields = line.split(",");
+            if (fields.length == 4) {
+                try {
+                    LocalDate date = LocalDate.parse(fields[3]);
+                    if (!date.isBefore(from) && !date.isAfter(to)) {
+                        result.add(line);
+                    }
+                } catch (RuntimeException e) {
+                    // Not a date; the index skips it too.
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<String> read(DateIndex index, LocalDate from, LocalDate to) throws IOException {
+        List<String> result = new ArrayList<>();
+        index.read(from, to, line -> result.add(line.text()));
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IndexedUserStorageTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void indexesAnExistingUsersFile() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            lines.add("user" + i + ",user" + i + "@example.com,Secret" + i + ",+2010000" + i);
+        }
+        lines.add("");
+        lines.add("no second field");
+        write(lines);
+
+        IndexedUserStorage storage = open();
+        for (int i = 0; i < 3_000; i += 97) {
+            assertTrue(storage.isEmailExists("user" + i + "@example.com"));
+        }
+        assertTrue(storage.isEmailExists("USER42@Example.COM"));
+        assertFalse(storage.isEmailExists("user3000@example.com"));
+        assertTrue(storage.login("user7@example.com", "Secret7"));
+        assertFalse(storage.login("user7@example.com", "Secret8"));
+
+        // A second instance maps the index built by the first instead of rebuilding it.
+        assertTrue(open().isEmailExists("user2999@example.com"));
+    }
+
+    @Test
+    void findsSavedAndExternallyAppendedUsers() throws IOException {
+        IndexedUserStorage storage = open();
+        storage.saveUser(new User("ann", "ann@example.com", PasswordHasher.hash("Secret1"), "+201234567890"));
+        assertTrue(storage.isEmailExists("ann@example.com"));
+
+        // Appended by another writer, without a trailing newline.
+        Files.write(dir.resolve("users.txt"), "bob,bob@example.com,Secret2,+201234567891".getBytes(Charset.defaultCharset()),
+                StandardOpenOption.APPEND);
+        assertTrue(storage.isEmailExists("bob@example.com"));
+        storage.saveUser(new User("cy", "cy@example.com", "Secret3", "+201234567892"));
+        assertTrue(storage.isEmailExists("bob@example.com"));
+        assertTrue(storage.isEmailExists("cy@example.com"));
+        assertEquals(3, Files.readAllLines(dir.resolve("users.txt"), Charset.defaultCharset()).size());
+    }
+
+    @Test
+    void rehashesLegacyPasswordsInPlace() throws IOException {
+        write(List.of("ann,ann@example.com,Secret1,", "bob,bob@example.com,Secret2,+201234567891"));
+        IndexedUserStorage storage = open();
+
+        assertTrue(storage.login("ann@example.com", "Secret1"));
+
+        List<String> lines = Files.readAllLines(dir.resolve("users.txt"), Charset.defaultCharset());
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).chars().allMatch(c -> c == '#'), lines.get(0));
+        assertEquals("bob,bob@example.com,Secret2,+201234567891", lines.get(1));
+        String[] upgraded = lines.get(2).split(",", -1);
+        assertEquals(4, upgraded.length);
+        assertEquals("ann@example.com", upgraded[1]);
+        assertFalse(PasswordHasher.needsRehash(upgraded[2]));
+        assertEquals("", upgraded[3]);
+
+        assertTrue(storage.login("ann@example.com", "Secret1"));
+        assertTrue(open().login("ann@example.com", "Secret1"));
+        assertEquals(3, Files.readAllLines(dir.resolve("users.txt"), Charset.defaultCharset()).size());
+    }
+
+    @Test
+    void followsRehashesByFileUserStorage() throws IOException {
+        write(List.of("ann,ann@example.com,Secret1,+201234567890", "bob,bob@example.com,Secret2,+201234567891"));
+        IndexedUserStorage indexed = open();
+        assertTrue(indexed.isEmailExists("ann@example.com"));
+
+        assertTrue(new FileUserStorage(dir.resolve("users.txt").toString()).login("ann@example.com", "Secret1"));
+
+        assertTrue(indexed.login("ann@example.com", "Secret1"));
+        assertTrue(indexed.login("bob@example.com", "Secret2"));
+    }
+
+    @Test
+    void rebuildsAMissingIndex() throws IOException {
+        write(List.of("ann,ann@example.com,Secret1,+201234567890"));
+        open();
+        Files.delete(dir.resolve("users.idx"));
+
+        assertTrue(open().isEmailExists("ann@example.com"));
+    }
+
+    private IndexedUserStorage open() throws IOException {
+        return new IndexedUserStorage(dir.resolve("users.txt").toString(), dir.resolve("users.idx").toString());
+    }
+
+    private void write(List<String> lines) throws IOException {
+        Files.write(dir.resolve("users.txt"), lines, Charset.defaultCharset());
+    }
+}
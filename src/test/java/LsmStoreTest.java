@@ -0,0 +1,105 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LsmStoreTest {
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void closeStore() throws IOException {
+        LsmStore.close(dir);
+    }
+
+    @Test
+    void replaysLoggedWritesAfterReopen() throws IOException {
+        LsmStore store = LsmStore.open(dir);
+        put(store, "a", "1");
+        put(store, "b", "2");
+        put(store, "a", "3");
+        LsmStore.close(dir);
+
+        store = LsmStore.open(dir);
+        assertArrayEquals(bytes("3"), store.get(bytes("a")));
+        assertArrayEquals(bytes("2"), store.get(bytes("b")));
+        assertNull(store.get(bytes("c")));
+    }
+
+    @Test
+    void dropsTornBatchAndKeepsAppending() throws IOException {
+        LsmStore store = LsmStore.open(dir);
+        put(store, "a", "1");
+        LsmStore.close(dir);
+        // A batch header promising more bytes than made it to disk, as after a crash.
+        Files.write(dir.resolve("wal.log"), new byte[] {0, 0, 0, 64, 1, 2, 3, 4, 0, 0},
+                StandardOpenOption.APPEND);
+
+        store = LsmStore.open(dir);
+        assertArrayEquals(bytes("1"), store.get(bytes("a")));
+        put(store, "b", "2");
+        LsmStore.close(dir);
+
+        store = LsmStore.open(dir);
+        assertArrayEquals(bytes("1"), store.get(bytes("a")));
+        assertArrayEquals(bytes("2"), store.get(bytes("b")));
+    }
+
+    @Test
+    void dropsBatchWithBadChecksum() throws IOException {
+        LsmStore store = LsmStore.open(dir);
+        put(store, "a", "1");
+        long good = Files.size(dir.resolve("wal.log"));
+        put(store, "b", "2");
+        LsmStore.close(dir);
+        byte[] log = Files.readAllBytes(dir.resolve("wal.log"));
+        log[log.length - 1] ^= 1;
+        Files.write(dir.resolve("wal.log"), log);
+
+        store = LsmStore.open(dir);
+        assertArrayEquals(bytes("1"), store.get(bytes("a")));
+        assertNull(store.get(bytes("b")));
+        assertEquals(good, Files.size(dir.resolve("wal.log")));
+    }
+
+    @Test
+    void loggedWritesOverrideFlushedSegments() throws IOException {
+        LsmStore store = LsmStore.open(dir);
+        put(store, "a", "old");
+        put(store, "b", "kept");
+        store.flush();
+        put(store, "a", "new");
+        LsmStore.close(dir);
+
+        store = LsmStore.open(dir);
+        assertEquals(1, store.segmentCount());
+        assertArrayEquals(bytes("new"), store.get(bytes("a")));
+        assertArrayEquals(bytes("kept"), store.get(bytes("b")));
+        List<String> scanned = new ArrayList<>();
+        store.scan(bytes("a"), bytes("c"), (key, value) -> scanned.add(text(key) + "=" + text(value)));
+        assertEquals(List.of("a=new", "b=kept"), scanned);
+    }
+
+    private static void put(LsmStore store, String key, String value) throws IOException {
+        store.write(List.of(bytes(key)), List.of(bytes(value)));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
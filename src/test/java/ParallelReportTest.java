@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelReportTest {
+    private static ForkJoinPool pool;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void summaryMatchesSequential() throws IOException {
+        String user = ledger("summary", "\n");
+
+        String parallel = output(() -> new ParallelSummaryReport(0, pool).generate(user));
+        assertEquals(output(() -> new SummaryReport().generate(user)), parallel);
+        assertTrue(parallel.contains("Number of Transactions: 120000"), parallel);
+    }
+
+    @Test
+    void summaryMatchesSequentialOverCrlfLines() throws IOException {
+        String user = ledger("crlf", "\r\n");
+
+        assertEquals(output(() -> new SummaryReport().generate(user)),
+                output(() -> new ParallelSummaryReport(0, pool).generate(user)));
+    }
+
+    @Test
+    void detailedMatchesSequential() throws IOException {
+        String user = ledger("detailed", "\n");
+
+        assertEquals(output(() -> new DetailedReport().generate(user)),
+                output(() -> new ParallelDetailedReport(0, pool).generate(user)));
+    }
+
+    // Several 1 MB chunks of expenses whose amounts don't add up exactly in binary, with a
+    // few lines the reports skip.
+    private String ledger(String name, String newline) throws IOException {
+        Random random = new Random(name.hashCode());
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < 120_000; i++) {
+            out.append(random.nextInt(500)).append('.').append(random.nextInt(100))
+                    .append(random.nextBoolean() ? ",Food," : ",Transport,")
+                    .append(random.nextBoolean() ? "Cash," : "Card,")
+                    .append(start.plusDays(i % 365)).append(newline);
+            if (i % 10_000 == 0) {
+                out.append("not,an,expense").append(newline);
+            }
+        }
+        String user = dir.resolve(name).toString();
+        Files.write(Path.of(user + "_expenses.txt"), out.toString().getBytes(StandardCharsets.UTF_8));
+        return user;
+    }
+
+    private static String output(Runnable report) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        try {
+            report.run();
+        } finally {
+            System.setOut(console);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}